@@ -20,7 +20,9 @@ import com.microsoft.appcenter.analytics.ingestion.models.one.CommonSchemaEventL
 import com.microsoft.appcenter.analytics.ingestion.models.one.json.CommonSchemaEventLogFactory;
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.UUIDUtils;
 import com.microsoft.appcenter.utils.async.AppCenterFuture;
@@ -28,6 +30,7 @@ import com.microsoft.appcenter.utils.async.AppCenterFuture;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Analytics service.
@@ -55,9 +58,15 @@ public class Analytics extends AbstractAppCenterService {
     private static final String ACTIVITY_SUFFIX = "Activity";
 
     /**
-     * Shared instance.
+     * Number of events that can be tracked before the App Center thread drains them.
      */
-    private static Analytics sInstance = null;
+    @VisibleForTesting
+    static final int EVENT_CAPTURE_CAPACITY = 256;
+
+    /**
+     * Shared instance, volatile so that it can be read without locking once created.
+     */
+    private static volatile Analytics sInstance = null;
 
     /**
      * Log factories managed by this service.
@@ -100,6 +109,70 @@ public class Analytics extends AbstractAppCenterService {
      */
     private boolean mAutoPageTrackingEnabled = false;
 
+    /**
+     * Events tracked and not yet drained by the App Center thread.
+     */
+    private final EventCaptureBuffer mEventCaptureBuffer = new EventCaptureBuffer(EVENT_CAPTURE_CAPACITY);
+
+    /**
+     * Is draining captured events scheduled on the App Center thread?
+     */
+    private final AtomicBoolean mEventDrainScheduled = new AtomicBoolean();
+
+    /**
+     * Number of other calls posted to the App Center thread, captured events are stamped with it
+     * so that they are processed in order with those calls.
+     */
+    private volatile long mPostedCallCount;
+
+    /**
+     * Stamp of the last call run on the App Center thread, events stamped after it are not drained yet.
+     */
+    private volatile long mRunCallCount;
+
+    /**
+     * Enqueues drained events.
+     */
+    private final EventCaptureBuffer.Listener mEventEnqueuer = new EventCaptureBuffer.Listener() {
+
+        @Override
+        public void onEvent(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget) {
+            queueEvent(name, properties, transmissionTarget);
+        }
+    };
+
+    /**
+     * Discards drained events.
+     */
+    private final EventCaptureBuffer.Listener mEventDiscarder = new EventCaptureBuffer.Listener() {
+
+        @Override
+        public void onEvent(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget) {
+        }
+    };
+
+    /**
+     * Runnable that drains captured events to the channel.
+     */
+    private final Runnable mDrainEventsRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            drainEvents(mEventEnqueuer);
+        }
+    };
+
+    /**
+     * Runnable that drains captured events when App Center or this service is disabled.
+     */
+    private final Runnable mDiscardEventsRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            drainEvents(mEventDiscarder);
+        }
+    };
+
     /**
      * Init.
      */
@@ -118,11 +191,17 @@ public class Analytics extends AbstractAppCenterService {
      * @return shared instance.
      */
     @SuppressWarnings("WeakerAccess")
-    public static synchronized Analytics getInstance() {
-        if (sInstance == null) {
-            sInstance = new Analytics();
+    public static Analytics getInstance() {
+        Analytics instance = sInstance;
+        if (instance == null) {
+            synchronized (Analytics.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = sInstance = new Analytics();
+                }
+            }
         }
-        return sInstance;
+        return instance;
     }
 
     @VisibleForTesting
@@ -332,6 +411,13 @@ public class Analytics extends AbstractAppCenterService {
         return ANALYTICS_GROUP;
     }
 
+    @Override
+    protected GroupQuota getGroupQuota() {
+
+        /* Events are evicted first when storage is full. */
+        return new GroupQuota(GroupQuota.PRIORITY_LOW, 0, 0);
+    }
+
     @Override
     public String getServiceName() {
         return SERVICE_NAME;
@@ -400,26 +486,27 @@ public class Analytics extends AbstractAppCenterService {
 
     @Override
     protected Channel.GroupListener getChannelListener() {
+        /* Logs are deserialized only if the application listens to them. */
         return new Channel.GroupListener() {
 
             @Override
             public void onBeforeSending(Log log) {
                 if (mAnalyticsListener != null) {
-                    mAnalyticsListener.onBeforeSending(log);
+                    mAnalyticsListener.onBeforeSending(SerializedLog.getModel(log));
                 }
             }
 
             @Override
             public void onSuccess(Log log) {
                 if (mAnalyticsListener != null) {
-                    mAnalyticsListener.onSendingSucceeded(log);
+                    mAnalyticsListener.onSendingSucceeded(SerializedLog.getModel(log));
                 }
             }
 
             @Override
             public void onFailure(Log log, Exception e) {
                 if (mAnalyticsListener != null) {
-                    mAnalyticsListener.onSendingFailed(log, e);
+                    mAnalyticsListener.onSendingFailed(SerializedLog.getModel(log), e);
                 }
             }
         };
@@ -492,29 +579,136 @@ public class Analytics extends AbstractAppCenterService {
 
     /**
      * Send an event.
+     * The event is written to a preallocated buffer without locking, the App Center thread drains
+     * all events captured meanwhile at once. The buffer being full falls back to posting the event alone.
      *
      * @param name       event name.
      * @param properties optional properties.
      */
-    private synchronized void trackEventAsync(final String name, final Map<String, String> properties, final AnalyticsTransmissionTarget transmissionTarget) {
+    private void trackEventAsync(final String name, final Map<String, String> properties, final AnalyticsTransmissionTarget transmissionTarget) {
 
         /* Make a copy to prevent concurrent modification. */
         final Map<String, String> propertiesCopy = properties != null ? new HashMap<>(properties) : null;
-        post(new Runnable() {
+        if (!mEventCaptureBuffer.offer(name, propertiesCopy, transmissionTarget, mPostedCallCount)) {
+            post(new Runnable() {
+
+                @Override
+                public void run() {
+                    queueEvent(name, propertiesCopy, transmissionTarget);
+                }
+            });
+            return;
+        }
+
+        /* Wake up the App Center thread once for all events captured until it drains them. */
+        scheduleEventDrain();
+    }
+
+    /**
+     * Post draining captured events unless already scheduled.
+     */
+    private synchronized void scheduleEventDrain() {
+        if (mEventDrainScheduled.compareAndSet(false, true)) {
+            if (!super.post(mDrainEventsRunnable, mDiscardEventsRunnable, mDiscardEventsRunnable)) {
+
+                /* Not started, events are discarded like other calls, the post already logged why. */
+                mEventDrainScheduled.set(false);
+                mEventCaptureBuffer.drain(mEventDiscarder, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Drain captured events up to the last call that has run.
+     *
+     * @param listener listener called for each event.
+     */
+    private synchronized void drainEvents(EventCaptureBuffer.Listener listener) {
+
+        /* Reset first so that an event captured after draining schedules another drain. */
+        mEventDrainScheduled.set(false);
+        int count = mEventCaptureBuffer.drain(listener, mRunCallCount);
+        if (listener == mEventDiscarder && count > 0) {
+            AppCenterLog.info(LOG_TAG, getServiceName() + " service disabled, discarding " + count + " event(s).");
+        }
+    }
+
+    /**
+     * Events are drained by the App Center thread in batches, so every other call is stamped
+     * to be run after the events tracked before it and before the events tracked after it.
+     */
+    @Override
+    protected synchronized boolean post(Runnable runnable, Runnable coreDisabledRunnable, Runnable serviceDisabledRunnable) {
+        long call = ++mPostedCallCount;
+        if (coreDisabledRunnable == null) {
+            coreDisabledRunnable = new Runnable() {
+
+                @Override
+                public void run() {
+                    AppCenterLog.error(AppCenterLog.LOG_TAG, "App Center SDK is disabled.");
+                }
+            };
+        }
+        if (serviceDisabledRunnable == null) {
+            serviceDisabledRunnable = new Runnable() {
+
+                @Override
+                public void run() {
+                    AppCenterLog.info(AppCenterLog.LOG_TAG, getServiceName() + " service disabled, discarding calls.");
+                }
+            };
+        }
+
+        /* Disabled variants are always wrapped so that the stamp is released whichever variant runs. */
+        boolean posted = super.post(runAfterEvents(call, runnable, true), runAfterEvents(call, coreDisabledRunnable, false), runAfterEvents(call, serviceDisabledRunnable, false));
+        if (!posted) {
+
+            /* The call will never run, do not hold back events stamped after it. */
+            mRunCallCount = call;
+        }
+        return posted;
+    }
+
+    /**
+     * Wrap a call so that it processes the events tracked before it was posted,
+     * and releases the events tracked after it once it has run.
+     *
+     * @param call     call stamp.
+     * @param runnable call to wrap.
+     * @param enabled  true if the call runs when App Center and this service are enabled, false for a disabled variant.
+     * @return wrapped call.
+     */
+    private Runnable runAfterEvents(final long call, final Runnable runnable, final boolean enabled) {
+        return new Runnable() {
 
             @Override
             public void run() {
-                EventLog eventLog = new EventLog();
-                eventLog.setId(UUIDUtils.randomUUID());
-                eventLog.setName(name);
-                eventLog.setProperties(propertiesCopy);
-                AnalyticsTransmissionTarget aTransmissionTarget = (transmissionTarget == null) ? mDefaultTransmissionTarget : transmissionTarget;
-                if (aTransmissionTarget != null) {
-                    eventLog.addTransmissionTarget(aTransmissionTarget.getTransmissionTargetToken());
+                drainEvents(enabled ? mEventEnqueuer : mEventDiscarder);
+                mRunCallCount = Math.max(mRunCallCount, call);
+                runnable.run();
+
+                /* A drain that ran before this call may have left events tracked after it. */
+                if (!mEventCaptureBuffer.isEmpty()) {
+                    scheduleEventDrain();
                 }
-                mChannel.enqueue(eventLog, ANALYTICS_GROUP);
             }
-        });
+        };
+    }
+
+    /**
+     * Enqueue event log now.
+     */
+    @WorkerThread
+    private void queueEvent(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget) {
+        EventLog eventLog = new EventLog();
+        eventLog.setId(UUIDUtils.randomUUID());
+        eventLog.setName(name);
+        eventLog.setProperties(properties);
+        AnalyticsTransmissionTarget aTransmissionTarget = (transmissionTarget == null) ? mDefaultTransmissionTarget : transmissionTarget;
+        if (aTransmissionTarget != null) {
+            eventLog.addTransmissionTarget(aTransmissionTarget.getTransmissionTargetToken());
+        }
+        mChannel.enqueue(eventLog, ANALYTICS_GROUP);
     }
 
     /**
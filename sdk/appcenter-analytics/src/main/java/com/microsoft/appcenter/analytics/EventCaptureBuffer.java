@@ -0,0 +1,172 @@
+package com.microsoft.appcenter.analytics;
+
+import android.support.annotation.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer of tracked events, written by any thread and drained by a single consumer.
+ * Writers never lock nor allocate: they claim a slot with a compare and set on the write sequence,
+ * fill it and publish it. Claiming is uncontended when events are tracked from a single thread.
+ */
+class EventCaptureBuffer {
+
+    /**
+     * Sequence number of a slot that has not been published yet.
+     */
+    private static final long UNPUBLISHED = -1;
+
+    /**
+     * Number of slots minus one, capacity being a power of 2.
+     */
+    private final int mMask;
+
+    /**
+     * Event names.
+     */
+    private final String[] mNames;
+
+    /**
+     * Event properties.
+     */
+    private final Map<String, String>[] mProperties;
+
+    /**
+     * Event transmission targets.
+     */
+    private final AnalyticsTransmissionTarget[] mTransmissionTargets;
+
+    /**
+     * Stamp of each event, see {@link #offer(String, Map, AnalyticsTransmissionTarget, long)}.
+     */
+    private final long[] mStamps;
+
+    /**
+     * Sequence number published in each slot, the consumer reads a slot only once it holds the expected sequence.
+     */
+    private final AtomicLongArray mPublishedSequences;
+
+    /**
+     * Sequence number of the next slot to claim.
+     */
+    private final AtomicLong mWriteSequence = new AtomicLong();
+
+    /**
+     * Sequence number of the next slot to drain.
+     */
+    private final AtomicLong mReadSequence = new AtomicLong();
+
+    /**
+     * Init.
+     *
+     * @param capacity number of slots, rounded up to a power of 2.
+     */
+    @SuppressWarnings("unchecked")
+    EventCaptureBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mMask = size - 1;
+        mNames = new String[size];
+        mProperties = new Map[size];
+        mTransmissionTargets = new AnalyticsTransmissionTarget[size];
+        mStamps = new long[size];
+        mPublishedSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mPublishedSequences.set(i, UNPUBLISHED);
+        }
+    }
+
+    /**
+     * Get the number of slots.
+     *
+     * @return capacity.
+     */
+    int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Write an event, from any thread.
+     *
+     * @param name               event name.
+     * @param properties         event properties.
+     * @param transmissionTarget event transmission target.
+     * @param stamp              caller defined stamp, see {@link #drain(Listener, long)}.
+     * @return false if the buffer is full, the event is then not written.
+     */
+    boolean offer(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget, long stamp) {
+        long sequence;
+        do {
+            sequence = mWriteSequence.get();
+            if (sequence - mReadSequence.get() > mMask) {
+                return false;
+            }
+        } while (!mWriteSequence.compareAndSet(sequence, sequence + 1));
+        int index = (int) sequence & mMask;
+        mNames[index] = name;
+        mProperties[index] = properties;
+        mTransmissionTargets[index] = transmissionTarget;
+        mStamps[index] = stamp;
+
+        /* Publishing after the slot is filled makes the slot visible to the consumer. */
+        mPublishedSequences.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * Check if there are events left to drain, including claimed slots not yet published.
+     *
+     * @return true if no event is left.
+     */
+    boolean isEmpty() {
+        return mReadSequence.get() == mWriteSequence.get();
+    }
+
+    /**
+     * Read published events in order, from the single consumer thread.
+     * Draining stops at a slot that was claimed but not yet published, that writer schedules another drain.
+     * Draining also stops at the first event stamped after the given stamp, leaving it and following events for a later drain.
+     *
+     * @param listener listener called for each event.
+     * @param maxStamp greatest stamp of events to drain.
+     * @return number of drained events.
+     */
+    int drain(@NonNull Listener listener, long maxStamp) {
+        long sequence = mReadSequence.get();
+        int count = 0;
+        while (true) {
+            int index = (int) sequence & mMask;
+            if (mPublishedSequences.get(index) != sequence || mStamps[index] > maxStamp) {
+                break;
+            }
+            String name = mNames[index];
+            Map<String, String> properties = mProperties[index];
+            AnalyticsTransmissionTarget transmissionTarget = mTransmissionTargets[index];
+
+            /* Release references and the slot before calling the listener. */
+            mNames[index] = null;
+            mProperties[index] = null;
+            mTransmissionTargets[index] = null;
+            mReadSequence.lazySet(++sequence);
+            listener.onEvent(name, properties, transmissionTarget);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Event consumer.
+     */
+    interface Listener {
+
+        /**
+         * Called for each drained event.
+         *
+         * @param name               event name.
+         * @param properties         event properties.
+         * @param transmissionTarget event transmission target.
+         */
+        void onEvent(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget);
+    }
+}
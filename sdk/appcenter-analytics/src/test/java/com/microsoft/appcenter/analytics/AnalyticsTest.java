@@ -19,7 +19,10 @@ import com.microsoft.appcenter.analytics.ingestion.models.one.json.CommonSchemaE
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.HandlerUtils;
 import com.microsoft.appcenter.utils.PrefStorageConstants;
@@ -29,6 +32,7 @@ import com.microsoft.appcenter.utils.storage.StorageHelper;
 
 import junit.framework.Assert;
 
+import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,12 +45,15 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -57,6 +64,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.isNull;
@@ -273,6 +281,96 @@ public class AnalyticsTest {
         verify(channel, times(1)).enqueue(any(Log.class), anyString());
     }
 
+    /**
+     * Make the App Center handler queue commands instead of running them.
+     *
+     * @return queued commands, to run in order.
+     */
+    private List<Runnable> queueHandlerCommands() {
+        final List<Runnable> commands = new ArrayList<>();
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                commands.add((Runnable) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(mAppCenterHandler).post(any(Runnable.class), any(Runnable.class));
+        return commands;
+    }
+
+    private static void runCommands(List<Runnable> commands) {
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).run();
+        }
+    }
+
+    @Test
+    public void trackEventThenDisableThenTrackEvent() {
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), "", null, channel);
+        List<Runnable> commands = queueHandlerCommands();
+        Analytics.trackEvent("before");
+        Analytics.setEnabled(false);
+        Analytics.trackEvent("after");
+        runCommands(commands);
+
+        /* Only the event tracked before disabling is enqueued. */
+        ArgumentCaptor<Log> logs = ArgumentCaptor.forClass(Log.class);
+        verify(channel).enqueue(logs.capture(), eq(analytics.getGroupName()));
+        assertEquals("before", ((EventLog) logs.getValue()).getName());
+    }
+
+    @Test
+    public void trackEventThenEnableThenTrackEvent() {
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), "", null, channel);
+        Analytics.setEnabled(false);
+        List<Runnable> commands = queueHandlerCommands();
+        Analytics.trackEvent("before");
+        Analytics.setEnabled(true);
+        Analytics.trackEvent("after");
+        runCommands(commands);
+
+        /* Only the event tracked after enabling is enqueued. */
+        ArgumentCaptor<Log> logs = ArgumentCaptor.forClass(Log.class);
+        verify(channel).enqueue(logs.capture(), eq(analytics.getGroupName()));
+        assertEquals("after", ((EventLog) logs.getValue()).getName());
+    }
+
+    @Test
+    public void trackEventInOrderWithTrackPage() {
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), "", null, channel);
+        List<Runnable> commands = queueHandlerCommands();
+        Analytics.trackEvent("event1");
+        Analytics.trackPage("page");
+        Analytics.trackEvent("event2");
+        Analytics.trackEvent("event3");
+        runCommands(commands);
+
+        /* Logs are enqueued in the order of the calls. */
+        ArgumentCaptor<Log> logs = ArgumentCaptor.forClass(Log.class);
+        verify(channel, times(4)).enqueue(logs.capture(), eq(analytics.getGroupName()));
+        assertEquals("event1", ((EventLog) logs.getAllValues().get(0)).getName());
+        assertEquals("page", ((PageLog) logs.getAllValues().get(1)).getName());
+        assertEquals("event2", ((EventLog) logs.getAllValues().get(2)).getName());
+        assertEquals("event3", ((EventLog) logs.getAllValues().get(3)).getName());
+    }
+
+    @Test
+    public void trackEventWhenNotStartedDoesNotLogServiceDisabled() {
+        Analytics.trackEvent("event");
+        verifyStatic(never());
+        AppCenterLog.info(anyString(), contains("service disabled"));
+    }
+
     @Test
     public void setEnabled() throws InterruptedException {
 
@@ -288,7 +386,7 @@ public class AnalyticsTest {
         analytics.onStarting(mAppCenterHandler);
         analytics.onStarted(mock(Context.class), "", null, channel);
         verify(channel).removeGroup(eq(analytics.getGroupName()));
-        verify(channel).addGroup(eq(analytics.getGroupName()), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), any(Channel.GroupListener.class));
+        verify(channel).addGroup(eq(analytics.getGroupName()), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), any(Channel.GroupListener.class), any(GroupQuota.class));
         verify(channel).addListener(isA(SessionTracker.class));
         verify(channel).addListener(isA(AnalyticsValidator.class));
 
@@ -432,7 +530,7 @@ public class AnalyticsTest {
         analytics.onStarting(mAppCenterHandler);
         analytics.onStarted(mock(Context.class), "", null, channel);
         final ArgumentCaptor<Channel.GroupListener> captor = ArgumentCaptor.forClass(Channel.GroupListener.class);
-        verify(channel).addGroup(anyString(), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), captor.capture());
+        verify(channel).addGroup(anyString(), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), captor.capture(), any(GroupQuota.class));
         doAnswer(new Answer<Void>() {
 
             @Override
@@ -467,6 +565,28 @@ public class AnalyticsTest {
         verify(analyticsListener, never()).onSendingFailed(any(EventLog.class), any(Exception.class));
     }
 
+    @Test
+    public void analyticsListenerGetsModelOfSerializedLog() throws JSONException {
+        EventLog eventLog = new EventLog();
+        LogSerializer serializer = mock(LogSerializer.class);
+        when(serializer.deserializeLog("{}", EventLog.TYPE)).thenReturn(eventLog);
+        SerializedLog log = new SerializedLog(EventLog.TYPE, "{}", serializer);
+        Channel.GroupListener listener = Analytics.getInstance().getChannelListener();
+
+        /* Not deserialized without an application listener. */
+        listener.onBeforeSending(log);
+        assertFalse(log.isDeserialized());
+
+        /* Deserialized once for the application listener. */
+        AnalyticsListener analyticsListener = mock(AnalyticsListener.class);
+        Analytics.setListener(analyticsListener);
+        listener.onBeforeSending(log);
+        listener.onSuccess(log);
+        verify(analyticsListener).onBeforeSending(eventLog);
+        verify(analyticsListener).onSendingSucceeded(eventLog);
+        verify(serializer).deserializeLog("{}", EventLog.TYPE);
+    }
+
     @Test
     public void testGetTransmissionTarget() {
         assertNull(Analytics.getTransmissionTarget(""));
@@ -0,0 +1,148 @@
+package com.microsoft.appcenter.analytics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class EventCaptureBufferTest {
+
+    @Test
+    public void capacity() {
+        assertEquals(2, new EventCaptureBuffer(1).getCapacity());
+        assertEquals(4, new EventCaptureBuffer(3).getCapacity());
+        assertEquals(256, new EventCaptureBuffer(256).getCapacity());
+        assertEquals(512, new EventCaptureBuffer(257).getCapacity());
+    }
+
+    @Test
+    public void offerAndDrain() {
+        EventCaptureBuffer buffer = new EventCaptureBuffer(4);
+        final List<String> names = new ArrayList<>();
+        final List<Map<String, String>> properties = new ArrayList<>();
+        final List<AnalyticsTransmissionTarget> targets = new ArrayList<>();
+        EventCaptureBuffer.Listener listener = new EventCaptureBuffer.Listener() {
+
+            @Override
+            public void onEvent(String name, Map<String, String> eventProperties, AnalyticsTransmissionTarget transmissionTarget) {
+                names.add(name);
+                properties.add(eventProperties);
+                targets.add(transmissionTarget);
+            }
+        };
+        assertEquals(0, buffer.drain(listener, Long.MAX_VALUE));
+
+        /* Fill the buffer, the next event does not fit. */
+        Map<String, String> eventProperties = Collections.singletonMap("a", "b");
+        AnalyticsTransmissionTarget target = mock(AnalyticsTransmissionTarget.class);
+        assertTrue(buffer.offer("1", eventProperties, null, 0));
+        assertTrue(buffer.offer("2", null, target, 0));
+        assertTrue(buffer.offer("3", null, null, 0));
+        assertTrue(buffer.offer("4", null, null, 0));
+        assertFalse(buffer.offer("5", null, null, 0));
+
+        /* Events are drained in order with their references. */
+        assertEquals(4, buffer.drain(listener, Long.MAX_VALUE));
+        assertEquals(asList("1", "2", "3", "4"), names);
+        assertSame(eventProperties, properties.get(0));
+        assertNull(properties.get(1));
+        assertNull(targets.get(0));
+        assertSame(target, targets.get(1));
+
+        /* Slots are reused after draining. */
+        names.clear();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(String.valueOf(i), null, null, 0));
+            assertTrue(buffer.offer(String.valueOf(-i), null, null, 0));
+            assertEquals(2, buffer.drain(listener, Long.MAX_VALUE));
+        }
+        assertEquals(20, names.size());
+        assertEquals("9", names.get(18));
+        assertEquals("-9", names.get(19));
+    }
+
+    @Test
+    public void drainStopsAtStamp() {
+        EventCaptureBuffer buffer = new EventCaptureBuffer(8);
+        final List<String> names = new ArrayList<>();
+        EventCaptureBuffer.Listener listener = new EventCaptureBuffer.Listener() {
+
+            @Override
+            public void onEvent(String name, Map<String, String> eventProperties, AnalyticsTransmissionTarget transmissionTarget) {
+                names.add(name);
+            }
+        };
+        assertTrue(buffer.offer("1", null, null, 0));
+        assertTrue(buffer.offer("2", null, null, 1));
+        assertTrue(buffer.offer("3", null, null, 0));
+        assertTrue(buffer.offer("4", null, null, 2));
+        assertFalse(buffer.isEmpty());
+
+        /* Events after the first one stamped later are left, even if stamped earlier. */
+        assertEquals(1, buffer.drain(listener, 0));
+        assertEquals(Collections.singletonList("1"), names);
+        assertEquals(2, buffer.drain(listener, 1));
+        assertEquals(asList("1", "2", "3"), names);
+        assertFalse(buffer.isEmpty());
+        assertEquals(1, buffer.drain(listener, 2));
+        assertEquals(asList("1", "2", "3", "4"), names);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        final EventCaptureBuffer buffer = new EventCaptureBuffer(64);
+        final int writerCount = 4;
+        final int eventsPerWriter = 1000;
+        final CountDownLatch done = new CountDownLatch(writerCount);
+        for (int i = 0; i < writerCount; i++) {
+            final String writer = String.valueOf(i);
+            new Thread() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < eventsPerWriter; j++) {
+                        while (!buffer.offer(writer, null, null, 0)) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        /* The single consumer sees every event exactly once. */
+        final int[] counts = new int[writerCount];
+        EventCaptureBuffer.Listener listener = new EventCaptureBuffer.Listener() {
+
+            @Override
+            public void onEvent(String name, Map<String, String> properties, AnalyticsTransmissionTarget transmissionTarget) {
+                counts[Integer.parseInt(name)]++;
+            }
+        };
+        int total = 0;
+        while (done.getCount() > 0) {
+            int count = buffer.drain(listener, Long.MAX_VALUE);
+            if (count == 0) {
+                Thread.yield();
+            }
+            total += count;
+        }
+        total += buffer.drain(listener, Long.MAX_VALUE);
+        assertEquals(writerCount * eventsPerWriter, total);
+        for (int count : counts) {
+            assertEquals(eventsPerWriter, count);
+        }
+    }
+}
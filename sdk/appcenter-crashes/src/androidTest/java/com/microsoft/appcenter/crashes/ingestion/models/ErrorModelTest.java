@@ -3,10 +3,12 @@ package com.microsoft.appcenter.crashes.ingestion.models;
 import com.microsoft.appcenter.crashes.ingestion.models.json.ErrorAttachmentLogFactory;
 import com.microsoft.appcenter.crashes.ingestion.models.json.HandledErrorLogFactory;
 import com.microsoft.appcenter.crashes.ingestion.models.json.ManagedErrorLogFactory;
+import com.microsoft.appcenter.ingestion.models.Device;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
@@ -21,9 +23,11 @@ import static com.microsoft.appcenter.crashes.ingestion.models.ErrorAttachmentLo
 import static com.microsoft.appcenter.test.TestUtils.checkEquals;
 import static com.microsoft.appcenter.test.TestUtils.checkNotEquals;
 import static com.microsoft.appcenter.test.TestUtils.compareSelfNullClass;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings("unused")
 public class ErrorModelTest {
@@ -613,6 +617,110 @@ public class ErrorModelTest {
         }
     }
 
+    private static ManagedErrorLog generateManagedErrorLog() {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("1.0.0");
+        device.setModel("model");
+        device.setOemName("oem");
+        device.setOsName("Android");
+        device.setOsVersion("8.0");
+        device.setOsApiLevel(26);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(120);
+        device.setScreenSize("1080x1920");
+        device.setAppVersion("1.0");
+        device.setAppBuild("1");
+        device.setWrapperSdkName("wrapper");
+        StackFrame frame = new StackFrame();
+        frame.setClassName("com.contoso.Foo");
+        frame.setMethodName("bar");
+        frame.setFileName("Foo.java");
+        frame.setLineNumber(42);
+        Exception innerException = new Exception();
+        innerException.setType("java.io.IOException");
+        innerException.setMessage("inner \"quoted\" message\n");
+        Exception exception = new Exception();
+        exception.setType("java.lang.IllegalStateException");
+        exception.setMessage("\u00e9\u20ac");
+        exception.setFrames(singletonList(frame));
+        exception.setInnerExceptions(singletonList(innerException));
+        Thread thread = new Thread();
+        thread.setId(1);
+        thread.setName("main");
+        thread.setFrames(asList(frame, frame));
+        ManagedErrorLog errorLog = new ManagedErrorLog();
+        errorLog.setTimestamp(new Date());
+        errorLog.setSid(UUID.randomUUID());
+        errorLog.setDevice(device);
+        errorLog.setId(UUID.randomUUID());
+        errorLog.setProcessId(123);
+        errorLog.setProcessName("com.contoso");
+        errorLog.setErrorThreadId(1L);
+        errorLog.setErrorThreadName("main");
+        errorLog.setFatal(true);
+        errorLog.setAppLaunchTimestamp(new Date());
+        errorLog.setArchitecture("arm64");
+        errorLog.setException(exception);
+        errorLog.setThreads(singletonList(thread));
+        return errorLog;
+    }
+
+    @Test
+    public void streamingMatchesTreeParsing() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(ManagedErrorLog.TYPE, ManagedErrorLogFactory.getInstance());
+        ManagedErrorLog errorLog = generateManagedErrorLog();
+        String payload = serializer.serializeLog(errorLog);
+        ManagedErrorLog treeLog = new ManagedErrorLog();
+        treeLog.read(new JSONObject(payload));
+        checkEquals(errorLog, treeLog);
+        checkEquals(treeLog, serializer.deserializeLog(payload, null));
+        checkEquals(treeLog, serializer.deserializeLog(payload, ManagedErrorLog.TYPE));
+
+        /* Unknown fields are skipped. */
+        JSONObject json = new JSONObject(payload);
+        json.put("unknown", new JSONObject().put("nested", new JSONArray().put(1)));
+        checkEquals(treeLog, serializer.deserializeLog(json.toString(), ManagedErrorLog.TYPE));
+
+        /* Type not being the first field falls back to tree parsing. */
+        String typeLast = "{" + payload.substring(payload.indexOf(',') + 1, payload.length() - 1) + ",\"type\":\"" + ManagedErrorLog.TYPE + "\"}";
+        checkEquals(treeLog, serializer.deserializeLog(typeLast, null));
+    }
+
+    @Test
+    public void streamingValidatesFields() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(ManagedErrorLog.TYPE, ManagedErrorLogFactory.getInstance());
+        serializer.addLogFactory(HandledErrorLog.TYPE, HandledErrorLogFactory.getInstance());
+        JSONObject json = new JSONObject(serializer.serializeLog(generateManagedErrorLog()));
+        for (String invalid : new String[]{
+                json.toString().replace(json.getString("id"), "not an id"),
+                json.toString().replace("\"processId\":123", "\"processId\":\"a\""),
+                json.toString().substring(1),
+                json.toString().replace("\"sdkName\"", "\"_sdkName\"")
+        }) {
+            try {
+                serializer.deserializeLog(invalid, ManagedErrorLog.TYPE);
+                fail("Expected JSON exception for " + invalid);
+            } catch (JSONException ignored) {
+            }
+        }
+        try {
+            serializer.deserializeLog(json.toString(), HandledErrorLog.TYPE);
+            fail("Expected invalid type");
+        } catch (JSONException e) {
+            assertEquals("Invalid type", e.getMessage());
+        }
+        json.remove("id");
+        try {
+            serializer.deserializeLog(json.toString(), ManagedErrorLog.TYPE);
+            fail("Expected missing id");
+        } catch (JSONException e) {
+            assertEquals("Missing id", e.getMessage());
+        }
+    }
+
     private static class MockErrorLog extends AbstractErrorLog {
 
         @Override
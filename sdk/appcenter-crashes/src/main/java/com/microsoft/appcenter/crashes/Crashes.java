@@ -22,9 +22,11 @@ import com.microsoft.appcenter.crashes.model.NativeException;
 import com.microsoft.appcenter.crashes.model.TestCrashException;
 import com.microsoft.appcenter.crashes.utils.ErrorLogHelper;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
 import com.microsoft.appcenter.utils.HandlerUtils;
@@ -397,16 +399,24 @@ public class Crashes extends AbstractAppCenterService {
         return 1;
     }
 
+    @Override
+    protected GroupQuota getGroupQuota() {
+
+        /* Crash reports are kept as long as possible when storage is full. */
+        return new GroupQuota(GroupQuota.PRIORITY_HIGH, 0, 0);
+    }
+
     @Override
     protected Channel.GroupListener getChannelListener() {
         return new Channel.GroupListener() {
 
             /** Process callback (template method) */
-            private void processCallback(final Log log, final CallbackProcessor callbackProcessor) {
+            private void processCallback(final Log serializedLog, final CallbackProcessor callbackProcessor) {
                 post(new Runnable() {
 
                     @Override
                     public void run() {
+                        Log log = SerializedLog.getModel(serializedLog);
                         if (log instanceof ManagedErrorLog) {
                             ManagedErrorLog errorLog = (ManagedErrorLog) log;
                             final ErrorReport report = buildErrorReport(errorLog);
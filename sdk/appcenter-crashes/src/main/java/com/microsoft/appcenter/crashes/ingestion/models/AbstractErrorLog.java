@@ -1,5 +1,8 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
@@ -8,6 +11,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.UUID;
 
@@ -283,6 +287,63 @@ public abstract class AbstractErrorLog extends AbstractLog {
         setArchitecture(object.optString(ARCHITECTURE, null));
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case PROCESS_ID:
+                setProcessId(JSONUtils.readInteger(reader));
+                return true;
+
+            case PROCESS_NAME:
+                setProcessName(JSONUtils.readString(reader));
+                return true;
+
+            case PARENT_PROCESS_ID:
+                setParentProcessId(JSONUtils.readInteger(reader));
+                return true;
+
+            case PARENT_PROCESS_NAME:
+                setParentProcessName(JSONUtils.readString(reader));
+                return true;
+
+            case ERROR_THREAD_ID:
+                setErrorThreadId(JSONUtils.readLong(reader));
+                return true;
+
+            case ERROR_THREAD_NAME:
+                setErrorThreadName(JSONUtils.readString(reader));
+                return true;
+
+            case FATAL:
+                setFatal(JSONUtils.readBoolean(reader));
+                return true;
+
+            case APP_LAUNCH_TIMESTAMP:
+                setAppLaunchTimestamp(JSONDateUtils.toDate(reader.nextString()));
+                return true;
+
+            case ARCHITECTURE:
+                setArchitecture(JSONUtils.readString(reader));
+                return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void validate() throws JSONException {
+        super.validate();
+        if (getId() == null) {
+            throw new JSONException("Missing " + ID);
+        }
+        if (getAppLaunchTimestamp() == null) {
+            throw new JSONException("Missing " + APP_LAUNCH_TIMESTAMP);
+        }
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -1,14 +1,18 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.ExceptionFactory;
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
-import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -17,7 +21,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPE;
 /**
  * The Exception model.
  */
-public class Exception implements Model {
+public class Exception implements StreamingModel {
 
     private static final String MESSAGE = "message";
 
@@ -177,6 +181,40 @@ public class Exception implements Model {
         setWrapperSdkName(object.optString(WRAPPER_SDK_NAME, null));
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case TYPE:
+                setType(JSONUtils.readString(reader));
+                return true;
+
+            case MESSAGE:
+                setMessage(JSONUtils.readString(reader));
+                return true;
+
+            case STACK_TRACE:
+                setStackTrace(JSONUtils.readString(reader));
+                return true;
+
+            case FRAMES:
+                setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+                return true;
+
+            case INNER_EXCEPTIONS:
+                setInnerExceptions(JSONUtils.readArray(reader, ExceptionFactory.getInstance()));
+                return true;
+
+            case WRAPPER_SDK_NAME:
+                setWrapperSdkName(JSONUtils.readString(reader));
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void validate() throws JSONException {
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, TYPE, getType());
@@ -1,11 +1,17 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
@@ -13,7 +19,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
 /**
  * Handled Error log for managed platforms (such as Xamarin, Unity, Android Dalvik/ART).
  */
-public class HandledErrorLog extends LogWithProperties {
+public class HandledErrorLog extends LogWithProperties implements StreamingModel {
 
     /**
      * Log type.
@@ -89,6 +95,30 @@ public class HandledErrorLog extends LogWithProperties {
         }
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case EXCEPTION:
+                Exception exception = new Exception();
+                JSONUtils.readObject(reader, exception);
+                setException(exception);
+                return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void validate() throws JSONException {
+        super.validate();
+        if (getId() == null) {
+            throw new JSONException("Missing " + ID);
+        }
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -1,18 +1,23 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.ThreadFactory;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
  * Error log for managed platforms (such as Android Dalvik).
  */
-public class ManagedErrorLog extends AbstractErrorLog {
+public class ManagedErrorLog extends AbstractErrorLog implements StreamingModel {
 
     /**
      * Log type.
@@ -86,6 +91,22 @@ public class ManagedErrorLog extends AbstractErrorLog {
         setThreads(JSONUtils.readArray(object, THREADS, ThreadFactory.getInstance()));
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case EXCEPTION:
+                Exception exception = new Exception();
+                JSONUtils.readObject(reader, exception);
+                setException(exception);
+                return true;
+
+            case THREADS:
+                setThreads(JSONUtils.readArray(reader, ThreadFactory.getInstance()));
+                return true;
+        }
+        return super.readField(name, reader);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -1,13 +1,17 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
-import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -17,7 +21,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.NAME;
 /**
  * The Thread model.
  */
-public class Thread implements Model {
+public class Thread implements StreamingModel {
 
     /**
      * Thread identifier.
@@ -95,6 +99,28 @@ public class Thread implements Model {
         setFrames(JSONUtils.readArray(object, FRAMES, StackFrameFactory.getInstance()));
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(reader.nextLong());
+                return true;
+
+            case NAME:
+                setName(JSONUtils.readString(reader));
+                return true;
+
+            case FRAMES:
+                setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void validate() throws JSONException {
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, ID, getId());
@@ -4,14 +4,18 @@ import com.microsoft.appcenter.AndroidTestUtils;
 import com.microsoft.appcenter.ingestion.models.CustomPropertiesLog;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.utils.UUIDUtils;
 
 import junit.framework.Assert;
 
 import org.json.JSONException;
+import org.json.JSONStringer;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -51,6 +55,48 @@ public class LogSerializerAndroidTest {
         Assert.assertEquals(expectedContainer.hashCode(), actualContainer.hashCode());
     }
 
+    @Test
+    public void serializedLogs() throws JSONException {
+        LogContainer expectedContainer = AndroidTestUtils.generateMockLogContainer();
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+
+        /* Splice already serialized logs in the container. */
+        List<Log> serializedLogs = new ArrayList<>();
+        for (Log log : expectedContainer.getLogs()) {
+            serializedLogs.add(new SerializedLog(log.getType(), serializer.serializeLog(log)));
+        }
+        LogContainer serializedContainer = new LogContainer();
+        serializedContainer.setLogs(serializedLogs);
+        String payload = serializer.serializeContainer(serializedContainer);
+        android.util.Log.v(TAG, payload);
+        LogContainer actualContainer = serializer.deserializeContainer(payload, null);
+        Assert.assertEquals(expectedContainer, actualContainer);
+    }
+
+    @Test
+    public void writeContainerToStream() throws JSONException, IOException {
+        LogContainer expectedContainer = AndroidTestUtils.generateMockLogContainer();
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeContainer(expectedContainer, out);
+        String payload = out.toString("UTF-8");
+        android.util.Log.v(TAG, payload);
+        LogContainer actualContainer = serializer.deserializeContainer(payload, null);
+        Assert.assertEquals(expectedContainer, actualContainer);
+    }
+
+    @Test
+    public void sameOutputAsPlatformStringer() throws JSONException {
+        MockLog log = AndroidTestUtils.generateMockLog();
+        JSONStringer expected = new JSONStringer();
+        expected.object();
+        log.write(expected);
+        expected.endObject();
+        Assert.assertEquals(expected.toString(), new DefaultLogSerializer().serializeLog(log));
+    }
+
     @Test(expected = JSONException.class)
     public void deserializeUnknownType() throws JSONException {
         MockLog log = AndroidTestUtils.generateMockLog();
@@ -33,6 +33,8 @@ import org.junit.runner.RunWith;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -51,7 +53,10 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @SuppressWarnings("TryFinallyCanBeTryWithResources")
 @MediumTest
@@ -164,20 +169,16 @@ public class DatabasePersistenceAndroidTest {
             assertEquals(log, outputLogs.get(0));
             assertEquals(1, persistence.countLogs("test-p1"));
 
-            /* Verify large file. */
-            File file = persistence.getLargePayloadFile(persistence.getLargePayloadGroupDirectory("test-p1"), id);
-            assertNotNull(file);
-            String fileLog = StorageHelper.InternalStorage.read(file);
-            assertNotNull(fileLog);
-            assertTrue(fileLog.length() >= size);
+            /* Verify segment file. */
+            File file = getSegmentFile(persistence, id);
+            assertTrue(file.length() >= size);
 
             /* Delete entire group. */
             persistence.deleteLogs("test-p1");
             assertEquals(0, persistence.countLogs("test-p1"));
 
-            /* Verify file delete and also parent directory since we used group deletion. */
+            /* Verify unused segment is deleted. */
             assertFalse(file.exists());
-            assertFalse(file.getParentFile().exists());
         } finally {
 
             /* Close. */
@@ -257,12 +258,9 @@ public class DatabasePersistenceAndroidTest {
             long id = persistence.putLog("test-p1", log);
             assertEquals(1, persistence.countLogs("test-p1"));
 
-            /* Verify large file. */
-            File file = persistence.getLargePayloadFile(persistence.getLargePayloadGroupDirectory("test-p1"), id);
-            assertNotNull(file);
-            String fileLog = StorageHelper.InternalStorage.read(file);
-            assertNotNull(fileLog);
-            assertTrue(fileLog.length() >= size);
+            /* Verify segment file. */
+            File file = getSegmentFile(persistence, id);
+            assertTrue(file.length() >= size);
 
             /* Delete the file. */
             assertTrue(file.delete());
@@ -316,6 +314,221 @@ public class DatabasePersistenceAndroidTest {
         }
     }
 
+    @Test
+    public void putTooManyLogsEvictsLowPriorityFirst() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext, 2, DatabasePersistence.SCHEMA, 3);
+        persistence.setGroupQuota("test-high", new GroupQuota(GroupQuota.PRIORITY_HIGH, 0, 0));
+        persistence.setGroupQuota("test-low", new GroupQuota(GroupQuota.PRIORITY_LOW, 0, 0));
+        Persistence.EvictionListener evictionListener = mock(Persistence.EvictionListener.class);
+        persistence.setEvictionListener(evictionListener);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Fill persistence with logs of both priorities, the oldest being of high priority. */
+            Log highLog1 = AndroidTestUtils.generateMockLog();
+            Log highLog2 = AndroidTestUtils.generateMockLog();
+            Log highLog3 = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-high", highLog1);
+            persistence.putLog("test-low", AndroidTestUtils.generateMockLog());
+            persistence.putLog("test-low", AndroidTestUtils.generateMockLog());
+
+            /* Low priority logs are evicted first. */
+            persistence.putLog("test-high", highLog2);
+            persistence.putLog("test-high", highLog3);
+            assertEquals(0, persistence.countLogs("test-low"));
+            verify(evictionListener, times(2)).onLogsEvicted("test-low", 1);
+
+            /* Then the oldest high priority logs. */
+            Log highLog4 = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-high", highLog4);
+            verify(evictionListener).onLogsEvicted("test-high", 1);
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-high", 4, outputLogs);
+            assertEquals(3, outputLogs.size());
+            assertEquals(highLog2, outputLogs.get(0));
+            assertEquals(highLog3, outputLogs.get(1));
+            assertEquals(highLog4, outputLogs.get(2));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogsOverGroupQuota() throws PersistenceException {
+
+        /* Initialize database persistence with a group limited to 10 logs. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext, 2, DatabasePersistence.SCHEMA, Persistence.DEFAULT_CAPACITY);
+        persistence.setGroupQuota("test-p1", new GroupQuota(GroupQuota.PRIORITY_NORMAL, 10, 0));
+        Persistence.EvictionListener evictionListener = mock(Persistence.EvictionListener.class);
+        persistence.setEvictionListener(evictionListener);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Going over the quota evicts the excess and a tenth of the quota at once. */
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 11; i++) {
+                logs.add(AndroidTestUtils.generateMockLog());
+            }
+            persistence.putLogs("test-p1", logs);
+            assertEquals(9, persistence.countLogs("test-p1"));
+            verify(evictionListener).onLogsEvicted("test-p1", 2);
+
+            /* Other groups are not affected. */
+            for (int i = 0; i < 11; i++) {
+                persistence.putLog("test-p2", AndroidTestUtils.generateMockLog());
+            }
+            assertEquals(11, persistence.countLogs("test-p2"));
+
+            /* Usage is tracked incrementally. */
+            persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            assertEquals(10, persistence.countLogs("test-p1"));
+            persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            assertEquals(9, persistence.countLogs("test-p1"));
+            verify(evictionListener, times(2)).onLogsEvicted("test-p1", 2);
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void evictLogsBeingSent() throws PersistenceException {
+
+        /* Initialize database persistence with a group limited to 10 logs. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext, 2, DatabasePersistence.SCHEMA, Persistence.DEFAULT_CAPACITY);
+        persistence.setGroupQuota("test-p1", new GroupQuota(GroupQuota.PRIORITY_NORMAL, 10, 0));
+        Persistence.EvictionListener evictionListener = mock(Persistence.EvictionListener.class);
+        persistence.setEvictionListener(evictionListener);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Fill the quota and send the oldest log. */
+            for (int i = 0; i < 10; i++) {
+                persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            }
+            String id = persistence.getLogs("test-p1", 1, new ArrayList<Log>());
+            assertNotNull(id);
+
+            /* Both oldest logs are evicted but only the one not being sent is reported. */
+            persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            assertEquals(9, persistence.countLogs("test-p1"));
+            verify(evictionListener).onLogsEvicted("test-p1", 1);
+
+            /* Deleting the batch afterwards does not delete anything else. */
+            persistence.deleteLogs("test-p1", id);
+            assertEquals(9, persistence.countLogs("test-p1"));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void getLogsWithinByteBudget() throws PersistenceException, JSONException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist logs. */
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                logs.add(log);
+                persistence.putLog("test-p1", log);
+            }
+
+            /* Batches stop before going over the budget. */
+            long maxBytes = logSerializer.serializeLog(logs.get(0)).getBytes().length + logSerializer.serializeLog(logs.get(1)).getBytes().length;
+            persistence.setMaxBatchBytes("test-p1", maxBytes);
+            List<Log> outputLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 5, outputLogs));
+            assertEquals(logs.subList(0, 2), outputLogs);
+
+            /* A log larger than the budget is still returned alone. */
+            persistence.setMaxBatchBytes("test-p1", 1);
+            outputLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 5, outputLogs));
+            assertEquals(logs.subList(2, 3), outputLogs);
+
+            /* Without limit. */
+            persistence.setMaxBatchBytes("test-p1", 0);
+            outputLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 5, outputLogs));
+            assertEquals(logs.subList(3, 5), outputLogs);
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogsWithSerializationExecutor() throws JSONException {
+
+        /* Initialize database persistence serializing on 2 threads. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        SerializationExecutor executor = new SerializationExecutor(2);
+        persistence.setSerializationExecutor(executor);
+
+        /* Set a log serializer failing for one log. */
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            logs.add(AndroidTestUtils.generateMockLog());
+        }
+        LogSerializer logSerializer = spy(new DefaultLogSerializer());
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        doThrow(new JSONException("JSON exception")).when(logSerializer).serializeLog(same(logs.get(5)), anyString(), any(StringBuilder.class));
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Logs are stored in order, without the one that failed. */
+            assertEquals(19, persistence.putLogs("test-p1", logs).size());
+            List<Log> outputLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 20, outputLogs));
+            List<Log> expectedLogs = new ArrayList<>(logs);
+            expectedLogs.remove(5);
+            assertEquals(expectedLogs, outputLogs);
+
+            /* Logs are serialized on the writing thread once the executor is shut down. */
+            executor.shutdown();
+            persistence.putLogs("test-p2", logs.subList(0, 3));
+            assertEquals(3, persistence.countLogs("test-p2"));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            persistence.close();
+        }
+    }
+
     @Test(expected = PersistenceException.class)
     public void putLogException() throws PersistenceException, JSONException {
 
@@ -324,7 +537,7 @@ public class DatabasePersistenceAndroidTest {
 
         /* Set a mock log serializer. */
         LogSerializer logSerializer = mock(LogSerializer.class);
-        doThrow(new JSONException("JSON exception")).when(logSerializer).serializeLog(any(Log.class));
+        doThrow(new JSONException("JSON exception")).when(logSerializer).serializeLog(any(Log.class), anyString(), any(StringBuilder.class));
         persistence.setLogSerializer(logSerializer);
         try {
 
@@ -610,6 +823,12 @@ public class DatabasePersistenceAndroidTest {
         ContentValues oldSchema = new ContentValues(DatabasePersistence.SCHEMA);
         oldSchema.remove(DatabasePersistence.COLUMN_TARGET_TOKEN);
         oldSchema.remove(DatabasePersistence.COLUMN_DATA_TYPE);
+        oldSchema.remove(DatabasePersistence.COLUMN_PRIORITY);
+        oldSchema.remove(DatabasePersistence.COLUMN_SIZE);
+        oldSchema.remove(DatabasePersistence.COLUMN_TARGET_TOKEN_ID);
+        oldSchema.remove(DatabasePersistence.COLUMN_DEVICE_ID);
+        oldSchema.remove(DatabasePersistence.COLUMN_PAYLOAD_SEGMENT);
+        oldSchema.remove(DatabasePersistence.COLUMN_PAYLOAD_OFFSET);
         StorageHelper.DatabaseStorage databaseStorage = StorageHelper.DatabaseStorage.getDatabaseStorage(DatabasePersistence.DATABASE, DatabasePersistence.TABLE, 1, oldSchema, new DatabaseManager.Listener() {
 
             @Override
@@ -663,6 +882,11 @@ public class DatabasePersistenceAndroidTest {
             assertEquals(1, outputLogs.size());
             assertEquals(oldLog, outputLogs.get(0));
 
+            /* Old data has the default priority, not a null one evicted first. */
+            ContentValues oldValues = persistence.mDatabaseStorage.get(DatabasePersistence.COLUMN_GROUP, "test");
+            assertNotNull(oldValues);
+            assertEquals(Integer.valueOf(GroupQuota.PRIORITY_NORMAL), oldValues.getAsInteger(DatabasePersistence.COLUMN_PRIORITY));
+
             /* Put new data with token. */
             persistence.putLog("test/one", commonSchemaLog);
         } finally {
@@ -683,10 +907,14 @@ public class DatabasePersistenceAndroidTest {
             assertEquals(1, outputLogs.size());
             assertEquals(commonSchemaLog, outputLogs.get(0));
 
-            /* Verify target token is encrypted. */
+            /* Verify target token is encrypted in its own table and referenced by the log. */
             ContentValues values = persistence.mDatabaseStorage.get(DatabasePersistence.COLUMN_GROUP, "test/one");
-            String token = values.getAsString(DatabasePersistence.COLUMN_TARGET_TOKEN);
-            assertNotNull(token);
+            assertNull(values.getAsString(DatabasePersistence.COLUMN_TARGET_TOKEN));
+            Long targetTokenId = values.getAsLong(DatabasePersistence.COLUMN_TARGET_TOKEN_ID);
+            assertNotNull(targetTokenId);
+            ContentValues tokenValues = getTargetToken(persistence, targetTokenId);
+            assertNotNull(tokenValues);
+            String token = tokenValues.getAsString(DatabasePersistence.COLUMN_TOKEN);
             assertNotEquals("test-guid", token);
             assertEquals("test-guid", CryptoUtils.getInstance(sContext).decrypt(token, false).getDecryptedData());
         } finally {
@@ -695,4 +923,207 @@ public class DatabasePersistenceAndroidTest {
             persistence.close();
         }
     }
+
+    @Test
+    public void targetTokenEncryptedOnce() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MockCommonSchemaLog.TYPE, new MockCommonSchemaLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Store logs with 2 distinct tokens. */
+            for (int i = 0; i < 3; i++) {
+                persistence.putLog("test", generateCommonSchemaLog("token-one"));
+                persistence.putLog("test", generateCommonSchemaLog("token-two"));
+            }
+
+            /* Each token is stored once. */
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.TARGET_TOKEN_TABLE, DatabasePersistence.TARGET_TOKEN_SCHEMA).size());
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+
+        /* Tokens are restored after restart and not stored again. */
+        persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        try {
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test", 6, outputLogs);
+            assertEquals(6, outputLogs.size());
+            for (int i = 0; i < 6; i++) {
+                String expectedToken = i % 2 == 0 ? "token-one" : "token-two";
+                assertEquals(Collections.singleton(expectedToken), outputLogs.get(i).getTransmissionTargetTokens());
+            }
+            persistence.putLog("test", generateCommonSchemaLog("token-one"));
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.TARGET_TOKEN_TABLE, DatabasePersistence.TARGET_TOKEN_SCHEMA).size());
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void deviceStoredOnce() throws PersistenceException, JSONException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        List<Log> logs = new ArrayList<>();
+        try {
+
+            /* Store logs with 2 distinct devices. */
+            Log otherLog = AndroidTestUtils.generateMockLog();
+            for (int i = 0; i < 3; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                log.setDevice(otherLog.getDevice());
+                logs.add(log);
+            }
+            logs.add(otherLog);
+            Log firstLog = AndroidTestUtils.generateMockLog();
+            logs.add(0, firstLog);
+            for (Log log : logs) {
+                persistence.putLog("test", log);
+            }
+
+            /* Each device is stored once and removed from the stored logs. */
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.DEVICE_TABLE, DatabasePersistence.DEVICE_SCHEMA).size());
+            DatabaseScanner scanner = persistence.mDatabaseStorage.getScanner(DatabasePersistence.COLUMN_GROUP, "test");
+            for (ContentValues values : scanner) {
+                assertNotNull(values.getAsLong(DatabasePersistence.COLUMN_DEVICE_ID));
+                assertFalse(values.getAsString(DatabasePersistence.COLUMN_LOG).contains("\"device\""));
+            }
+            scanner.close();
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+
+        /* Devices are restored after restart and not stored again. */
+        persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        try {
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test", 10, outputLogs);
+            assertEquals(logs, outputLogs);
+            persistence.putLog("test", logs.get(1));
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.DEVICE_TABLE, DatabasePersistence.DEVICE_SCHEMA).size());
+
+            /* Raw payloads get their device back too. */
+            persistence.clearPendingLogState();
+            persistence.setRawPayload("test", true);
+            outputLogs.clear();
+            persistence.getLogs("test", 10, outputLogs);
+            assertEquals(logs.size() + 1, outputLogs.size());
+            for (int i = 0; i < logs.size(); i++) {
+                String payload = logSerializer.serializeLog(outputLogs.get(i));
+                assertEquals(logs.get(i), logSerializer.deserializeLog(payload, MOCK_LOG_TYPE));
+            }
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void unusedDevicesDeleted() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        Log lastLog = AndroidTestUtils.generateMockLog();
+        try {
+
+            /* Store logs with 2 distinct devices then delete the log using the first one. */
+            persistence.putLog("test", AndroidTestUtils.generateMockLog());
+            Log secondLog = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test", secondLog);
+            String id = persistence.getLogs("test", 1, new ArrayList<Log>());
+            persistence.deleteLogs("test", id);
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.DEVICE_TABLE, DatabasePersistence.DEVICE_SCHEMA).size());
+
+            /* Storing a new device deletes the unused one. */
+            persistence.putLog("test", lastLog);
+            assertEquals(2, persistence.mDatabaseStorage.getAll(DatabasePersistence.DEVICE_TABLE, DatabasePersistence.DEVICE_SCHEMA).size());
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.clearPendingLogState();
+            persistence.getLogs("test", 10, outputLogs);
+            assertEquals(Arrays.asList(secondLog, lastLog), outputLogs);
+
+            /* Delete the log using the second device. */
+            persistence.clearPendingLogState();
+            outputLogs.clear();
+            id = persistence.getLogs("test", 1, outputLogs);
+            assertEquals(Collections.singletonList(secondLog), outputLogs);
+            persistence.deleteLogs("test", id);
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+
+        /* Unused devices are deleted after restart. */
+        persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        try {
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test", 10, outputLogs);
+            assertEquals(Collections.singletonList(lastLog), outputLogs);
+            assertEquals(1, persistence.mDatabaseStorage.getAll(DatabasePersistence.DEVICE_TABLE, DatabasePersistence.DEVICE_SCHEMA).size());
+        } finally {
+
+            /* Close. */
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void restoreDevice() throws JSONException {
+        assertEquals("{\"device\":{\"id\":1}}", DatabasePersistence.restoreDevice("{}", "{\"id\":1}"));
+        assertEquals("{\"type\":\"a\",\"device\":{\"id\":1}}", DatabasePersistence.restoreDevice(" {\"type\":\"a\"} ", "{\"id\":1}"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void restoreDeviceInArray() throws JSONException {
+        DatabasePersistence.restoreDevice("[]", "{}");
+    }
+
+    private static MockCommonSchemaLog generateCommonSchemaLog(String targetToken) {
+        MockCommonSchemaLog log = new MockCommonSchemaLog();
+        log.setName("test");
+        log.setIKey("o:test");
+        log.setTimestamp(new Date());
+        log.setVer("3.0");
+        log.addTransmissionTarget(targetToken);
+        return log;
+    }
+
+    private static File getSegmentFile(DatabasePersistence persistence, long databaseId) {
+        ContentValues values = persistence.mDatabaseStorage.get(databaseId);
+        assertNotNull(values);
+        assertNull(values.getAsString(DatabasePersistence.COLUMN_LOG));
+        Long segment = values.getAsLong(DatabasePersistence.COLUMN_PAYLOAD_SEGMENT);
+        assertNotNull(segment);
+        return persistence.mLargePayloadStore.getSegmentFile(segment);
+    }
+
+    private static ContentValues getTargetToken(DatabasePersistence persistence, long targetTokenId) {
+        for (ContentValues values : persistence.mDatabaseStorage.getAll(DatabasePersistence.TARGET_TOKEN_TABLE, DatabasePersistence.TARGET_TOKEN_SCHEMA)) {
+            if (values.getAsLong(DatabaseManager.PRIMARY_KEY) == targetTokenId) {
+                return values;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,326 @@
+package com.microsoft.appcenter.persistence;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.appcenter.AndroidTestUtils;
+import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.MockLogFactory;
+import com.microsoft.appcenter.persistence.Persistence.PersistenceException;
+import com.microsoft.appcenter.utils.storage.StorageHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.microsoft.appcenter.ingestion.models.json.MockLog.MOCK_LOG_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("TryFinallyCanBeTryWithResources")
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class FilePersistenceAndroidTest {
+
+    /**
+     * Context instance.
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static Context sContext;
+
+    /**
+     * Directory of group directories.
+     */
+    private static File sDirectory;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sContext = InstrumentationRegistry.getTargetContext();
+        StorageHelper.initialize(sContext);
+        Constants.loadFromContext(sContext);
+        sDirectory = new File(sContext.getCacheDir(), "test-file-persistence");
+    }
+
+    @Before
+    @After
+    public void cleanUp() {
+        deleteRecursively(sDirectory);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static FilePersistence createPersistence(long segmentMaxSize, int capacity) {
+        FilePersistence persistence = new FilePersistence(sContext, sDirectory, segmentMaxSize, capacity);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        return persistence;
+    }
+
+    private static int countSegments(String group) {
+        File[] files = new File(sDirectory, group).listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    @Test
+    public void putGetDeleteInOrder() throws PersistenceException {
+        FilePersistence persistence = createPersistence(1024, 100);
+        try {
+            List<Log> expectedLogs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                expectedLogs.add(log);
+                persistence.putLog("test-p1", log);
+            }
+            assertEquals(10, persistence.countLogs("test-p1"));
+            assertEquals(0, persistence.countLogs("test-p2"));
+
+            /* Small segments were rotated. */
+            assertTrue(countSegments("test-p1") > 1);
+
+            /* Batches are returned in order and not returned again while pending. */
+            List<Log> outLogs = new ArrayList<>();
+            String id1 = persistence.getLogs("test-p1", 4, outLogs);
+            assertNotNull(id1);
+            String id2 = persistence.getLogs("test-p1", 10, outLogs);
+            assertNotNull(id2);
+            assertEquals(expectedLogs, outLogs);
+            assertNull(persistence.getLogs("test-p1", 10, new ArrayList<Log>()));
+            assertEquals(10, persistence.countLogs("test-p1"));
+
+            /* Acknowledged segments are deleted. */
+            persistence.deleteLogs("test-p1", id1);
+            assertEquals(6, persistence.countLogs("test-p1"));
+            persistence.deleteLogs("test-p1", id2);
+            assertEquals(0, persistence.countLogs("test-p1"));
+            assertEquals(0, countSegments("test-p1"));
+
+            /* Appending continues after all segments were deleted. */
+            Log log = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-p1", log);
+            outLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 10, outLogs));
+            assertEquals(1, outLogs.size());
+            assertEquals(log, outLogs.get(0));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogsAndReload() throws PersistenceException {
+        FilePersistence persistence = createPersistence(1024, 100);
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            logs.add(AndroidTestUtils.generateMockLog());
+        }
+        try {
+            assertEquals(6, persistence.putLogs("test-p1", logs).size());
+
+            /* Acknowledge the first 2 logs only. */
+            List<Log> outLogs = new ArrayList<>();
+            String id = persistence.getLogs("test-p1", 2, outLogs);
+            persistence.deleteLogs("test-p1", id);
+            assertNotNull(persistence.getLogs("test-p1", 2, outLogs));
+        } finally {
+            persistence.close();
+        }
+
+        /* Deletions persist across instances, logs that were pending are read again. */
+        persistence = createPersistence(1024, 100);
+        try {
+            assertEquals(4, persistence.countLogs("test-p1"));
+            List<Log> outLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 10, outLogs));
+            assertEquals(logs.subList(2, 6), outLogs);
+
+            /* Clearing pending state rewinds the cursor. */
+            persistence.clearPendingLogState();
+            outLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 10, outLogs));
+            assertEquals(logs.subList(2, 6), outLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void truncatedAndCorruptedRecords() throws PersistenceException, IOException {
+        FilePersistence persistence = createPersistence(64 * 1024, 100);
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            logs.add(AndroidTestUtils.generateMockLog());
+        }
+        List<Long> positions;
+        try {
+            positions = persistence.putLogs("test-p1", logs);
+        } finally {
+            persistence.close();
+        }
+        File segmentFile = new File(new File(sDirectory, "test-p1"), "0.segment");
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+        try {
+
+            /* Corrupt the body of the second record and simulate an interrupted write of the third. */
+            file.seek(positions.get(1) + FilePersistence.HEADER_SIZE);
+            file.write(~file.readByte());
+            file.setLength(positions.get(2) + 3);
+        } finally {
+            file.close();
+        }
+        persistence = createPersistence(64 * 1024, 100);
+        try {
+            assertEquals(2, persistence.countLogs("test-p1"));
+            assertEquals(positions.get(2).longValue(), segmentFile.length());
+            List<Log> outLogs = new ArrayList<>();
+            String id = persistence.getLogs("test-p1", 10, outLogs);
+            assertEquals(1, outLogs.size());
+            assertEquals(logs.get(0), outLogs.get(0));
+
+            /* The corrupted record was deleted. */
+            assertEquals(1, persistence.countLogs("test-p1"));
+            persistence.deleteLogs("test-p1", id);
+            assertEquals(0, persistence.countLogs("test-p1"));
+            assertFalse(segmentFile.exists());
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void evictOverCapacity() throws PersistenceException {
+        FilePersistence persistence = createPersistence(1024, 10);
+        Persistence.EvictionListener listener = mock(Persistence.EvictionListener.class);
+        persistence.setEvictionListener(listener);
+        try {
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 11; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                logs.add(log);
+                persistence.putLog("test-p1", log);
+            }
+
+            /* The excess and a tenth of the capacity were evicted, oldest first. */
+            assertEquals(9, persistence.countLogs("test-p1"));
+            verify(listener).onLogsEvicted("test-p1", 2);
+            List<Log> outLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 20, outLogs));
+            assertEquals(logs.subList(2, 11), outLogs);
+
+            /* Deleting the group removes its files. */
+            persistence.deleteLogs("test-p1");
+            assertEquals(0, persistence.countLogs("test-p1"));
+            assertFalse(new File(sDirectory, "test-p1").exists());
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void evictLogsBeingSent() throws PersistenceException {
+        FilePersistence persistence = createPersistence(1024, 10);
+        Persistence.EvictionListener listener = mock(Persistence.EvictionListener.class);
+        persistence.setEvictionListener(listener);
+        try {
+
+            /* Fill the capacity and send the oldest log. */
+            for (int i = 0; i < 10; i++) {
+                persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            }
+            String id = persistence.getLogs("test-p1", 1, new ArrayList<Log>());
+            assertNotNull(id);
+
+            /* Both oldest logs are evicted but only the one not being sent is reported. */
+            persistence.putLog("test-p1", AndroidTestUtils.generateMockLog());
+            assertEquals(9, persistence.countLogs("test-p1"));
+            verify(listener).onLogsEvicted("test-p1", 1);
+
+            /* Deleting the batch afterwards does not delete anything else. */
+            persistence.deleteLogs("test-p1", id);
+            assertEquals(9, persistence.countLogs("test-p1"));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void groupNamesWithPathSeparator() throws PersistenceException {
+        FilePersistence persistence = createPersistence(1024, 100);
+        Log parentLog = AndroidTestUtils.generateMockLog();
+        List<Log> logs = new ArrayList<>();
+        try {
+            persistence.putLog("x", parentLog);
+            for (int i = 0; i < 3; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                logs.add(log);
+                persistence.putLog("x/one", log);
+            }
+
+            /* Each group has its own flat directory. */
+            assertFalse(new File(new File(sDirectory, "x"), "one").exists());
+            assertEquals(1, persistence.countLogs("x"));
+            assertEquals(3, persistence.countLogs("x/one"));
+        } finally {
+            persistence.close();
+        }
+
+        /* Logs of both groups are read back after reopening, appending does not overwrite them. */
+        persistence = createPersistence(1024, 100);
+        try {
+            assertEquals(1, persistence.countLogs("x"));
+            assertEquals(3, persistence.countLogs("x/one"));
+            Log log = AndroidTestUtils.generateMockLog();
+            persistence.putLog("x/one", log);
+            logs.add(log);
+            List<Log> outLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("x/one", 10, outLogs));
+            assertEquals(logs, outLogs);
+            outLogs.clear();
+            assertNotNull(persistence.getLogs("x", 10, outLogs));
+            assertEquals(Collections.singletonList(parentLog), outLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void directoryNames() {
+        assertEquals("group", FilePersistence.getDirectoryName("group"));
+        assertEquals("group%2Fone", FilePersistence.getDirectoryName("group/one"));
+        for (String group : new String[]{"group", "group/one", "a%2Fb/c%", "%25/%", "/"}) {
+            String directoryName = FilePersistence.getDirectoryName(group);
+            assertFalse(directoryName.contains("/"));
+            assertEquals(group, FilePersistence.getGroupName(directoryName));
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.microsoft.appcenter.utils.storage;
 import android.annotation.SuppressLint;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
@@ -22,6 +24,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -40,6 +43,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 @SuppressWarnings("unused")
 @SmallTest
@@ -132,6 +136,7 @@ public class StorageHelperAndroidTest {
         sContext.deleteDatabase("test-databaseStorageScannerRemove");
         sContext.deleteDatabase("test-databaseStorageScannerNext");
         sContext.deleteDatabase("test-databaseStorageInMemoryDB");
+        sContext.deleteDatabase("test-writeAheadLogging");
     }
 
     private static SharedPreferencesTestData[] generateSharedPreferenceData() throws NoSuchMethodException {
@@ -279,6 +284,21 @@ public class StorageHelperAndroidTest {
         assertEquals(0, databaseStorage.getScanner("COL_STRING", null).getCount());
         assertEquals(2, databaseStorage.getScanner("COL_STRING_NULL", null).getCount());
 
+        /* Scan after an identifier and with a limit. */
+        databaseStorage.createIndex("ix_test_string", "COL_STRING", DatabaseManager.PRIMARY_KEY);
+        DatabaseStorage.DatabaseScanner afterScanner = databaseStorage.getScanner("COL_STRING_NULL", null, value1Id, 0, false);
+        assertEquals(1, afterScanner.getCount());
+        iterator = afterScanner.iterator();
+        assertContentValuesEquals(value2, iterator.next());
+        assertFalse(iterator.hasNext());
+        afterScanner.close();
+        DatabaseStorage.DatabaseScanner limitScanner = databaseStorage.getScanner(null, null, null, 1, false);
+        assertEquals(1, limitScanner.getCount());
+        iterator = limitScanner.iterator();
+        assertContentValuesEquals(value1, iterator.next());
+        assertFalse(iterator.hasNext());
+        limitScanner.close();
+
         /* Update. */
         assertTrue(databaseStorage.update(value1Id, value3));
         ContentValues value3FromDatabase = databaseStorage.get(value1Id);
@@ -726,6 +746,196 @@ public class StorageHelperAndroidTest {
         }
     }
 
+    @Test
+    public void putTooManyLogsInOneTransaction() {
+        Log.i(TAG, "Testing Database Storage Capacity with bulk insert");
+
+        /* Get instance to access database. */
+        final int capacity = 2;
+        DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-putTooManyLogsInOneTransaction", "putTooManyLogsInOneTransaction", 1, mSchema, capacity, new DatabaseManager.Listener() {
+
+            @Override
+            public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                return false;
+            }
+
+            @Override
+            public void onError(String operation, RuntimeException e) {
+                throw e;
+            }
+        });
+
+        //noinspection TryFinallyCanBeTryWithResources (try with resources statement is API >= 19)
+        try {
+            List<ContentValues> values = new ArrayList<>();
+            values.add(generateContentValues());
+            values.add(generateContentValues());
+            values.add(generateContentValues());
+
+            /* Put all values at once. */
+            List<Long> ids = databaseStorage.put(values);
+            assertEquals(3, ids.size());
+            assertTrue(ids.get(0) < ids.get(1));
+            assertTrue(ids.get(1) < ids.get(2));
+
+            /* Oldest entry was purged. */
+            assertEquals(capacity, databaseStorage.size());
+            assertNull(databaseStorage.get(ids.get(0)));
+            assertContentValuesEquals(values.get(2), databaseStorage.get(ids.get(2)));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            databaseStorage.close();
+        }
+    }
+
+    @Test
+    public void putTooManyLogsEvictsBatch() {
+        Log.i(TAG, "Testing Database Storage Capacity batch eviction");
+
+        /* Get instance to access database. */
+        final int capacity = 20;
+        DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-putTooManyLogsEvictsBatch", "putTooManyLogsEvictsBatch", 1, mSchema, capacity, new DatabaseManager.Listener() {
+
+            @Override
+            public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                return false;
+            }
+
+            @Override
+            public void onError(String operation, RuntimeException e) {
+                throw e;
+            }
+        });
+
+        //noinspection TryFinallyCanBeTryWithResources (try with resources statement is API >= 19)
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < capacity; i++) {
+                ids.add(databaseStorage.put(generateContentValues()));
+            }
+            assertEquals(capacity, databaseStorage.size());
+
+            /* Going over capacity evicts the excess and a fraction of the capacity. */
+            long lastId = databaseStorage.put(generateContentValues());
+            int evicted = 1 + capacity / DatabaseManager.EVICTION_BATCH_RATIO;
+            assertEquals(capacity + 1 - evicted, databaseStorage.size());
+            for (int i = 0; i < evicted; i++) {
+                assertNull(databaseStorage.get(ids.get(i)));
+            }
+            assertNotNull(databaseStorage.get(ids.get(evicted)));
+            assertNotNull(databaseStorage.get(lastId));
+
+            /* Count is maintained by deletes. */
+            databaseStorage.delete(lastId);
+            assertEquals(capacity - evicted, databaseStorage.size());
+            databaseStorage.put(generateContentValues());
+            assertEquals(capacity + 1 - evicted, databaseStorage.size());
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            databaseStorage.close();
+        }
+    }
+
+    @Test
+    public void secondaryTable() {
+        Log.i(TAG, "Testing Database Storage secondary table");
+
+        /* Get instance to access database. */
+        DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-secondaryTable", "secondaryTable", 1, mSchema, new DatabaseManager.Listener() {
+
+            @Override
+            public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                return false;
+            }
+
+            @Override
+            public void onError(String operation, RuntimeException e) {
+                throw e;
+            }
+        });
+
+        //noinspection TryFinallyCanBeTryWithResources (try with resources statement is API >= 19)
+        try {
+
+            /* Creating the table twice is not an error. */
+            databaseStorage.createTable("secondaryTable2", mSchema);
+            databaseStorage.createTable("secondaryTable2", mSchema);
+            assertEquals(0, databaseStorage.getAll("secondaryTable2", mSchema).size());
+
+            /* Entries are not mixed with the main table. */
+            ContentValues value = generateContentValues();
+            long id = databaseStorage.put("secondaryTable2", value);
+            assertTrue(id >= 0);
+            assertEquals(0, databaseStorage.size());
+            List<ContentValues> rows = databaseStorage.getAll("secondaryTable2", mSchema);
+            assertEquals(1, rows.size());
+            assertEquals(Long.valueOf(id), rows.get(0).getAsLong(DatabaseManager.PRIMARY_KEY));
+            assertContentValuesEquals(value, rows.get(0));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            databaseStorage.close();
+        }
+    }
+
+    @Test
+    public void writeAheadLogging() {
+        Log.i(TAG, "Testing Database Storage write-ahead logging");
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN);
+
+        /* Get instance to access database. */
+        DatabaseManager databaseManager = new DatabaseManager(sContext, "test-writeAheadLogging", "writeAheadLogging", 1, mSchema, new DatabaseManager.Listener() {
+
+            @Override
+            public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                return false;
+            }
+
+            @Override
+            public void onError(String operation, RuntimeException e) {
+                throw e;
+            }
+        });
+
+        //noinspection TryFinallyCanBeTryWithResources (try with resources statement is API >= 19)
+        try {
+
+            /* Enabling on an open database switches the journal and tunes checkpoints of the write connection. */
+            long id = databaseManager.put(generateContentValues());
+            databaseManager.setWriteAheadLogging(true);
+            SQLiteDatabase database = databaseManager.getDatabase();
+            assertTrue(database.isWriteAheadLoggingEnabled());
+            database.beginTransaction();
+            try {
+                assertEquals(DatabaseManager.WAL_AUTO_CHECKPOINT_PAGES, DatabaseUtils.longForQuery(database, "PRAGMA wal_autocheckpoint", null));
+                assertEquals(DatabaseManager.WAL_SIZE_LIMIT, DatabaseUtils.longForQuery(database, "PRAGMA journal_size_limit", null));
+            } finally {
+                database.endTransaction();
+            }
+            assertNotNull(databaseManager.get(id));
+
+            /* Setting is kept when reopening. */
+            databaseManager.close();
+            assertTrue(databaseManager.getDatabase().isWriteAheadLoggingEnabled());
+            assertEquals(1, databaseManager.getRowCount());
+
+            /* Disable. */
+            databaseManager.setWriteAheadLogging(false);
+            assertFalse(databaseManager.getDatabase().isWriteAheadLoggingEnabled());
+            assertNotNull(databaseManager.get(id));
+        } finally {
+
+            /* Close. */
+            //noinspection ThrowFromFinallyBlock
+            databaseManager.close();
+        }
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void databaseStorageScannerRemove() {
         Log.i(TAG, "Testing Database Storage Exceptions");
@@ -7,6 +7,7 @@ import android.support.annotation.NonNull;
 
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.HandlerUtils;
 import com.microsoft.appcenter.utils.async.AppCenterFuture;
@@ -138,7 +139,7 @@ public abstract class AbstractAppCenterService implements AppCenterService {
 
             /* Register service to channel on enabling. */
             if (enabled) {
-                mChannel.addGroup(groupName, getTriggerCount(), getTriggerInterval(), getTriggerMaxParallelRequests(), null, getChannelListener());
+                mChannel.addGroup(groupName, getTriggerCount(), getTriggerInterval(), getTriggerMaxParallelRequests(), null, getChannelListener(), getGroupQuota());
             }
 
             /* Otherwise, clear all persisted logs and remove a group for the service. */
@@ -189,7 +190,7 @@ public abstract class AbstractAppCenterService implements AppCenterService {
 
             /* Add a group to the channel if the service is enabled */
             if (enabled) {
-                channel.addGroup(groupName, getTriggerCount(), getTriggerInterval(), getTriggerMaxParallelRequests(), null, getChannelListener());
+                channel.addGroup(groupName, getTriggerCount(), getTriggerInterval(), getTriggerMaxParallelRequests(), null, getChannelListener(), getGroupQuota());
             }
 
             /* Otherwise, clear all persisted logs for the service. */
@@ -265,6 +266,16 @@ public abstract class AbstractAppCenterService implements AppCenterService {
         return null;
     }
 
+    /**
+     * Gets the storage quota of the group, used to choose which logs to evict when storage is full.
+     *
+     * @return A storage quota, null for none.
+     */
+    @SuppressWarnings({"WeakerAccess", "SameReturnValue"})
+    protected GroupQuota getGroupQuota() {
+        return null;
+    }
+
     /**
      * Post a command in background.
      *
@@ -121,6 +121,31 @@ public class AppCenter {
      */
     private String mLogUrl;
 
+    /**
+     * Adaptive batching setting if any.
+     */
+    private Boolean mAdaptiveBatching;
+
+    /**
+     * Maximum batch size in bytes if any.
+     */
+    private Long mMaxBatchBytes;
+
+    /**
+     * Ingest queue setting if any.
+     */
+    private Boolean mIngestQueue;
+
+    /**
+     * Number of serialization threads if any.
+     */
+    private Integer mSerializationThreads;
+
+    /**
+     * Write-ahead logging setting if any.
+     */
+    private Boolean mWriteAheadLogging;
+
     /**
      * Application context.
      */
@@ -234,6 +259,56 @@ public class AppCenter {
         getInstance().setInstanceLogUrl(logUrl);
     }
 
+    /**
+     * Enable or disable adaptive batching. When enabled, the number of logs sent together and the time
+     * logs wait before being sent are adjusted to the backlog, the network type and the upload latency.
+     * Disabled by default.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    public static void setAdaptiveBatching(boolean enabled) {
+        getInstance().setInstanceAdaptiveBatching(enabled);
+    }
+
+    /**
+     * Set the maximum size of logs sent in a single request.
+     * A log larger than the limit is still sent, alone in its request.
+     *
+     * @param maxBytes maximum size in bytes, 0 for no limit which is the default.
+     */
+    public static void setMaxBatchBytes(long maxBytes) {
+        getInstance().setInstanceMaxBatchBytes(maxBytes);
+    }
+
+    /**
+     * Enable or disable the ingest queue. When enabled, logs tracked from application threads are queued
+     * without waiting for the SDK and are stored in background. Disabled by default.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    public static void setIngestQueue(boolean enabled) {
+        getInstance().setInstanceIngestQueue(enabled);
+    }
+
+    /**
+     * Set the number of threads serializing logs stored together.
+     *
+     * @param threadCount number of serialization threads, 0 to serialize logs on the SDK background thread which is the default.
+     */
+    public static void setSerializationThreads(int threadCount) {
+        getInstance().setInstanceSerializationThreads(threadCount);
+    }
+
+    /**
+     * Enable or disable write-ahead logging of the log database. When enabled, reading logs to send
+     * and storing new logs do not block each other. Disabled by default.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    public static void setWriteAheadLogging(boolean enabled) {
+        getInstance().setInstanceWriteAheadLogging(enabled);
+    }
+
     /**
      * Get the current version of App Center SDK.
      *
@@ -401,6 +476,100 @@ public class AppCenter {
         }
     }
 
+    /**
+     * {@link #setAdaptiveBatching(boolean)} implementation at instance level.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    private synchronized void setInstanceAdaptiveBatching(final boolean enabled) {
+        mAdaptiveBatching = enabled;
+        postChannelOperation(new Runnable() {
+
+            @Override
+            public void run() {
+                mChannel.setAdaptiveBatching(enabled);
+            }
+        });
+    }
+
+    /**
+     * {@link #setMaxBatchBytes(long)} implementation at instance level.
+     *
+     * @param maxBytes maximum size in bytes.
+     */
+    private synchronized void setInstanceMaxBatchBytes(final long maxBytes) {
+        mMaxBatchBytes = maxBytes;
+        postChannelOperation(new Runnable() {
+
+            @Override
+            public void run() {
+                mChannel.setMaxBatchBytes(maxBytes);
+            }
+        });
+    }
+
+    /**
+     * {@link #setIngestQueue(boolean)} implementation at instance level.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    private synchronized void setInstanceIngestQueue(final boolean enabled) {
+        mIngestQueue = enabled;
+        postChannelOperation(new Runnable() {
+
+            @Override
+            public void run() {
+                mChannel.setIngestQueue(enabled);
+            }
+        });
+    }
+
+    /**
+     * {@link #setSerializationThreads(int)} implementation at instance level.
+     *
+     * @param threadCount number of serialization threads.
+     */
+    private synchronized void setInstanceSerializationThreads(final int threadCount) {
+        mSerializationThreads = threadCount;
+        postChannelOperation(new Runnable() {
+
+            @Override
+            public void run() {
+                mChannel.setSerializationThreads(threadCount);
+            }
+        });
+    }
+
+    /**
+     * {@link #setWriteAheadLogging(boolean)} implementation at instance level.
+     *
+     * @param enabled true to enable, false to disable.
+     */
+    private synchronized void setInstanceWriteAheadLogging(final boolean enabled) {
+        mWriteAheadLogging = enabled;
+        postChannelOperation(new Runnable() {
+
+            @Override
+            public void run() {
+                mChannel.setWriteAheadLogging(enabled);
+            }
+        });
+    }
+
+    /**
+     * Run a channel operation in background if the SDK is already configured,
+     * otherwise the setting is applied when the channel is created.
+     *
+     * @param runnable channel operation.
+     */
+    private synchronized void postChannelOperation(Runnable runnable) {
+        if (mHandler != null) {
+
+            /* Every channel operation must be in background since it uses locks and accesses disks. */
+            mHandler.post(runnable);
+        }
+    }
+
     /**
      * {@link #setCustomProperties(CustomProperties)} implementation at instance level.
      *
@@ -581,6 +750,21 @@ public class AppCenter {
         if (mLogUrl != null) {
             mChannel.setLogUrl(mLogUrl);
         }
+        if (mAdaptiveBatching != null) {
+            mChannel.setAdaptiveBatching(mAdaptiveBatching);
+        }
+        if (mMaxBatchBytes != null) {
+            mChannel.setMaxBatchBytes(mMaxBatchBytes);
+        }
+        if (mIngestQueue != null) {
+            mChannel.setIngestQueue(mIngestQueue);
+        }
+        if (mSerializationThreads != null) {
+            mChannel.setSerializationThreads(mSerializationThreads);
+        }
+        if (mWriteAheadLogging != null) {
+            mChannel.setWriteAheadLogging(mWriteAheadLogging);
+        }
         mChannel.addListener(new OneCollectorChannelListener(mApplication, mChannel, mLogSerializer, IdHelper.getInstallId()));
         if (!enabled) {
             NetworkStateHelper.getSharedInstance(mApplication).close();
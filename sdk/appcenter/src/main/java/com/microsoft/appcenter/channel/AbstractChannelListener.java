@@ -4,6 +4,7 @@ package com.microsoft.appcenter.channel;
 import android.support.annotation.NonNull;
 
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.persistence.GroupQuota;
 
 /**
  * Empty implementation to make callbacks optional.
@@ -11,7 +12,7 @@ import com.microsoft.appcenter.ingestion.models.Log;
 public class AbstractChannelListener implements Channel.Listener {
 
     @Override
-    public void onGroupAdded(@NonNull String groupName) {
+    public void onGroupAdded(@NonNull String groupName, GroupQuota groupQuota) {
     }
 
     @Override
@@ -0,0 +1,128 @@
+package com.microsoft.appcenter.channel;
+
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Adapts the batch size and time interval of a group to its backlog, the network type and the observed upload latency.
+ * The values the group was added with are the baseline:
+ * <ul>
+ * <li>Unless the network is slow, a backlog larger than a batch is drained with larger batches.</li>
+ * <li>On a fast unmetered network, the interval shortens once half a batch is waiting.</li>
+ * <li>On a metered or slow network, the interval is longer to wake up the radio less often.</li>
+ * </ul>
+ */
+class AdaptiveBatchPolicy {
+
+    /**
+     * Maximum factor applied to the baseline batch size.
+     */
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE_FACTOR = 4;
+
+    /**
+     * Factor dividing the baseline interval when half a batch is waiting on a fast network.
+     */
+    @VisibleForTesting
+    static final int SPEED_UP_FACTOR = 4;
+
+    /**
+     * Factor multiplying the baseline interval on a metered or slow network.
+     */
+    @VisibleForTesting
+    static final int BACK_OFF_FACTOR = 2;
+
+    /**
+     * Average upload latency in ms under which the network is considered fast.
+     */
+    @VisibleForTesting
+    static final long FAST_UPLOAD_LATENCY = 1000;
+
+    /**
+     * Average upload latency in ms above which the network is considered slow.
+     */
+    @VisibleForTesting
+    static final long SLOW_UPLOAD_LATENCY = 5000;
+
+    /**
+     * Weight of a new latency sample in the moving average.
+     */
+    private static final double LATENCY_SMOOTHING = 0.25;
+
+    /**
+     * Baseline maximum log count per batch.
+     */
+    private final int mBaseMaxLogsPerBatch;
+
+    /**
+     * Baseline time to wait before 2 batches, in ms.
+     */
+    private final long mBaseBatchTimeInterval;
+
+    /**
+     * Exponential moving average of upload latency in ms, negative until the first upload completes.
+     */
+    private double mAverageLatency = -1;
+
+    /**
+     * Init.
+     *
+     * @param maxLogsPerBatch   baseline maximum log count per batch.
+     * @param batchTimeInterval baseline time to wait before 2 batches, in ms.
+     */
+    AdaptiveBatchPolicy(int maxLogsPerBatch, long batchTimeInterval) {
+        mBaseMaxLogsPerBatch = maxLogsPerBatch;
+        mBaseBatchTimeInterval = batchTimeInterval;
+    }
+
+    /**
+     * Record the latency of a successful upload.
+     *
+     * @param latency time in ms between sending a batch and receiving the response.
+     */
+    void onUploadSucceeded(long latency) {
+        if (mAverageLatency < 0) {
+            mAverageLatency = latency;
+        } else {
+            mAverageLatency += LATENCY_SMOOTHING * (latency - mAverageLatency);
+        }
+    }
+
+    /**
+     * Get the maximum log count of the next batch, sending is triggered by the baseline count.
+     *
+     * @param pendingLogCount number of logs waiting to be sent.
+     * @return maximum log count per batch.
+     */
+    int getMaxLogsPerBatch(int pendingLogCount) {
+        if (isSlow()) {
+            return mBaseMaxLogsPerBatch;
+        }
+        int maxLogsPerBatch = mBaseMaxLogsPerBatch * MAX_BATCH_SIZE_FACTOR;
+        return Math.max(mBaseMaxLogsPerBatch, Math.min(pendingLogCount, maxLogsPerBatch));
+    }
+
+    /**
+     * Get the time to wait before sending the next batch.
+     *
+     * @param pendingLogCount number of logs waiting to be sent.
+     * @param metered         whether the active network is metered.
+     * @return time in ms.
+     */
+    long getBatchTimeInterval(int pendingLogCount, boolean metered) {
+        if (metered || isSlow()) {
+            return mBaseBatchTimeInterval * BACK_OFF_FACTOR;
+        }
+        if (pendingLogCount * 2 >= mBaseMaxLogsPerBatch && isFast()) {
+            return mBaseBatchTimeInterval / SPEED_UP_FACTOR;
+        }
+        return mBaseBatchTimeInterval;
+    }
+
+    private boolean isFast() {
+        return mAverageLatency >= 0 && mAverageLatency < FAST_UPLOAD_LATENCY;
+    }
+
+    private boolean isSlow() {
+        return mAverageLatency > SLOW_UPLOAD_LATENCY;
+    }
+}
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 
 import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.persistence.GroupQuota;
 
 /**
  * The interface for Channel.
@@ -22,6 +23,19 @@ public interface Channel {
      */
     void addGroup(String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener);
 
+    /**
+     * Add a group for logs to be persisted and sent, with a storage quota.
+     *
+     * @param groupName          the name of a group.
+     * @param maxLogsPerBatch    maximum log count per batch.
+     * @param batchTimeInterval  time interval for a next batch.
+     * @param maxParallelBatches maximum number of batches in parallel.
+     * @param ingestion          ingestion for the channel. If null then the default ingestion will be used.
+     * @param groupListener      a listener for a service.
+     * @param groupQuota         storage quota of the group, used to choose which logs to evict. Can be null.
+     */
+    void addGroup(String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener, GroupQuota groupQuota);
+
     /**
      * Remove a group for logs.
      *
@@ -59,6 +73,58 @@ public interface Channel {
      */
     void setLogUrl(String logUrl);
 
+    /**
+     * Configure group commit. When enabled, logs enqueued for a group are buffered and written to
+     * persistence together when {@code maxLogs} logs are buffered or {@code interval} ms after
+     * the first buffered log, whichever comes first.
+     *
+     * @param maxLogs  maximum number of logs written together, 1 or less to write every log immediately.
+     * @param interval maximum time in ms a log can be buffered before being written.
+     */
+    void setGroupCommit(int maxLogs, long interval);
+
+    /**
+     * Enable or disable adaptive batching. When enabled, the batch size and time interval each group
+     * was added with are adjusted to the backlog, the network type and the observed upload latency.
+     *
+     * @param enabled true to enable, false to use the values the groups were added with.
+     */
+    void setAdaptiveBatching(boolean enabled);
+
+    /**
+     * Set the maximum size of serialized logs sent in a single batch.
+     * A log larger than the limit is still sent, alone in its batch.
+     *
+     * @param maxBytes maximum size in bytes, 0 for no limit.
+     */
+    void setMaxBatchBytes(long maxBytes);
+
+    /**
+     * Enable or disable the ingest queue. When enabled, {@link #enqueue(Log, String)} called from another thread
+     * only publishes the log to a lock-free queue without waiting for the channel, and logs are prepared and persisted
+     * on the App Center thread, together with other logs published meanwhile. The App Center thread still locks
+     * the channel while consuming the queue.
+     *
+     * @param enabled true to enable, false to prepare and persist logs on the calling thread.
+     */
+    void setIngestQueue(boolean enabled);
+
+    /**
+     * Set the number of threads serializing logs written to persistence together, with group commit
+     * or the ingest queue. Logs are still persisted in order and listeners are called as before.
+     *
+     * @param threadCount number of serialization threads, 0 to serialize logs on the App Center thread.
+     */
+    void setSerializationThreads(int threadCount);
+
+    /**
+     * Enable or disable write-ahead logging of the log database. When enabled, reading logs to send
+     * and writing new logs use separate database connections and do not block each other.
+     *
+     * @param enabled true to enable, false to use the default rollback journal.
+     */
+    void setWriteAheadLogging(boolean enabled);
+
     /**
      * Clear all persisted logs for the given group.
      *
@@ -98,9 +164,10 @@ public interface Channel {
         /**
          * Called whenever a new group is added.
          *
-         * @param groupName group name.
+         * @param groupName  group name.
+         * @param groupQuota storage quota and eviction priority of the group, null for defaults.
          */
-        void onGroupAdded(@NonNull String groupName);
+        void onGroupAdded(@NonNull String groupName, GroupQuota groupQuota);
 
         /**
          * Called whenever a new group is removed.
@@ -153,6 +220,8 @@ public interface Channel {
 
     /**
      * Channel group listener specification.
+     * Logs read from persistence are given in their serialized form,
+     * use {@link com.microsoft.appcenter.ingestion.models.SerializedLog#getModel(Log)} to inspect them.
      */
     interface GroupListener {
 
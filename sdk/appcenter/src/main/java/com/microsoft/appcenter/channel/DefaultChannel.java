@@ -2,7 +2,8 @@ package com.microsoft.appcenter.channel;
 
 import android.content.Context;
 import android.os.Handler;
-import android.support.annotation.MainThread;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
@@ -14,13 +15,17 @@ import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Device;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 import com.microsoft.appcenter.persistence.DatabasePersistence;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.persistence.SerializationExecutor;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
 import com.microsoft.appcenter.utils.HandlerUtils;
 import com.microsoft.appcenter.utils.IdHelper;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,8 +37,11 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 
@@ -106,6 +114,62 @@ public class DefaultChannel implements Channel {
      */
     private Device mDevice;
 
+    /**
+     * Maximum number of logs written together to persistence, group commit is disabled if 1 or less.
+     */
+    private int mGroupCommitMaxLogs;
+
+    /**
+     * Maximum time in ms a log is buffered before being written to persistence when group commit is enabled.
+     */
+    private long mGroupCommitInterval;
+
+    /**
+     * Is adaptive batching enabled?
+     */
+    private boolean mAdaptiveBatching;
+
+    /**
+     * Maximum size in bytes of a batch, 0 for no limit.
+     */
+    private long mMaxBatchBytes;
+
+    /**
+     * Network state helper used by adaptive batching, null until enabled.
+     */
+    private NetworkStateHelper mNetworkStateHelper;
+
+    /**
+     * Executor serializing logs written to persistence together, null if disabled.
+     */
+    private SerializationExecutor mSerializationExecutor;
+
+    /**
+     * Logs published by {@link #enqueue(Log, String)} when the ingest queue is enabled, consumed on the App Center thread.
+     */
+    private final Queue<IngestItem> mIngestQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Is the ingest queue enabled? Read by producers without locking the channel.
+     */
+    private volatile boolean mIngestQueueEnabled;
+
+    /**
+     * Is draining the ingest queue scheduled on the App Center thread?
+     */
+    private final AtomicBoolean mIngestDrainScheduled = new AtomicBoolean();
+
+    /**
+     * Runnable that consumes the ingest queue.
+     */
+    private final Runnable mIngestDrainRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            drainIngestQueue();
+        }
+    };
+
     /**
      * State checker. If this counter changes during an async call, we have to ignore the result in the callback.
      * Cancelling a database call would be unreliable, and if it's too fast you could still have the callback being called.
@@ -149,6 +213,13 @@ public class DefaultChannel implements Channel {
         }
         mAppCenterHandler = appCenterHandler;
         mEnabled = true;
+        mPersistence.setEvictionListener(new Persistence.EvictionListener() {
+
+            @Override
+            public void onLogsEvicted(@NonNull String group, int count) {
+                DefaultChannel.this.onLogsEvicted(group, count);
+            }
+        });
     }
 
     /**
@@ -175,7 +246,12 @@ public class DefaultChannel implements Channel {
     }
 
     @Override
-    public synchronized void addGroup(final String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener) {
+    public void addGroup(String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener) {
+        addGroup(groupName, maxLogsPerBatch, batchTimeInterval, maxParallelBatches, ingestion, groupListener, null);
+    }
+
+    @Override
+    public synchronized void addGroup(final String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener, GroupQuota groupQuota) {
 
         /* Init group. */
         AppCenterLog.debug(LOG_TAG, "addGroup(" + groupName + ")");
@@ -184,8 +260,18 @@ public class DefaultChannel implements Channel {
             mIngestions.add(ingestion);
         }
         final GroupState groupState = new GroupState(groupName, maxLogsPerBatch, batchTimeInterval, maxParallelBatches, ingestion, groupListener);
+        if (mAdaptiveBatching) {
+            groupState.mBatchPolicy = new AdaptiveBatchPolicy(maxLogsPerBatch, batchTimeInterval);
+        }
         mGroupStates.put(groupName, groupState);
 
+        /* Logs are sent as persisted, a group listener deserializes the logs it needs to inspect. */
+        mPersistence.setRawPayload(groupName, true);
+        mPersistence.setGroupQuota(groupName, groupQuota);
+        if (mMaxBatchBytes > 0) {
+            mPersistence.setMaxBatchBytes(groupName, mMaxBatchBytes);
+        }
+
         /* Count pending logs. */
         groupState.mPendingLogCount = mPersistence.countLogs(groupName);
 
@@ -194,15 +280,17 @@ public class DefaultChannel implements Channel {
 
         /* Call listeners so that they can react on group adding. */
         for (Listener listener : mListeners) {
-            listener.onGroupAdded(groupName);
+            listener.onGroupAdded(groupName, groupQuota);
         }
     }
 
     @Override
     public synchronized void removeGroup(String groupName) {
         AppCenterLog.debug(LOG_TAG, "removeGroup(" + groupName + ")");
-        GroupState groupState = mGroupStates.remove(groupName);
+        GroupState groupState = mGroupStates.get(groupName);
         if (groupState != null) {
+            commitPendingWrites(groupState);
+            mGroupStates.remove(groupName);
             cancelTimer(groupState);
         }
 
@@ -257,6 +345,60 @@ public class DefaultChannel implements Channel {
         mIngestion.setLogUrl(logUrl);
     }
 
+    @Override
+    public synchronized void setGroupCommit(int maxLogs, long interval) {
+        mGroupCommitMaxLogs = maxLogs;
+        mGroupCommitInterval = interval;
+
+        /* Flush what was buffered with the previous settings. */
+        for (GroupState groupState : mGroupStates.values()) {
+            commitPendingWrites(groupState);
+        }
+    }
+
+    @Override
+    public synchronized void setAdaptiveBatching(boolean enabled) {
+        mAdaptiveBatching = enabled;
+        if (enabled && mNetworkStateHelper == null) {
+            mNetworkStateHelper = NetworkStateHelper.getSharedInstance(mContext);
+        }
+        for (GroupState groupState : mGroupStates.values()) {
+            groupState.mBatchPolicy = enabled ? new AdaptiveBatchPolicy(groupState.mMaxLogsPerBatch, groupState.mBatchTimeInterval) : null;
+        }
+    }
+
+    @Override
+    public void setIngestQueue(boolean enabled) {
+
+        /* Logs already published are still consumed when disabling. */
+        mIngestQueueEnabled = enabled;
+    }
+
+    @Override
+    public synchronized void setSerializationThreads(int threadCount) {
+        SerializationExecutor previousExecutor = mSerializationExecutor;
+        mSerializationExecutor = threadCount > 0 ? new SerializationExecutor(threadCount) : null;
+        mPersistence.setSerializationExecutor(mSerializationExecutor);
+
+        /* No log is being serialized meanwhile as logs are written while holding the channel lock. */
+        if (previousExecutor != null) {
+            previousExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public synchronized void setWriteAheadLogging(boolean enabled) {
+        mPersistence.setWriteAheadLogging(enabled);
+    }
+
+    @Override
+    public synchronized void setMaxBatchBytes(long maxBytes) {
+        mMaxBatchBytes = maxBytes;
+        for (String groupName : mGroupStates.keySet()) {
+            mPersistence.setMaxBatchBytes(groupName, maxBytes);
+        }
+    }
+
     /**
      * Delete all persisted logs for the given group.
      *
@@ -268,6 +410,9 @@ public class DefaultChannel implements Channel {
             return;
         }
         AppCenterLog.debug(LOG_TAG, "clear(" + groupName + ")");
+        GroupState groupState = mGroupStates.get(groupName);
+        cancelCommitTimer(groupState);
+        groupState.mPendingWrites.clear();
         mPersistence.deleteLogs(groupName);
 
         /* Call listeners so that they can react on group clearing. */
@@ -292,6 +437,7 @@ public class DefaultChannel implements Channel {
         mDiscardLogs = deleteLogs;
         mCurrentState++;
         for (GroupState groupState : mGroupStates.values()) {
+            commitPendingWrites(groupState);
             cancelTimer(groupState);
 
             /* Delete all other batches and call callback method that are currently in progress. */
@@ -351,6 +497,13 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    private void cancelCommitTimer(GroupState groupState) {
+        if (groupState.mCommitScheduled) {
+            groupState.mCommitScheduled = false;
+            mAppCenterHandler.removeCallbacks(groupState.mCommitRunnable);
+        }
+    }
+
     @VisibleForTesting
     @SuppressWarnings("SameParameterValue")
     synchronized int getCounter(@NonNull String groupName) {
@@ -371,7 +524,7 @@ public class DefaultChannel implements Channel {
         }
         final GroupState groupState = mGroupStates.get(groupName);
         int pendingLogCount = groupState.mPendingLogCount;
-        int maxFetch = Math.min(pendingLogCount, groupState.mMaxLogsPerBatch);
+        int maxFetch = Math.min(pendingLogCount, getMaxLogsPerBatch(groupState));
         AppCenterLog.debug(LOG_TAG, "triggerIngestion(" + groupName + ") pendingLogCount=" + pendingLogCount);
         cancelTimer(groupState);
 
@@ -389,6 +542,18 @@ public class DefaultChannel implements Channel {
         /* Decrement counter. */
         groupState.mPendingLogCount -= maxFetch;
 
+        /*
+         * A short batch can be cut by the byte budget, which leaves logs pending, or be missing corrupted logs,
+         * which persistence deleted. Recount as persistence still counts the logs of every batch being sent.
+         */
+        if (mMaxBatchBytes > 0 && batchId != null && batch.size() < maxFetch) {
+            int sendingLogCount = batch.size();
+            for (List<Log> sendingBatch : groupState.mSendingBatches.values()) {
+                sendingLogCount += sendingBatch.size();
+            }
+            groupState.mPendingLogCount = Math.max(0, mPersistence.countLogs(groupName) - sendingLogCount);
+        }
+
         /* Nothing more to do if no logs. */
         if (batchId == null) {
             return;
@@ -405,6 +570,12 @@ public class DefaultChannel implements Channel {
         /* Remember this batch. */
         groupState.mSendingBatches.put(batchId, batch);
 
+        /* Send directly from this thread unless the ingestion relies on AsyncTask. */
+        if (groupState.mIngestion.isCallableFromAnyThread()) {
+            sendLogs(groupState, stateSnapshot, batch, batchId);
+            return;
+        }
+
         /*
          * Due to bug on old Android versions (verified on 4.0.4),
          * if we start an async task from here, i.e. the async handler thread,
@@ -428,36 +599,38 @@ public class DefaultChannel implements Channel {
     }
 
     /**
-     * Send logs.
+     * Send logs. Called from UI thread if the ingestion is not callable from any thread.
      *
      * @param groupState   The group state.
      * @param currentState The current state.
      * @param batch        The log batch.
      * @param batchId      The batch ID.
      */
-    @MainThread
-    private synchronized void sendLogs(final GroupState groupState, final int currentState, List<Log> batch, final String batchId) {
+    private void sendLogs(final GroupState groupState, final int currentState, List<Log> batch, final String batchId) {
+
+        /* Only checking the state needs the channel lock, sending does not touch channel state. */
         if (checkStateDidNotChange(groupState, currentState)) {
 
             /* Send logs. */
             LogContainer logContainer = new LogContainer();
             logContainer.setLogs(batch);
+            final long sendTime = SystemClock.elapsedRealtime();
             groupState.mIngestion.sendAsync(mAppSecret, mInstallId, logContainer, new ServiceCallback() {
 
                 @Override
                 public void onCallSucceeded(String payload) {
-                    mAppCenterHandler.post(new Runnable() {
+                    runOnAppCenterThread(new Runnable() {
 
                         @Override
                         public void run() {
-                            handleSendingSuccess(groupState, currentState, batchId);
+                            handleSendingSuccess(groupState, currentState, batchId, SystemClock.elapsedRealtime() - sendTime);
                         }
                     });
                 }
 
                 @Override
                 public void onCallFailed(final Exception e) {
-                    mAppCenterHandler.post(new Runnable() {
+                    runOnAppCenterThread(new Runnable() {
 
                         @Override
                         public void run() {
@@ -478,6 +651,29 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    /**
+     * Run a command on the App Center thread, immediately if already on that thread.
+     *
+     * @param runnable command.
+     */
+    private void runOnAppCenterThread(Runnable runnable) {
+        if (isAppCenterThread()) {
+            runnable.run();
+        } else {
+            mAppCenterHandler.post(runnable);
+        }
+    }
+
+    /**
+     * Check if the current thread is the App Center thread.
+     *
+     * @return true if running on the App Center looper.
+     */
+    private boolean isAppCenterThread() {
+        Looper looper = Looper.myLooper();
+        return looper != null && looper == mAppCenterHandler.getLooper();
+    }
+
     private void checkPendingLogsAfterPost(@NonNull final GroupState groupState, int currentState) {
         if (checkStateDidNotChange(groupState, currentState)) {
             checkPendingLogs(groupState.mName);
@@ -490,10 +686,14 @@ public class DefaultChannel implements Channel {
      * @param groupState   The group state.
      * @param currentState The current state.
      * @param batchId      The batch ID.
+     * @param latency      Time in ms between sending the batch and receiving the response.
      */
-    private synchronized void handleSendingSuccess(@NonNull final GroupState groupState, int currentState, @NonNull final String batchId) {
+    private synchronized void handleSendingSuccess(@NonNull final GroupState groupState, int currentState, @NonNull final String batchId, long latency) {
         if (checkStateDidNotChange(groupState, currentState)) {
             String groupName = groupState.mName;
+            if (groupState.mBatchPolicy != null) {
+                groupState.mBatchPolicy.onUploadSucceeded(latency);
+            }
             mPersistence.deleteLogs(groupName, batchId);
             List<Log> removedLogsForBatchId = groupState.mSendingBatches.remove(batchId);
             GroupListener groupListener = groupState.mListener;
@@ -538,12 +738,35 @@ public class DefaultChannel implements Channel {
 
     /**
      * Actual implementation of enqueue logic. Will increase counters, triggers of batching logic.
+     * When the ingest queue is enabled, this only publishes the log and does not lock the channel,
+     * unless called on the App Center thread which then consumes the queue right away.
      *
      * @param log       the Log to be enqueued
      * @param groupName the queue to use
      */
     @Override
-    public synchronized void enqueue(@NonNull Log log, @NonNull final String groupName) {
+    public void enqueue(@NonNull Log log, @NonNull final String groupName) {
+        if (mIngestQueueEnabled) {
+            mIngestQueue.offer(new IngestItem(log, groupName));
+
+            /* Consume right away on the App Center thread, otherwise wake it up once for all logs published meanwhile. */
+            if (isAppCenterThread()) {
+                drainIngestQueue();
+            } else if (mIngestDrainScheduled.compareAndSet(false, true)) {
+                mAppCenterHandler.post(mIngestDrainRunnable);
+            }
+            return;
+        }
+        enqueueNow(log, groupName);
+    }
+
+    /**
+     * Prepare and persist a log on the calling thread.
+     *
+     * @param log       the Log to be enqueued
+     * @param groupName the queue to use
+     */
+    private synchronized void enqueueNow(@NonNull Log log, @NonNull String groupName) {
 
         /* Check group name is registered. */
         final GroupState groupState = mGroupStates.get(groupName);
@@ -552,6 +775,87 @@ public class DefaultChannel implements Channel {
             return;
         }
 
+        if (!prepareLog(groupState, log)) {
+            return;
+        }
+
+        /* Buffer the log to write it with others if group commit is enabled. */
+        if (mGroupCommitMaxLogs > 1) {
+            groupState.mPendingWrites.add(log);
+            scheduleGroupCommit(groupState);
+            return;
+        }
+
+        /* Persist log if not filtered out. */
+        try {
+
+            /* Increment counters and schedule ingestion if we are enabled. */
+            mPersistence.putLog(groupName, log);
+            onLogsPersisted(groupState, 1);
+        } catch (Persistence.PersistenceException e) {
+            AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+        }
+    }
+
+    /**
+     * Consume the logs published to the ingest queue, on the App Center thread.
+     * Logs of a group published meanwhile are written to persistence together.
+     * The channel is locked while consuming as group states are shared with the other channel methods.
+     */
+    private synchronized void drainIngestQueue() {
+
+        /* Reset first so that a log published after draining wakes this thread up again. */
+        mIngestDrainScheduled.set(false);
+        Set<GroupState> groupStates = new LinkedHashSet<>();
+        IngestItem item;
+        while ((item = mIngestQueue.poll()) != null) {
+            GroupState groupState = mGroupStates.get(item.mGroupName);
+            if (groupState == null) {
+                AppCenterLog.error(LOG_TAG, "Invalid group name:" + item.mGroupName);
+            } else if (prepareLog(groupState, item.mLog)) {
+                groupState.mPendingWrites.add(item.mLog);
+                groupStates.add(groupState);
+            }
+        }
+        for (GroupState groupState : groupStates) {
+            if (mGroupCommitMaxLogs > 1) {
+                scheduleGroupCommit(groupState);
+            } else {
+                commitPendingWrites(groupState);
+            }
+        }
+    }
+
+    /**
+     * Write buffered logs of a group if there are enough of them, otherwise make sure they are written later.
+     *
+     * @param groupState the group state.
+     */
+    private void scheduleGroupCommit(@NonNull GroupState groupState) {
+        if (groupState.mPendingWrites.size() >= mGroupCommitMaxLogs) {
+            commitPendingWrites(groupState);
+        } else if (!groupState.mCommitScheduled) {
+            groupState.mCommitScheduled = true;
+            mAppCenterHandler.postDelayed(groupState.mCommitRunnable, mGroupCommitInterval);
+        }
+    }
+
+    /**
+     * Decorate a log and check if it has to be persisted.
+     *
+     * @param groupState the group state.
+     * @param log        the log.
+     * @return true if the log has to be persisted, false if it was discarded or filtered out.
+     */
+    private boolean prepareLog(@NonNull GroupState groupState, @NonNull Log log) {
+        String groupName = groupState.mName;
+
+        /* Logs read from persistence in their serialized form can only be sent, they cannot be decorated. */
+        if (log instanceof SerializedLog) {
+            AppCenterLog.error(LOG_TAG, "Cannot enqueue a serialized log of type '" + log.getType() + "'.");
+            return false;
+        }
+
         /* Check if disabled with discarding logs. */
         if (mDiscardLogs) {
             AppCenterLog.warn(LOG_TAG, "Channel is disabled, log are discarded.");
@@ -559,7 +863,7 @@ public class DefaultChannel implements Channel {
                 groupState.mListener.onBeforeSending(log);
                 groupState.mListener.onFailure(log, new CancellationException());
             }
-            return;
+            return false;
         }
 
         /* Call listeners so that they can decorate the log. */
@@ -576,7 +880,7 @@ public class DefaultChannel implements Channel {
                     mDevice = DeviceInfoHelper.getDeviceInfo(mContext);
                 } catch (DeviceInfoHelper.DeviceInfoException e) {
                     AppCenterLog.error(LOG_TAG, "Device log cannot be generated", e);
-                    return;
+                    return false;
                 }
             }
 
@@ -603,29 +907,59 @@ public class DefaultChannel implements Channel {
         /* If filtered out, nothing more to do. */
         if (filteredOut) {
             AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was filtered out by listener(s)");
-        } else {
-            if (groupState.mIngestion == null) {
+            return false;
+        }
+        if (groupState.mIngestion == null) {
 
-                /* Log was not filtered out but no app secret has been provided. Do nothing in this case. */
-                AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was not filtered out by listener(s) but no app secret was provided. Not persisting/sending the log.");
-                return;
-            }
+            /* Log was not filtered out but no app secret has been provided. Do nothing in this case. */
+            AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was not filtered out by listener(s) but no app secret was provided. Not persisting/sending the log.");
+            return false;
+        }
+        return true;
+    }
 
-            /* Persist log if not filtered out. */
-            try {
+    /**
+     * Write buffered logs of a group to persistence in a single operation.
+     *
+     * @param groupState the group state.
+     */
+    private synchronized void commitPendingWrites(@NonNull GroupState groupState) {
+        cancelCommitTimer(groupState);
+        if (groupState.mPendingWrites.isEmpty()) {
+            return;
+        }
+        List<Log> logs = new ArrayList<>(groupState.mPendingWrites);
+        groupState.mPendingWrites.clear();
+        List<Long> ids = mPersistence.putLogs(groupState.mName, logs);
+        onLogsPersisted(groupState, ids.size());
+    }
 
-                /* Increment counters and schedule ingestion if we are enabled. */
-                mPersistence.putLog(groupName, log);
-                groupState.mPendingLogCount++;
-                AppCenterLog.debug(LOG_TAG, "enqueue(" + groupState.mName + ") pendingLogCount=" + groupState.mPendingLogCount);
-                if (mEnabled) {
-                    checkPendingLogs(groupState.mName);
-                } else {
-                    AppCenterLog.warn(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
-                }
-            } catch (Persistence.PersistenceException e) {
-                AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
-            }
+    /**
+     * Increment counters and schedule ingestion if we are enabled.
+     *
+     * @param groupState the group state.
+     * @param count      number of logs that were persisted.
+     */
+    private void onLogsPersisted(@NonNull GroupState groupState, int count) {
+        groupState.mPendingLogCount += count;
+        AppCenterLog.debug(LOG_TAG, "enqueue(" + groupState.mName + ") pendingLogCount=" + groupState.mPendingLogCount);
+        if (mEnabled) {
+            checkPendingLogs(groupState.mName);
+        } else {
+            AppCenterLog.warn(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
+        }
+    }
+
+    /**
+     * Update pending log count of a group after persistence evicted some of its logs.
+     *
+     * @param groupName the group name.
+     * @param count     number of evicted logs.
+     */
+    private synchronized void onLogsEvicted(@NonNull String groupName, int count) {
+        GroupState groupState = mGroupStates.get(groupName);
+        if (groupState != null) {
+            groupState.mPendingLogCount = Math.max(0, groupState.mPendingLogCount - count);
         }
     }
 
@@ -642,10 +976,36 @@ public class DefaultChannel implements Channel {
             triggerIngestion(groupName);
         } else if (pendingLogCount > 0 && !groupState.mScheduled) {
             groupState.mScheduled = true;
-            mAppCenterHandler.postDelayed(groupState.mRunnable, groupState.mBatchTimeInterval);
+            mAppCenterHandler.postDelayed(groupState.mRunnable, getBatchTimeInterval(groupState));
         }
     }
 
+    /**
+     * Get the maximum log count of the next batch of a group.
+     *
+     * @param groupState the group state.
+     * @return maximum log count per batch.
+     */
+    private int getMaxLogsPerBatch(@NonNull GroupState groupState) {
+        if (groupState.mBatchPolicy == null) {
+            return groupState.mMaxLogsPerBatch;
+        }
+        return groupState.mBatchPolicy.getMaxLogsPerBatch(groupState.mPendingLogCount);
+    }
+
+    /**
+     * Get the time to wait before sending the next batch of a group.
+     *
+     * @param groupState the group state.
+     * @return time in ms.
+     */
+    private long getBatchTimeInterval(@NonNull GroupState groupState) {
+        if (groupState.mBatchPolicy == null) {
+            return groupState.mBatchTimeInterval;
+        }
+        return groupState.mBatchPolicy.getBatchTimeInterval(groupState.mPendingLogCount, mNetworkStateHelper.isNetworkMetered());
+    }
+
     @Override
     public synchronized void addListener(Listener listener) {
         mListeners.add(listener);
@@ -658,7 +1018,38 @@ public class DefaultChannel implements Channel {
 
     @Override
     public synchronized void shutdown() {
+
+        /* Persist logs still in the ingest queue as the App Center thread may not run again. */
+        drainIngestQueue();
         suspend(false, new CancellationException());
+        setSerializationThreads(0);
+    }
+
+    /**
+     * Log published to the ingest queue.
+     */
+    private static class IngestItem {
+
+        /**
+         * The log.
+         */
+        final Log mLog;
+
+        /**
+         * The group name.
+         */
+        final String mGroupName;
+
+        /**
+         * Init.
+         *
+         * @param log       the log.
+         * @param groupName the group name.
+         */
+        IngestItem(Log log, String groupName) {
+            mLog = log;
+            mGroupName = groupName;
+        }
     }
 
     /**
@@ -706,14 +1097,29 @@ public class DefaultChannel implements Channel {
          */
         int mPendingLogCount;
 
+        /**
+         * Logs waiting to be written to persistence together when group commit is enabled.
+         */
+        final List<Log> mPendingWrites = new ArrayList<>();
+
+        /**
+         * Adaptive batch policy, null if adaptive batching is disabled.
+         */
+        AdaptiveBatchPolicy mBatchPolicy;
+
         /**
          * Is timer scheduled.
          */
         boolean mScheduled;
 
+        /**
+         * Is group commit timer scheduled.
+         */
+        boolean mCommitScheduled;
+
         /**
          * Runnable that triggers ingestion of this group data
-         * and triggers itself in {@link #mBatchTimeInterval} ms.
+         * and triggers itself in {@link #mBatchTimeInterval} ms or the interval of the adaptive batch policy.
          */
         final Runnable mRunnable = new Runnable() {
 
@@ -724,6 +1130,18 @@ public class DefaultChannel implements Channel {
             }
         };
 
+        /**
+         * Runnable that writes buffered logs of this group to persistence.
+         */
+        final Runnable mCommitRunnable = new Runnable() {
+
+            @Override
+            public void run() {
+                mCommitScheduled = false;
+                commitPendingWrites(GroupState.this);
+            }
+        };
+
         /**
          * Init.
          *
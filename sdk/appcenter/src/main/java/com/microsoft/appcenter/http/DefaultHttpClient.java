@@ -2,20 +2,28 @@ package com.microsoft.appcenter.http;
 
 import android.net.TrafficStats;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.HandlerUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 
+import static android.util.Log.VERBOSE;
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static java.lang.Math.max;
 
@@ -57,7 +65,7 @@ public class DefaultHttpClient implements HttpClient {
     /**
      * Character encoding.
      */
-    private static final String CHARSET_NAME = "UTF-8";
+    public static final String CHARSET_NAME = "UTF-8";
 
     /**
      * Read buffer size.
@@ -74,6 +82,66 @@ public class DefaultHttpClient implements HttpClient {
      */
     private static final int READ_TIMEOUT = 20000;
 
+    /**
+     * Content encoding header key.
+     */
+    public static final String CONTENT_ENCODING_KEY = "Content-Encoding";
+
+    /**
+     * Content encoding header value for compressed payloads.
+     */
+    @VisibleForTesting
+    static final String CONTENT_ENCODING_VALUE = "gzip";
+
+    /**
+     * Minimum payload size (in bytes) to use compression, smaller payloads are sent with a fixed length.
+     * Below this size the gzip overhead is not worth it as the payload fits in a few packets anyway.
+     */
+    @VisibleForTesting
+    static final int MIN_GZIP_LENGTH = 1400;
+
+    /**
+     * Whether to compress request payloads.
+     */
+    private final boolean mCompressionEnabled;
+
+    /**
+     * Executor to run calls on, null to use {@link AsyncTask#THREAD_POOL_EXECUTOR}.
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Init without payload compression, using {@link AsyncTask}.
+     */
+    public DefaultHttpClient() {
+        this(false);
+    }
+
+    /**
+     * Init using {@link AsyncTask}.
+     *
+     * @param compressionEnabled true to gzip request payloads of at least {@link #MIN_GZIP_LENGTH} bytes,
+     *                           the server must support the gzip content encoding.
+     */
+    public DefaultHttpClient(boolean compressionEnabled) {
+        this(compressionEnabled, null);
+    }
+
+    /**
+     * Init.
+     *
+     * @param compressionEnabled true to gzip request payloads of at least {@link #MIN_GZIP_LENGTH} bytes,
+     *                           the server must support the gzip content encoding.
+     * @param executor           executor to run calls on, results are delivered on the looper of the thread
+     *                           that made the call (or main thread if it has no looper).
+     *                           If null, calls use {@link AsyncTask#THREAD_POOL_EXECUTOR} and results are
+     *                           delivered on main thread.
+     */
+    public DefaultHttpClient(boolean compressionEnabled, @Nullable Executor executor) {
+        mCompressionEnabled = compressionEnabled;
+        mExecutor = executor;
+    }
+
     /**
      * Dump stream to string.
      *
@@ -112,7 +180,7 @@ public class DefaultHttpClient implements HttpClient {
     /**
      * Do call and tag socket to avoid strict mode issue.
      */
-    private static String doCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
+    private String doCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
         TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
         try {
             return doHttpCall(urlString, method, headers, callTemplate);
@@ -124,11 +192,12 @@ public class DefaultHttpClient implements HttpClient {
     /**
      * Do http call.
      */
-    private static String doHttpCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
+    private String doHttpCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
 
         /* HTTP session. */
         URL url = new URL(urlString);
         HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        boolean responseConsumed = false;
         try {
 
             /* Configure connection timeouts. */
@@ -147,23 +216,26 @@ public class DefaultHttpClient implements HttpClient {
                 callTemplate.onBeforeCalling(url, headers);
             }
 
-            /* Build payload. */
+            /* Send payload through the wire, compressing it on the fly if large enough. */
             if (method.equals(METHOD_POST) && callTemplate != null) {
-                String payload = callTemplate.buildRequestBody();
-                AppCenterLog.verbose(LOG_TAG, payload);
-
-                /* Send payload through the wire. */
-                byte[] binaryPayload = payload.getBytes(CHARSET_NAME);
                 urlConnection.setDoOutput(true);
-                urlConnection.setFixedLengthStreamingMode(binaryPayload.length);
-                OutputStream out = urlConnection.getOutputStream();
-                out.write(binaryPayload);
+                OutputStream out = new RequestBodyOutputStream(urlConnection, MIN_GZIP_LENGTH, mCompressionEnabled);
+                if (callTemplate instanceof StreamingCallTemplate) {
+                    writeRequestBody((StreamingCallTemplate) callTemplate, out);
+                } else {
+                    String payload = callTemplate.buildRequestBody();
+                    AppCenterLog.verbose(LOG_TAG, payload);
+                    Writer writer = new OutputStreamWriter(out, CHARSET_NAME);
+                    writer.write(payload);
+                    writer.flush();
+                }
                 out.close();
             }
 
             /* Read response. */
             int status = urlConnection.getResponseCode();
             String response = dump(urlConnection);
+            responseConsumed = true;
             String contentType = urlConnection.getHeaderField("Content-Type");
             String logPayload;
             if (contentType == null || contentType.startsWith("text/") || contentType.startsWith("application/")) {
@@ -183,13 +255,42 @@ public class DefaultHttpClient implements HttpClient {
         } finally {
 
             /* Release connection. */
-            urlConnection.disconnect();
+            releaseConnection(urlConnection, responseConsumed);
+        }
+    }
+
+    /**
+     * Write request body of a streaming call template.
+     * The payload is kept in memory only if verbose logging needs it.
+     */
+    private static void writeRequestBody(StreamingCallTemplate callTemplate, OutputStream out) throws Exception {
+        if (AppCenterLog.getLogLevel() <= VERBOSE) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            callTemplate.writeRequestBody(payload);
+            AppCenterLog.verbose(LOG_TAG, payload.toString(CHARSET_NAME));
+            payload.writeTo(out);
+        } else {
+            callTemplate.writeRequestBody(out);
         }
     }
 
+    /**
+     * Release a connection after a call.
+     * This implementation disconnects, which closes the socket.
+     *
+     * @param urlConnection    connection used for the call.
+     * @param responseConsumed true if the response was entirely read and its stream closed.
+     */
+    void releaseConnection(HttpURLConnection urlConnection, boolean responseConsumed) {
+        urlConnection.disconnect();
+    }
+
     @Override
     public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, final ServiceCallback serviceCallback) {
-        final Call call = new Call(url, method, headers, callTemplate, serviceCallback);
+        if (mExecutor != null) {
+            return callOnExecutor(url, method, headers, callTemplate, serviceCallback);
+        }
+        final Call call = new Call(this, url, method, headers, callTemplate, serviceCallback);
         try {
             call.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         } catch (final RejectedExecutionException e) {
@@ -219,6 +320,29 @@ public class DefaultHttpClient implements HttpClient {
         };
     }
 
+    /**
+     * Run a call on the executor and deliver result on the looper of the caller thread.
+     */
+    private ServiceCall callOnExecutor(String url, String method, Map<String, String> headers, CallTemplate callTemplate, final ServiceCallback serviceCallback) {
+        Looper looper = Looper.myLooper();
+        final Handler handler = looper != null ? new Handler(looper) : HandlerUtils.getMainHandler();
+        ExecutorCall call = new ExecutorCall(this, url, method, headers, callTemplate, serviceCallback, handler);
+        try {
+            mExecutor.execute(call);
+        } catch (final RejectedExecutionException e) {
+
+            /* Let the retry mechanism handle saturation, callback is called after this method returns. */
+            handler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    serviceCallback.onCallFailed(e);
+                }
+            });
+        }
+        return call;
+    }
+
     @Override
     public void close() {
 
@@ -231,9 +355,16 @@ public class DefaultHttpClient implements HttpClient {
         /* Nothing to do. */
     }
 
+    @Override
+    public boolean isCallableFromAnyThread() {
+        return mExecutor != null;
+    }
+
     @VisibleForTesting
     static class Call extends AsyncTask<Void, Void, Object> {
 
+        private final DefaultHttpClient mHttpClient;
+
         private final String mUrl;
 
         private final String mMethod;
@@ -244,7 +375,8 @@ public class DefaultHttpClient implements HttpClient {
 
         private final ServiceCallback mServiceCallback;
 
-        public Call(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+        public Call(DefaultHttpClient httpClient, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+            mHttpClient = httpClient;
             mUrl = url;
             mMethod = method;
             mHeaders = headers;
@@ -255,7 +387,7 @@ public class DefaultHttpClient implements HttpClient {
         @Override
         protected Object doInBackground(Void... params) {
             try {
-                return doCall(mUrl, mMethod, mHeaders, mCallTemplate);
+                return mHttpClient.doCall(mUrl, mMethod, mHeaders, mCallTemplate);
             } catch (Exception e) {
                 return e;
             }
@@ -270,4 +402,93 @@ public class DefaultHttpClient implements HttpClient {
             }
         }
     }
+
+    /**
+     * Call running on an executor, delivering its result with a handler.
+     */
+    @VisibleForTesting
+    static class ExecutorCall implements Runnable, ServiceCall {
+
+        private final DefaultHttpClient mHttpClient;
+
+        private final String mUrl;
+
+        private final String mMethod;
+
+        private final Map<String, String> mHeaders;
+
+        private final CallTemplate mCallTemplate;
+
+        private final ServiceCallback mServiceCallback;
+
+        private final Handler mHandler;
+
+        /**
+         * Thread running the call, null if not running.
+         */
+        private Thread mThread;
+
+        /**
+         * True if cancelled, result is not delivered in that case.
+         */
+        private volatile boolean mCancelled;
+
+        ExecutorCall(DefaultHttpClient httpClient, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback, Handler handler) {
+            mHttpClient = httpClient;
+            mUrl = url;
+            mMethod = method;
+            mHeaders = headers;
+            mCallTemplate = callTemplate;
+            mServiceCallback = serviceCallback;
+            mHandler = handler;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (mCancelled) {
+                    return;
+                }
+                mThread = Thread.currentThread();
+            }
+            Object result;
+            try {
+                result = mHttpClient.doCall(mUrl, mMethod, mHeaders, mCallTemplate);
+            } catch (Exception e) {
+                result = e;
+            }
+            synchronized (this) {
+                mThread = null;
+
+                /* Don't leak a cancellation interrupt to the next call on this thread. */
+                //noinspection ResultOfMethodCallIgnored
+                Thread.interrupted();
+            }
+            final Object finalResult = result;
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (mCancelled) {
+                        return;
+                    }
+                    if (finalResult instanceof Exception) {
+                        mServiceCallback.onCallFailed((Exception) finalResult);
+                    } else {
+                        mServiceCallback.onCallSucceeded(finalResult.toString());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public synchronized void cancel() {
+            if (!mCancelled) {
+                mCancelled = true;
+                if (mThread != null) {
+                    mThread.interrupt();
+                }
+            }
+        }
+    }
 }
@@ -3,6 +3,8 @@ package com.microsoft.appcenter.http;
 import org.json.JSONException;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Map;
 
@@ -45,8 +47,32 @@ public interface HttpClient extends Closeable {
         void onBeforeCalling(URL url, Map<String, String> headers);
     }
 
+    /**
+     * Call callbacks writing the request body directly to the connection instead of building it in memory first.
+     */
+    interface StreamingCallTemplate extends CallTemplate {
+
+        /**
+         * Called when the method is POST to write request body, {@link #buildRequestBody()} is not called in that case.
+         *
+         * @param out stream to write request body to. It must not be closed by the callback.
+         * @throws JSONException callback can throw this to make the call fail if a JSON error occurs.
+         * @throws IOException   if writing to the connection fails.
+         */
+        void writeRequestBody(OutputStream out) throws JSONException, IOException;
+    }
+
     /**
      * Make this client active again after closing.
      */
     void reopen();
+
+    /**
+     * Check whether {@link #callAsync} can be invoked from any thread.
+     * Clients using {@link android.os.AsyncTask} must be invoked from the UI thread
+     * to avoid corrupting the AsyncTask handler on old Android versions.
+     *
+     * @return true if calls can be made from any thread, false if they must be made from the UI thread.
+     */
+    boolean isCallableFromAnyThread();
 }
@@ -19,4 +19,9 @@ abstract class HttpClientDecorator implements HttpClient {
     public void reopen() {
         mDecoratedApi.reopen();
     }
+
+    @Override
+    public boolean isCallableFromAnyThread() {
+        return mDecoratedApi.isCallableFromAnyThread();
+    }
 }
@@ -0,0 +1,55 @@
+package com.microsoft.appcenter.http;
+
+import android.support.annotation.Nullable;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP client that keeps connections alive between calls.
+ * Connections whose response was entirely read are not disconnected so that the platform
+ * {@link HttpURLConnection} implementation returns them to its connection pool,
+ * and the next call to the same host reuses the socket without a new TCP and TLS handshake.
+ * <p>
+ * The platform pool is shared by the whole process and configured by the application, this client does not change it.
+ */
+public class KeepAliveHttpClient extends DefaultHttpClient {
+
+    /**
+     * Init with shared network executor and without payload compression.
+     */
+    public KeepAliveHttpClient() {
+        this(false);
+    }
+
+    /**
+     * Init with shared network executor.
+     *
+     * @param compressionEnabled true to gzip large request payloads.
+     */
+    public KeepAliveHttpClient(boolean compressionEnabled) {
+        this(compressionEnabled, NetworkExecutor.getSharedInstance());
+    }
+
+    /**
+     * Init.
+     *
+     * @param compressionEnabled true to gzip large request payloads.
+     * @param executor           executor to run calls on, null to use {@link android.os.AsyncTask}.
+     */
+    public KeepAliveHttpClient(boolean compressionEnabled, @Nullable Executor executor) {
+        super(compressionEnabled, executor);
+    }
+
+    @Override
+    void releaseConnection(HttpURLConnection urlConnection, boolean responseConsumed) {
+
+        /*
+         * The connection can be reused only if the response stream was read to the end and closed,
+         * otherwise the socket is in an unknown state and must be closed.
+         */
+        if (!responseConsumed) {
+            super.releaseConnection(urlConnection, false);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.microsoft.appcenter.http;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for SDK network calls, running on low priority threads.
+ * Unlike {@link android.os.AsyncTask#THREAD_POOL_EXECUTOR}, it's not shared with the application,
+ * so uploads neither compete with application background work nor fail when the application saturates it.
+ */
+public class NetworkExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Default number of threads.
+     */
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * Maximum number of calls waiting for a thread, calls are rejected beyond that.
+     */
+    @VisibleForTesting
+    static final int QUEUE_CAPACITY = 128;
+
+    /**
+     * Idle time after which a thread is terminated.
+     */
+    private static final long KEEP_ALIVE_TIME = 30;
+
+    /**
+     * Thread name prefix.
+     */
+    private static final String THREAD_NAME = "AppCenter.Network-";
+
+    /**
+     * Shared instance.
+     */
+    private static NetworkExecutor sSharedInstance;
+
+    /**
+     * Init.
+     *
+     * @param poolSize maximum number of concurrent calls.
+     */
+    public NetworkExecutor(int poolSize) {
+        super(checkPoolSize(poolSize), poolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, THREAD_NAME + mCount.getAndIncrement());
+            }
+        });
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get shared instance.
+     *
+     * @return shared instance.
+     */
+    public static synchronized NetworkExecutor getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new NetworkExecutor(DEFAULT_POOL_SIZE);
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetInstance() {
+        sSharedInstance = null;
+    }
+
+    private static int checkPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive.");
+        }
+        return poolSize;
+    }
+
+    /**
+     * Change the maximum number of concurrent calls.
+     *
+     * @param poolSize maximum number of concurrent calls.
+     */
+    public synchronized void setPoolSize(int poolSize) {
+        checkPoolSize(poolSize);
+
+        /* Core size cannot exceed maximum size at any time, so order of updates depends on direction. */
+        if (poolSize > getMaximumPoolSize()) {
+            setMaximumPoolSize(poolSize);
+            setCorePoolSize(poolSize);
+        } else {
+            setCorePoolSize(poolSize);
+            setMaximumPoolSize(poolSize);
+        }
+    }
+}
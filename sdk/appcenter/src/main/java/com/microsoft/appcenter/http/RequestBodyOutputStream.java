@@ -0,0 +1,125 @@
+package com.microsoft.appcenter.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.zip.GZIPOutputStream;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_ENCODING_KEY;
+import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_ENCODING_VALUE;
+
+/**
+ * Stream writing a request body to a connection without knowing its size in advance.
+ * The beginning of the body is buffered: if the body ends before the threshold, it's sent with a fixed length.
+ * Otherwise the connection switches to chunked streaming and compresses the body if enabled.
+ */
+class RequestBodyOutputStream extends OutputStream {
+
+    /**
+     * Connection to write to.
+     */
+    private final HttpURLConnection mUrlConnection;
+
+    /**
+     * Whether to compress bodies reaching the threshold.
+     */
+    private final boolean mCompressionEnabled;
+
+    /**
+     * Buffer for the beginning of the body, its length is the streaming threshold.
+     */
+    private final byte[] mBuffer;
+
+    /**
+     * Number of bytes in buffer.
+     */
+    private int mCount;
+
+    /**
+     * Connection output stream once streaming started.
+     */
+    private OutputStream mOut;
+
+    /**
+     * True once closed.
+     */
+    private boolean mClosed;
+
+    /**
+     * Init.
+     *
+     * @param urlConnection      connection to write to.
+     * @param threshold          body size in bytes from which to stream and compress.
+     * @param compressionEnabled true to compress bodies reaching the threshold.
+     */
+    RequestBodyOutputStream(HttpURLConnection urlConnection, int threshold, boolean compressionEnabled) {
+        mUrlConnection = urlConnection;
+        mCompressionEnabled = compressionEnabled;
+        mBuffer = new byte[threshold];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (mOut == null) {
+            if (mCount + 1 < mBuffer.length) {
+                mBuffer[mCount++] = (byte) b;
+                return;
+            }
+            startStreaming();
+        }
+        mOut.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (mOut == null) {
+            if (mCount + len < mBuffer.length) {
+                System.arraycopy(b, off, mBuffer, mCount, len);
+                mCount += len;
+                return;
+            }
+            startStreaming();
+        }
+        mOut.write(b, off, len);
+    }
+
+    /**
+     * Switch the connection to chunked streaming and write buffered bytes.
+     */
+    private void startStreaming() throws IOException {
+        mUrlConnection.setChunkedStreamingMode(0);
+        if (mCompressionEnabled) {
+            mUrlConnection.setRequestProperty(CONTENT_ENCODING_KEY, CONTENT_ENCODING_VALUE);
+            mOut = new GZIPOutputStream(mUrlConnection.getOutputStream());
+        } else {
+            mOut = mUrlConnection.getOutputStream();
+        }
+        mOut.write(mBuffer, 0, mCount);
+        mCount = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        /* Buffered bytes are kept until we know the size, a flush must not start streaming. */
+        if (mOut != null) {
+            mOut.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+
+        /* Body is small enough to be sent with a fixed length. */
+        if (mOut == null) {
+            mUrlConnection.setFixedLengthStreamingMode(mCount);
+            mOut = mUrlConnection.getOutputStream();
+            mOut.write(mBuffer, 0, mCount);
+        }
+        mOut.close();
+    }
+}
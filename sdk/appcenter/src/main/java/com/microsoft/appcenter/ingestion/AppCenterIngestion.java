@@ -4,11 +4,11 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
-import com.microsoft.appcenter.http.DefaultHttpClient;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
 import com.microsoft.appcenter.http.HttpClientRetryer;
 import com.microsoft.appcenter.http.HttpUtils;
+import com.microsoft.appcenter.http.KeepAliveHttpClient;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
@@ -19,6 +19,7 @@ import com.microsoft.appcenter.utils.NetworkStateHelper;
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
@@ -77,7 +78,7 @@ public class AppCenterIngestion implements Ingestion {
      */
     public AppCenterIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer) {
         mLogSerializer = logSerializer;
-        HttpClientRetryer retryer = new HttpClientRetryer(new DefaultHttpClient());
+        HttpClientRetryer retryer = new HttpClientRetryer(new KeepAliveHttpClient());
         NetworkStateHelper networkStateHelper = NetworkStateHelper.getSharedInstance(context);
         mHttpClient = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
         mLogUrl = DEFAULT_LOG_URL;
@@ -113,10 +114,15 @@ public class AppCenterIngestion implements Ingestion {
         mHttpClient.reopen();
     }
 
+    @Override
+    public boolean isCallableFromAnyThread() {
+        return mHttpClient.isCallableFromAnyThread();
+    }
+
     /**
      * Inner class is used to be able to mock System.currentTimeMillis, does not work if using anonymous inner class...
      */
-    private static class IngestionCallTemplate implements HttpClient.CallTemplate {
+    private static class IngestionCallTemplate implements HttpClient.StreamingCallTemplate {
 
         private final LogSerializer mLogSerializer;
 
@@ -134,6 +140,13 @@ public class AppCenterIngestion implements Ingestion {
             return mLogSerializer.serializeContainer(mLogContainer);
         }
 
+        @Override
+        public void writeRequestBody(OutputStream out) throws JSONException, IOException {
+
+            /* Serialize payload directly to the connection. */
+            mLogSerializer.writeContainer(mLogContainer, out);
+        }
+
         @Override
         public void onBeforeCalling(URL url, Map<String, String> headers) {
             if (AppCenterLog.getLogLevel() <= VERBOSE) {
@@ -35,4 +35,11 @@ public interface Ingestion extends Closeable {
      * Make ingestion active again after closing.
      */
     void reopen();
+
+    /**
+     * Check whether {@link #sendAsync} can be invoked from any thread.
+     *
+     * @return true if logs can be sent from any thread, false if they must be sent from the UI thread.
+     */
+    boolean isCallableFromAnyThread();
 }
@@ -4,11 +4,11 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
-import com.microsoft.appcenter.http.DefaultHttpClient;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
 import com.microsoft.appcenter.http.HttpClientRetryer;
 import com.microsoft.appcenter.http.HttpUtils;
+import com.microsoft.appcenter.http.KeepAliveHttpClient;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.models.Log;
@@ -20,6 +20,9 @@ import com.microsoft.appcenter.utils.NetworkStateHelper;
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -30,6 +33,7 @@ import java.util.UUID;
 import static android.util.Log.VERBOSE;
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static com.microsoft.appcenter.BuildConfig.VERSION_NAME;
+import static com.microsoft.appcenter.http.DefaultHttpClient.CHARSET_NAME;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_KEY;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
 
@@ -91,7 +95,7 @@ public class OneCollectorIngestion implements Ingestion {
      */
     public OneCollectorIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer) {
         mLogSerializer = logSerializer;
-        HttpClientRetryer retryer = new HttpClientRetryer(new DefaultHttpClient());
+        HttpClientRetryer retryer = new HttpClientRetryer(new KeepAliveHttpClient(true));
         NetworkStateHelper networkStateHelper = NetworkStateHelper.getSharedInstance(context);
         mHttpClient = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
         mLogUrl = DEFAULT_LOG_URL;
@@ -123,8 +127,7 @@ public class OneCollectorIngestion implements Ingestion {
         /* Client version */
         headers.put(CLIENT_VERSION_KEY, String.format(CLIENT_VERSION_FORMAT, VERSION_NAME));
 
-        /* Content encoding */
-        // TODO Android HttpUrlConnection should take care of this?  Need to verify in fiddler
+        /* Content encoding header is added by the HTTP client when the payload is large enough to be compressed. */
 
         /* Upload time */
         headers.put(UPLOAD_TIME_KEY, String.valueOf(System.currentTimeMillis()));
@@ -150,6 +153,11 @@ public class OneCollectorIngestion implements Ingestion {
         mHttpClient.reopen();
     }
 
+    @Override
+    public boolean isCallableFromAnyThread() {
+        return mHttpClient.isCallableFromAnyThread();
+    }
+
     @Override
     public void close() throws IOException {
         mHttpClient.close();
@@ -158,7 +166,7 @@ public class OneCollectorIngestion implements Ingestion {
     /**
      * Call template implementation for One Collector.
      */
-    private static class IngestionCallTemplate implements HttpClient.CallTemplate {
+    private static class IngestionCallTemplate implements HttpClient.StreamingCallTemplate {
 
         /**
          * Log serializer.
@@ -192,6 +200,20 @@ public class OneCollectorIngestion implements Ingestion {
             return jsonStream.toString();
         }
 
+        @Override
+        public void writeRequestBody(OutputStream out) throws JSONException, IOException {
+
+            /* Serialize payload one log at a time. */
+            Writer writer = new OutputStreamWriter(out, CHARSET_NAME);
+            for (Log log : mLogContainer.getLogs()) {
+                writer.write(mLogSerializer.serializeLog(log));
+
+                /* We have to use a different delimiter specific to OneCollector. */
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+
         @Override
         public void onBeforeCalling(URL url, Map<String, String> headers) {
             if (AppCenterLog.getLogLevel() <= VERBOSE) {
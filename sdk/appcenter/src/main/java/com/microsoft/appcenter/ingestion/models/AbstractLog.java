@@ -1,7 +1,9 @@
 package com.microsoft.appcenter.ingestion.models;
 
 
+import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
 
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
@@ -10,6 +12,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
@@ -188,6 +191,57 @@ public abstract class AbstractLog implements Log {
         }
     }
 
+    /**
+     * Read a field of this log from a pull parser, as described in {@link StreamingModel#readField(String, JsonReader)}.
+     * Only subclasses reading all of their own fields implement {@link StreamingModel}.
+     *
+     * @param name   field name.
+     * @param reader reader positioned on the field value.
+     * @return true if the value was consumed, false if the field is unknown.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is not valid for this log.
+     */
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case TYPE:
+                if (!reader.nextString().equals(getType())) {
+                    throw new JSONException("Invalid type");
+                }
+                return true;
+
+            case TIMESTAMP:
+                setTimestamp(JSONDateUtils.toDate(reader.nextString()));
+                return true;
+
+            case SID:
+                String sid = JSONUtils.readString(reader);
+                setSid(sid == null ? null : UUID.fromString(sid));
+                return true;
+
+            case DISTRIBUTION_GROUP_ID:
+                setDistributionGroupId(JSONUtils.readString(reader));
+                return true;
+
+            case DEVICE:
+                Device device = new Device();
+                JSONUtils.readObject(reader, device);
+                setDevice(device);
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check required fields after reading them from a pull parser.
+     *
+     * @throws JSONException if a required field is missing.
+     */
+    public void validate() throws JSONException {
+        if (getTimestamp() == null) {
+            throw new JSONException("Missing " + TIMESTAMP);
+        }
+    }
+
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object o) {
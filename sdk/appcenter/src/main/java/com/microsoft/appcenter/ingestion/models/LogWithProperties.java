@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -44,6 +48,15 @@ public abstract class LogWithProperties extends AbstractLog {
         setProperties(JSONUtils.readMap(object, PROPERTIES));
     }
 
+    @Override
+    public boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException {
+        if (PROPERTIES.equals(name)) {
+            setProperties(JSONUtils.readMap(reader));
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -0,0 +1,263 @@
+package com.microsoft.appcenter.ingestion.models;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
+
+/**
+ * A log kept in the serialized JSON form it was persisted with.
+ * Used to send logs without deserializing them and serializing them again.
+ * The model is deserialized only when first needed, by a model getter or setter or by {@link #getModel(Log)},
+ * after which the log is serialized from its model. Without a log serializer, model fields are not available
+ * and setters throw {@link UnsupportedOperationException}.
+ * Instances only go from persistence to ingestion and group listeners, the channel refuses to enqueue them.
+ */
+public class SerializedLog implements Log {
+
+    /**
+     * Log type as stored in persistence, can be null for logs stored by old SDK versions.
+     */
+    private final String type;
+
+    /**
+     * Serialized JSON object.
+     */
+    private final String payload;
+
+    /**
+     * Serializer used to deserialize the model on first access, can be null.
+     */
+    private final LogSerializer logSerializer;
+
+    /**
+     * Collection of transmissionTargetTokens that this log should be sent to.
+     */
+    private final Set<String> transmissionTargetTokens = new LinkedHashSet<>();
+
+    /**
+     * Deserialized model, null until first needed.
+     */
+    private Log log;
+
+    /**
+     * Whether deserializing the model failed, not to try again.
+     */
+    private boolean deserializationFailed;
+
+    /**
+     * Init without a serializer, the model is not available.
+     *
+     * @param type    log type.
+     * @param payload serialized JSON object.
+     */
+    public SerializedLog(String type, @NonNull String payload) {
+        this(type, payload, null);
+    }
+
+    /**
+     * Init.
+     *
+     * @param type          log type.
+     * @param payload       serialized JSON object.
+     * @param logSerializer serializer to deserialize the model when needed.
+     */
+    public SerializedLog(String type, @NonNull String payload, LogSerializer logSerializer) {
+        this.type = type;
+        this.payload = payload;
+        this.logSerializer = logSerializer;
+    }
+
+    /**
+     * Get the model of a log, deserializing it if it is a {@link SerializedLog}.
+     * Group listeners call this when they need the model of a log being sent.
+     *
+     * @param log a log.
+     * @return the model, or the log itself if it is not serialized or if its model cannot be deserialized.
+     */
+    public static Log getModel(Log log) {
+        if (log instanceof SerializedLog) {
+            Log model = ((SerializedLog) log).getLog();
+            if (model != null) {
+                return model;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Get the serialized JSON object as persisted, it does not reflect changes made to the model.
+     *
+     * @return the serialized JSON object.
+     */
+    @NonNull
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Check if the model was deserialized, the log is then serialized from its model.
+     *
+     * @return true if the model was deserialized.
+     */
+    public synchronized boolean isDeserialized() {
+        return log != null;
+    }
+
+    /**
+     * Get the model, deserializing it on first call.
+     *
+     * @return the model, or null if there is no serializer or if the payload cannot be deserialized.
+     */
+    private synchronized Log getLog() {
+        if (log == null && logSerializer != null && !deserializationFailed) {
+            try {
+                log = logSerializer.deserializeLog(payload, type);
+                for (String transmissionTargetToken : transmissionTargetTokens) {
+                    log.addTransmissionTarget(transmissionTargetToken);
+                }
+            } catch (JSONException e) {
+                deserializationFailed = true;
+                AppCenterLog.error(LOG_TAG, "Cannot deserialize a log of type '" + type + "'.", e);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Get the model to change it.
+     *
+     * @return the model.
+     * @throws UnsupportedOperationException if the model is not available.
+     */
+    @NonNull
+    private Log getMutableLog() {
+        Log model = getLog();
+        if (model == null) {
+            throw new UnsupportedOperationException();
+        }
+        return model;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public Date getTimestamp() {
+        Log model = getLog();
+        return model != null ? model.getTimestamp() : null;
+    }
+
+    @Override
+    public void setTimestamp(Date timestamp) {
+        getMutableLog().setTimestamp(timestamp);
+    }
+
+    @Override
+    public UUID getSid() {
+        Log model = getLog();
+        return model != null ? model.getSid() : null;
+    }
+
+    @Override
+    public void setSid(UUID sid) {
+        getMutableLog().setSid(sid);
+    }
+
+    @Override
+    public String getDistributionGroupId() {
+        Log model = getLog();
+        return model != null ? model.getDistributionGroupId() : null;
+    }
+
+    @Override
+    public void setDistributionGroupId(String distributionGroupId) {
+        getMutableLog().setDistributionGroupId(distributionGroupId);
+    }
+
+    @Override
+    public Device getDevice() {
+        Log model = getLog();
+        return model != null ? model.getDevice() : null;
+    }
+
+    @Override
+    public void setDevice(Device device) {
+        getMutableLog().setDevice(device);
+    }
+
+    @Override
+    public synchronized void addTransmissionTarget(String transmissionTargetToken) {
+        transmissionTargetTokens.add(transmissionTargetToken);
+        if (log != null) {
+            log.addTransmissionTarget(transmissionTargetToken);
+        }
+    }
+
+    @Override
+    public synchronized Set<String> getTransmissionTargetTokens() {
+        return Collections.unmodifiableSet(transmissionTargetTokens);
+    }
+
+    @Override
+    public void read(JSONObject object) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Write the model properties if deserialized, otherwise copy the serialized properties in the writer.
+     * Serializers should use {@link #getPayload()} directly when the model was not deserialized as copying parses the payload.
+     */
+    @Override
+    public void write(JSONStringer writer) throws JSONException {
+        Log model;
+        synchronized (this) {
+            model = log;
+        }
+        if (model != null) {
+            model.write(writer);
+            return;
+        }
+        JSONObject object = new JSONObject(payload);
+        for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            writer.key(key).value(object.get(key));
+        }
+    }
+
+    @SuppressWarnings("SimplifiableIfStatement")
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SerializedLog that = (SerializedLog) o;
+
+        if (type != null ? !type.equals(that.type) : that.type != null) return false;
+        if (!payload.equals(that.payload)) return false;
+        return transmissionTargetTokens.equals(that.transmissionTargetTokens);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type != null ? type.hashCode() : 0;
+        result = 31 * result + payload.hashCode();
+        result = 31 * result + transmissionTargetTokens.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,34 @@
+package com.microsoft.appcenter.ingestion.models;
+
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+/**
+ * Model that can also be read field by field from a pull parser, without building a {@link org.json.JSONObject} first.
+ * A class implementing this interface must read every field that {@link #read(org.json.JSONObject)} reads,
+ * including the ones of its super classes.
+ */
+public interface StreamingModel extends Model {
+
+    /**
+     * Read a field of this model.
+     *
+     * @param name   field name.
+     * @param reader reader positioned on the field value.
+     * @return true if the value was consumed, false if the field is unknown, the caller then skips the value.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is not valid for this model.
+     */
+    boolean readField(@NonNull String name, @NonNull JsonReader reader) throws IOException, JSONException;
+
+    /**
+     * Check the model after all fields were read.
+     *
+     * @throws JSONException if a required field is missing.
+     */
+    void validate() throws JSONException;
+}
@@ -1,10 +1,12 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
 import android.support.annotation.NonNull;
+import android.util.JsonReader;
 
-import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
@@ -13,7 +15,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
-import java.lang.reflect.Constructor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -26,6 +30,11 @@ public class DefaultLogSerializer implements LogSerializer {
 
     private static final String LOGS = "logs";
 
+    /**
+     * Number of spaces per indentation level when logging payloads in verbose.
+     */
+    private static final int PRETTY_INDENT_SPACES = 2;
+
     private final Map<String, LogFactory> mLogFactories = new HashMap<>();
 
     @NonNull
@@ -53,12 +62,90 @@ public class DefaultLogSerializer implements LogSerializer {
     @NonNull
     @Override
     public String serializeLog(@NonNull Log log) throws JSONException {
-        return writeLog(new JSONStringer(), log).toString();
+        if (log instanceof SerializedLog && !((SerializedLog) log).isDeserialized()) {
+            return ((SerializedLog) log).getPayload();
+        }
+        return writeLog(new JSONStreamWriter(), log).toString();
+    }
+
+    /**
+     * Serialize a log without one of its top-level members, whose value is serialized apart.
+     *
+     * @param log            log to serialize.
+     * @param memberName     name of the member to serialize apart.
+     * @param outMemberValue receives the serialized member value, left as is if the log does not have the member.
+     * @return the serialized log without the member.
+     */
+    @NonNull
+    @Override
+    public String serializeLog(@NonNull Log log, @NonNull String memberName, @NonNull StringBuilder outMemberValue) throws JSONException {
+        if (log instanceof SerializedLog && !((SerializedLog) log).isDeserialized()) {
+            return ((SerializedLog) log).getPayload();
+        }
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.divertMember(memberName);
+        writeLog(writer, log);
+        String memberValue = writer.getDivertedValue();
+        if (memberValue != null) {
+            outMemberValue.append(memberValue);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Read a log with a pull parser, filling the model as fields are parsed instead of building a {@link JSONObject} first.
+     *
+     * @return the log, or null if its model does not support streaming or if the type cannot be known upfront.
+     */
+    private Log streamLog(@NonNull String json, String type) throws JSONException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            reader.beginObject();
+
+            /* Without a type, streaming is only possible if the type is the first field, which is how logs are written. */
+            if (type == null) {
+                if (!reader.hasNext() || !TYPE.equals(reader.nextName())) {
+                    return null;
+                }
+                type = reader.nextString();
+            }
+            LogFactory logFactory = mLogFactories.get(type);
+            if (logFactory == null) {
+                throw new JSONException("Unknown log type: " + type);
+            }
+            Log log = logFactory.create();
+            if (!(log instanceof StreamingModel)) {
+                return null;
+            }
+            StreamingModel model = (StreamingModel) log;
+            while (reader.hasNext()) {
+                if (!model.readField(reader.nextName(), reader)) {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            model.validate();
+            return log;
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        } catch (IllegalStateException e) {
+
+            /* Unexpected token. */
+            throw new JSONException(e.getMessage());
+        } catch (IllegalArgumentException e) {
+
+            /* Invalid number or identifier. */
+            throw new JSONException(e.getMessage());
+        }
     }
 
     @NonNull
     @Override
     public Log deserializeLog(@NonNull String json, String type) throws JSONException {
+        Log log = streamLog(json, type);
+        if (log != null) {
+            return log;
+        }
         return readLog(new JSONObject(json), type);
     }
 
@@ -71,23 +158,13 @@ public class DefaultLogSerializer implements LogSerializer {
     @Override
     public String serializeContainer(@NonNull LogContainer logContainer) throws JSONException {
 
-        /* Init JSON serializer, in verbose: try to make it pretty. */
-        JSONStringer writer = null;
-        if (AppCenterLog.getLogLevel() <= android.util.Log.VERBOSE) {
-            try {
-                @SuppressWarnings("JavaReflectionMemberAccess")
-                Constructor<JSONStringer> constructor = JSONStringer.class.getDeclaredConstructor(int.class);
-                constructor.setAccessible(true);
-                writer = constructor.newInstance(2);
-            } catch (Exception e) {
-                AppCenterLog.error(AppCenter.LOG_TAG, "Failed to setup pretty json, falling back to default one", e);
-            }
-        }
-        if (writer == null) {
-            writer = new JSONStringer();
+        /* Pretty JSON is only needed in verbose, otherwise concatenate serialized logs. */
+        if (AppCenterLog.getLogLevel() > android.util.Log.VERBOSE) {
+            return spliceContainer(logContainer);
         }
 
-        /* Start writing JSON. */
+        /* In verbose, make it pretty. */
+        JSONStringer writer = new JSONStreamWriter(PRETTY_INDENT_SPACES);
         writer.object();
         writer.key(LOGS).array();
         for (Log log : logContainer.getLogs()) {
@@ -98,6 +175,55 @@ public class DefaultLogSerializer implements LogSerializer {
         return writer.toString();
     }
 
+    /**
+     * Write the container by concatenating serialized logs, the result is the same as a
+     * non indented {@link JSONStringer} but already serialized logs are not processed again.
+     */
+    @NonNull
+    private String spliceContainer(@NonNull LogContainer logContainer) throws JSONException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"").append(LOGS).append("\":[");
+        boolean first = true;
+        for (Log log : logContainer.getLogs()) {
+            if (!first) {
+                builder.append(',');
+            }
+            builder.append(serializeLog(log));
+            first = false;
+        }
+        builder.append("]}");
+        return builder.toString();
+    }
+
+    @Override
+    public void writeContainer(@NonNull LogContainer logContainer, @NonNull OutputStream out) throws JSONException, IOException {
+
+        /* Pretty JSON is only needed in verbose, otherwise persisted logs are written as is. */
+        boolean pretty = AppCenterLog.getLogLevel() <= android.util.Log.VERBOSE;
+        JSONStreamWriter writer = new JSONStreamWriter(out, pretty ? PRETTY_INDENT_SPACES : 0);
+        try {
+            writer.object();
+            writer.key(LOGS).array();
+            for (Log log : logContainer.getLogs()) {
+                if (log instanceof SerializedLog && !((SerializedLog) log).isDeserialized() && !pretty) {
+                    writer.rawValue(((SerializedLog) log).getPayload());
+                } else {
+                    writeLog(writer, log);
+                }
+            }
+            writer.endArray();
+            writer.endObject();
+        } catch (JSONException e) {
+
+            /* Report stream failures as such. */
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
     @NonNull
     @Override
     public LogContainer deserializeContainer(@NonNull String json, String type) throws JSONException {
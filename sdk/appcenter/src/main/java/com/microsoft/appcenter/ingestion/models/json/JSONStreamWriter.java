@@ -0,0 +1,566 @@
+package com.microsoft.appcenter.ingestion.models.json;
+
+import android.support.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Drop-in replacement of {@link JSONStringer} used by {@link DefaultLogSerializer}.
+ * Models still write themselves with {@link com.microsoft.appcenter.ingestion.models.Model#write(JSONStringer)}
+ * and the output is the same, but this writer either appends to a single {@link StringBuilder}
+ * or encodes UTF-8 directly to an {@link OutputStream} through a small buffer.
+ * Indentation is supported without reflection.
+ */
+public class JSONStreamWriter extends JSONStringer {
+
+    /**
+     * An array with no elements.
+     */
+    private static final int EMPTY_ARRAY = 0;
+
+    /**
+     * An array with at least one element.
+     */
+    private static final int NONEMPTY_ARRAY = 1;
+
+    /**
+     * An object with no keys or values.
+     */
+    private static final int EMPTY_OBJECT = 2;
+
+    /**
+     * An object whose most recent element is a key, expecting a value.
+     */
+    private static final int DANGLING_KEY = 3;
+
+    /**
+     * An object with at least one key and value.
+     */
+    private static final int NONEMPTY_OBJECT = 4;
+
+    /**
+     * Size of the buffer used when writing to a stream.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Hexadecimal digits used to escape control characters.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Output when writing to memory, null when writing to a stream.
+     */
+    private final StringBuilder mBuilder;
+
+    /**
+     * Output stream, null when writing to memory.
+     */
+    private final OutputStream mOut;
+
+    /**
+     * UTF-8 bytes not yet written to the stream.
+     */
+    private final byte[] mBuffer;
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int mCount;
+
+    /**
+     * Number of spaces per indentation level, 0 for compact output.
+     */
+    private final int mIndentSpaces;
+
+    /**
+     * Nesting scopes.
+     */
+    private int[] mStack = new int[8];
+
+    /**
+     * Number of nesting scopes.
+     */
+    private int mDepth;
+
+    /**
+     * Whether a top-level value was started.
+     */
+    private boolean mRootWritten;
+
+    /**
+     * High surrogate waiting for the next character to be encoded.
+     */
+    private char mHighSurrogate;
+
+    /**
+     * Name of the top-level member written apart, see {@link #divertMember(String)}.
+     */
+    private String mDivertedName;
+
+    /**
+     * Output of the diverted member value while it is being written, null otherwise.
+     */
+    private StringBuilder mDivertedBuilder;
+
+    /**
+     * Scope of the top-level object before the diverted member.
+     */
+    private int mDivertedScope;
+
+    /**
+     * Diverted member value once written.
+     */
+    private String mDivertedValue;
+
+    /**
+     * Init a compact writer to memory.
+     */
+    public JSONStreamWriter() {
+        this(0);
+    }
+
+    /**
+     * Init a writer to memory.
+     *
+     * @param indentSpaces number of spaces per indentation level, 0 for compact output.
+     */
+    public JSONStreamWriter(int indentSpaces) {
+        mBuilder = new StringBuilder();
+        mOut = null;
+        mBuffer = null;
+        mIndentSpaces = indentSpaces;
+    }
+
+    /**
+     * Init a writer encoding UTF-8 to a stream. {@link #flush()} must be called when done.
+     *
+     * @param out          output stream, it is not closed by this writer.
+     * @param indentSpaces number of spaces per indentation level, 0 for compact output.
+     */
+    public JSONStreamWriter(@NonNull OutputStream out, int indentSpaces) {
+        mBuilder = null;
+        mOut = out;
+        mBuffer = new byte[BUFFER_SIZE];
+        mIndentSpaces = indentSpaces;
+    }
+
+    /**
+     * Convert a number the same way as {@link JSONObject#numberToString(Number)}.
+     */
+    private static String numberToString(Number number) throws JSONException {
+        double doubleValue = number.doubleValue();
+        if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+            throw new JSONException("Forbidden numeric value: " + number);
+        }
+        if (number.equals(-0d)) {
+            return "-0";
+        }
+        long longValue = number.longValue();
+        if (doubleValue == (double) longValue) {
+            return Long.toString(longValue);
+        }
+        return number.toString();
+    }
+
+    @Override
+    public JSONStringer array() throws JSONException {
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    @Override
+    public JSONStringer endArray() throws JSONException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    @Override
+    public JSONStringer object() throws JSONException {
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    @Override
+    public JSONStringer endObject() throws JSONException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @Override
+    public JSONStringer key(String name) throws JSONException {
+        if (name == null) {
+            throw new JSONException("Names must be non-null");
+        }
+        int context = peek();
+        if (context != NONEMPTY_OBJECT && context != EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem");
+        }
+        if (mDepth == 1) {
+            endDiversion();
+            if (name.equals(mDivertedName)) {
+
+                /* Neither the separator nor the key are written, the value goes to a separate output. */
+                mDivertedScope = context;
+                mDivertedBuilder = new StringBuilder();
+                mStack[0] = DANGLING_KEY;
+                return this;
+            }
+        }
+        if (context == NONEMPTY_OBJECT) {
+            write(',');
+        }
+        newline();
+        mStack[mDepth - 1] = DANGLING_KEY;
+        string(name);
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(Object value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            array();
+            for (int i = 0; i < array.length(); i++) {
+                value(array.opt(i));
+            }
+            return endArray();
+        }
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            object();
+            for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                key(key).value(object.opt(key));
+            }
+            return endObject();
+        }
+        beforeValue();
+        if (value == null || value == JSONObject.NULL) {
+            write("null");
+        } else if (value instanceof Boolean) {
+            write(value.toString());
+        } else if (value instanceof Number) {
+            write(numberToString((Number) value));
+        } else {
+            string(value.toString());
+        }
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(boolean value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(double value) throws JSONException {
+        return value(Double.valueOf(value));
+    }
+
+    @Override
+    public JSONStringer value(long value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a value that is already serialized, such as a persisted log.
+     *
+     * @param json serialized JSON value, written as is.
+     * @return this writer.
+     * @throws JSONException if not expecting a value.
+     */
+    public JSONStringer rawValue(@NonNull String json) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        write(json);
+        return this;
+    }
+
+    /**
+     * Write the members of an object that is already serialized in the current object.
+     *
+     * @param json serialized JSON object, its members are written as is.
+     * @return this writer.
+     * @throws JSONException if not in an object or if the serialized value is not an object.
+     */
+    public JSONStringer rawMembers(@NonNull String json) throws JSONException {
+        int context = peek();
+        if (context != NONEMPTY_OBJECT && context != EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem");
+        }
+        json = json.trim();
+        if (!json.startsWith("{") || !json.endsWith("}")) {
+            throw new JSONException("Not a JSON object: " + json);
+        }
+        String members = json.substring(1, json.length() - 1).trim();
+        if (members.length() > 0) {
+            if (context == NONEMPTY_OBJECT) {
+                write(',');
+            }
+            newline();
+            write(members);
+            mStack[mDepth - 1] = NONEMPTY_OBJECT;
+        }
+        return this;
+    }
+
+    /**
+     * Write the value of a top-level member apart from the rest of the JSON, without its key.
+     * Must be called before writing the top-level object.
+     *
+     * @param name name of the member to divert.
+     */
+    public void divertMember(@NonNull String name) {
+        mDivertedName = name;
+    }
+
+    /**
+     * Get the value of the member diverted with {@link #divertMember(String)}, once the top-level object is written.
+     *
+     * @return the serialized value, null if the object did not have the member.
+     */
+    public String getDivertedValue() {
+        return mDivertedValue;
+    }
+
+    /**
+     * Write buffered bytes to the stream and flush it. Does nothing when writing to memory.
+     *
+     * @throws IOException if writing to the stream fails.
+     */
+    public void flush() throws IOException {
+        if (mOut != null) {
+            mOut.write(mBuffer, 0, mCount);
+            mCount = 0;
+            if (mHighSurrogate != 0) {
+                mHighSurrogate = 0;
+                mOut.write('?');
+            }
+            mOut.flush();
+        }
+    }
+
+    /**
+     * Get the JSON written so far.
+     *
+     * @return the JSON written to memory, null if nothing was written or when writing to a stream.
+     */
+    @Override
+    public String toString() {
+        return mBuilder == null || mBuilder.length() == 0 ? null : mBuilder.toString();
+    }
+
+    private JSONStringer open(int scope, char openBracket) throws JSONException {
+        if (mDepth == 0) {
+            if (mRootWritten) {
+                throw new JSONException("Nesting problem: multiple top-level roots");
+            }
+            mRootWritten = true;
+        }
+        beforeValue();
+        if (mDepth == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mDepth * 2);
+        }
+        mStack[mDepth++] = scope;
+        write(openBracket);
+        return this;
+    }
+
+    private JSONStringer close(int empty, int nonempty, char closeBracket) throws JSONException {
+        int context = peek();
+        if (context != nonempty && context != empty) {
+            throw new JSONException("Nesting problem");
+        }
+        if (mDepth == 1) {
+            endDiversion();
+        }
+        mDepth--;
+        if (context == nonempty) {
+            newline();
+        }
+        write(closeBracket);
+        return this;
+    }
+
+    private int peek() throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        return mStack[mDepth - 1];
+    }
+
+    private void beforeValue() throws JSONException {
+        if (mDepth == 0) {
+            return;
+        }
+        int context = mStack[mDepth - 1];
+        if (context == EMPTY_ARRAY) {
+            mStack[mDepth - 1] = NONEMPTY_ARRAY;
+            newline();
+        } else if (context == NONEMPTY_ARRAY) {
+            write(',');
+            newline();
+        } else if (context == DANGLING_KEY) {
+            if (mDepth == 1 && mDivertedBuilder != null) {
+                mStack[0] = mDivertedScope;
+            } else {
+                write(mIndentSpaces == 0 ? ":" : ": ");
+                mStack[mDepth - 1] = NONEMPTY_OBJECT;
+            }
+        } else {
+            throw new JSONException("Nesting problem");
+        }
+    }
+
+    /**
+     * Keep the diverted member value if it was being written, the following output goes back to the main output.
+     */
+    private void endDiversion() {
+        if (mDivertedBuilder != null) {
+            mDivertedValue = mDivertedBuilder.toString();
+            mDivertedBuilder = null;
+        }
+    }
+
+    private void newline() throws JSONException {
+        if (mIndentSpaces == 0) {
+            return;
+        }
+        write('\n');
+        for (int i = 0; i < mDepth * mIndentSpaces; i++) {
+            write(' ');
+        }
+    }
+
+    private void string(String value) throws JSONException {
+        write('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    write('\\');
+                    write(c);
+                    break;
+
+                case '\t':
+                    write("\\t");
+                    break;
+
+                case '\b':
+                    write("\\b");
+                    break;
+
+                case '\n':
+                    write("\\n");
+                    break;
+
+                case '\r':
+                    write("\\r");
+                    break;
+
+                case '\f':
+                    write("\\f");
+                    break;
+
+                default:
+                    if (c <= 0x1F) {
+                        write("\\u00");
+                        write(HEX_DIGITS[c >> 4]);
+                        write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        write(c);
+                    }
+                    break;
+            }
+        }
+        write('"');
+    }
+
+    private void write(String value) throws JSONException {
+        if (mDivertedBuilder != null) {
+            mDivertedBuilder.append(value);
+        } else if (mBuilder != null) {
+            mBuilder.append(value);
+        } else {
+            for (int i = 0, length = value.length(); i < length; i++) {
+                write(value.charAt(i));
+            }
+        }
+    }
+
+    private void write(char c) throws JSONException {
+        if (mDivertedBuilder != null) {
+            mDivertedBuilder.append(c);
+            return;
+        }
+        if (mBuilder != null) {
+            mBuilder.append(c);
+            return;
+        }
+
+        /* Encode surrogate pairs as a single code point, unpaired surrogates are replaced like the platform encoder does. */
+        if (mHighSurrogate != 0) {
+            char high = mHighSurrogate;
+            mHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                writeByte(0xF0 | codePoint >> 18);
+                writeByte(0x80 | codePoint >> 12 & 0x3F);
+                writeByte(0x80 | codePoint >> 6 & 0x3F);
+                writeByte(0x80 | codePoint & 0x3F);
+                return;
+            }
+            writeByte('?');
+        }
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (c < 0x800) {
+            writeByte(0xC0 | c >> 6);
+            writeByte(0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c)) {
+            mHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeByte('?');
+        } else {
+            writeByte(0xE0 | c >> 12);
+            writeByte(0x80 | c >> 6 & 0x3F);
+            writeByte(0x80 | c & 0x3F);
+        }
+    }
+
+    private void writeByte(int b) throws JSONException {
+        if (mCount == mBuffer.length) {
+            try {
+                mOut.write(mBuffer, 0, mCount);
+            } catch (IOException e) {
+                JSONException exception = new JSONException("Failed to write JSON: " + e.getMessage());
+                exception.initCause(e);
+                throw exception;
+            }
+            mCount = 0;
+        }
+        mBuffer[mCount++] = (byte) b;
+    }
+}
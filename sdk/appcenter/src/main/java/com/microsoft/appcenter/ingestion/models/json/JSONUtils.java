@@ -1,14 +1,19 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -120,4 +125,130 @@ public final class JSONUtils {
             writer.endArray();
         }
     }
+
+    /**
+     * Read a string value from a pull parser.
+     *
+     * @param reader reader positioned on the value.
+     * @return the string, null if the value is null.
+     * @throws IOException if the JSON is malformed.
+     */
+    public static String readString(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Read an integer value from a pull parser.
+     *
+     * @param reader reader positioned on the value.
+     * @return the integer, null if the value is null.
+     * @throws IOException if the JSON is malformed.
+     */
+    public static Integer readInteger(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+
+    /**
+     * Read a long value from a pull parser.
+     *
+     * @param reader reader positioned on the value.
+     * @return the long, null if the value is null.
+     * @throws IOException if the JSON is malformed.
+     */
+    public static Long readLong(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    /**
+     * Read a boolean value from a pull parser.
+     *
+     * @param reader reader positioned on the value.
+     * @return the boolean, null if the value is null.
+     * @throws IOException if the JSON is malformed.
+     */
+    public static Boolean readBoolean(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextBoolean();
+    }
+
+    /**
+     * Read a string map from a pull parser.
+     *
+     * @param reader reader positioned on the object.
+     * @return the map, null if the value is null.
+     * @throws IOException if the JSON is malformed.
+     */
+    public static Map<String, String> readMap(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Map<String, String> properties = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            properties.put(reader.nextName(), reader.nextString());
+        }
+        reader.endObject();
+        return properties;
+    }
+
+    /**
+     * Read all fields of an object from a pull parser into a model, unknown fields are skipped.
+     *
+     * @param reader reader positioned on the object.
+     * @param model  model to fill.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the model is not valid.
+     */
+    public static void readObject(@NonNull JsonReader reader, @NonNull StreamingModel model) throws IOException, JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!model.readField(reader.nextName(), reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        model.validate();
+    }
+
+    /**
+     * Read an array of models from a pull parser.
+     *
+     * @param reader  reader positioned on the array.
+     * @param factory model factory.
+     * @param <M>     model type.
+     * @return the models, null if the value is null.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if a model is not valid.
+     */
+    public static <M extends StreamingModel> List<M> readArray(@NonNull JsonReader reader, @NonNull ModelFactory<M> factory) throws IOException, JSONException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<M> array = factory.createList(0);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            M model = factory.create();
+            readObject(reader, model);
+            array.add(model);
+        }
+        reader.endArray();
+        return array;
+    }
 }
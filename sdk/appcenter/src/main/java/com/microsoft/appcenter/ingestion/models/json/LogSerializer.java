@@ -8,6 +8,8 @@ import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 
 public interface LogSerializer {
@@ -15,6 +17,9 @@ public interface LogSerializer {
     @NonNull
     String serializeLog(@NonNull Log log) throws JSONException;
 
+    @NonNull
+    String serializeLog(@NonNull Log log, @NonNull String memberName, @NonNull StringBuilder outMemberValue) throws JSONException;
+
     @NonNull
     Log deserializeLog(@NonNull String json, String type) throws JSONException;
 
@@ -23,6 +28,8 @@ public interface LogSerializer {
     @NonNull
     String serializeContainer(@NonNull LogContainer container) throws JSONException;
 
+    void writeContainer(@NonNull LogContainer container, @NonNull OutputStream out) throws JSONException, IOException;
+
     @NonNull
     LogContainer deserializeContainer(@NonNull String json, String type) throws JSONException;
 
@@ -10,6 +10,8 @@ import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.Constants;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.UUIDUtils;
@@ -21,6 +23,7 @@ import org.json.JSONException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.FutureTask;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static com.microsoft.appcenter.utils.storage.StorageHelper.DatabaseStorage;
@@ -38,7 +42,7 @@ public class DatabasePersistence extends Persistence {
     /**
      * Version of the schema.
      */
-    private static final int VERSION = 2;
+    private static final int VERSION = 6;
 
     /**
      * Name of group column in the table.
@@ -58,12 +62,60 @@ public class DatabasePersistence extends Persistence {
     @VisibleForTesting
     static final String COLUMN_TARGET_TOKEN = "target_token";
 
+    /**
+     * Name of target token identifier column in the table, referencing the target token table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_TARGET_TOKEN_ID = "target_token_id";
+
+    /**
+     * Name of device identifier column in the table, referencing the device table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_DEVICE_ID = "device_id";
+
+    /**
+     * Name of large payload segment column in the table, set when the payload is stored in a segment file.
+     */
+    @VisibleForTesting
+    static final String COLUMN_PAYLOAD_SEGMENT = "payload_segment";
+
+    /**
+     * Name of large payload offset column in the table, the payload length is the log size.
+     */
+    @VisibleForTesting
+    static final String COLUMN_PAYLOAD_OFFSET = "payload_offset";
+
     /**
      * Name of target token column in the table.
      */
     @VisibleForTesting
     static final String COLUMN_DATA_TYPE = "type";
 
+    /**
+     * Name of eviction priority column in the table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_PRIORITY = "priority";
+
+    /**
+     * Name of serialized log size column in the table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_SIZE = "size";
+
+    /**
+     * Name of encrypted token column in the target token table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_TOKEN = "token";
+
+    /**
+     * Name of serialized device column in the device table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_DEVICE = "device";
+
     /**
      * Database name.
      */
@@ -80,7 +132,36 @@ public class DatabasePersistence extends Persistence {
      * Table schema for Persistence.
      */
     @VisibleForTesting
-    static final ContentValues SCHEMA = getContentValues("", "", "", "");
+    static final ContentValues SCHEMA = getContentValues("", "", "", 0L, 0L, 0L, 0L, "", 0, 0L);
+
+    /**
+     * Table name of encrypted target tokens, so that a token is encrypted only once.
+     */
+    @VisibleForTesting
+    static final String TARGET_TOKEN_TABLE = "target_tokens";
+
+    /**
+     * Target token table schema.
+     */
+    @VisibleForTesting
+    static final ContentValues TARGET_TOKEN_SCHEMA = getTargetTokenContentValues("");
+
+    /**
+     * Table name of serialized devices, so that the device of consecutive logs is stored once.
+     */
+    @VisibleForTesting
+    static final String DEVICE_TABLE = "devices";
+
+    /**
+     * Device table schema.
+     */
+    @VisibleForTesting
+    static final ContentValues DEVICE_SCHEMA = getDeviceContentValues("");
+
+    /**
+     * Name of the device member of a serialized log.
+     */
+    private static final String DEVICE = "device";
 
     /**
      * Size limit (in bytes) for a database row log payload.
@@ -89,15 +170,40 @@ public class DatabasePersistence extends Persistence {
     private static final int PAYLOAD_MAX_SIZE = (int) (1.9 * 1024 * 1024);
 
     /**
-     * Sub path for directory where to store large payloads.
+     * Sub path for directory where previous versions stored large payloads, one file per log.
      */
     private static final String PAYLOAD_LARGE_DIRECTORY = "/appcenter/database_large_payloads";
 
+    /**
+     * Sub path for directory of large payload segment files.
+     */
+    private static final String PAYLOAD_SEGMENT_DIRECTORY = "/appcenter/database_large_payload_segments";
+
+    /**
+     * Size (in bytes) after which large payloads are appended to a new segment file.
+     */
+    private static final long PAYLOAD_SEGMENT_MAX_SIZE = 16 * 1024 * 1024;
+
     /**
      * Large payload file extension.
      */
     private static final String PAYLOAD_FILE_EXTENSION = ".json";
 
+    /**
+     * Name of the index used to query logs of a group in insertion order.
+     */
+    private static final String INDEX_GROUP = "ix_logs_group";
+
+    /**
+     * Name of the index used to find logs to evict.
+     */
+    private static final String INDEX_PRIORITY = "ix_logs_priority";
+
+    /**
+     * Name of the index used to find logs of a large payload segment.
+     */
+    private static final String INDEX_PAYLOAD_SEGMENT = "ix_logs_payload_segment";
+
     /**
      * Application context.
      */
@@ -122,10 +228,86 @@ public class DatabasePersistence extends Persistence {
     final Set<Long> mPendingDbIdentifiers;
 
     /**
-     * Base directory to store large payloads outside of SQLite.
+     * Pending logs whose payload was stored in a separate file by a previous version.
+     */
+    @VisibleForTesting
+    final Set<Long> mPendingLargePayloadDbIdentifiers;
+
+    /**
+     * Pending logs whose payload is stored in a segment file.
+     */
+    @VisibleForTesting
+    final Set<Long> mPendingSegmentDbIdentifiers;
+
+    /**
+     * Highest pending database identifier per group.
+     * Database identifiers are increasing, so every log of the group below that watermark is either pending or deleted.
+     */
+    @VisibleForTesting
+    final Map<String, Long> mPendingWatermarks;
+
+    /**
+     * Number of pending batches per group, watermark is reset when it drops to 0.
+     */
+    private final Map<String, Integer> mPendingBatchCounts;
+
+    /**
+     * Storage usage of groups with a quota, loaded on first use and invalidated when logs of the group are deleted.
+     */
+    private final Map<String, GroupUsage> mGroupUsages;
+
+    /**
+     * Decrypted target tokens by identifier, loaded on first use.
+     */
+    private Map<Long, String> mTargetTokens;
+
+    /**
+     * Target token identifiers by decrypted token, loaded on first use.
+     */
+    private Map<String, Long> mTargetTokenIds;
+
+    /**
+     * Identifier given to the next target token if the target token table cannot be used.
+     */
+    private long mVolatileTargetTokenId = -1;
+
+    /**
+     * Serialized devices by identifier, loaded on first use.
+     */
+    private Map<Long, String> mDevices;
+
+    /**
+     * Device identifiers by serialized device, loaded on first use.
+     */
+    private Map<String, Long> mDeviceIds;
+
+    /**
+     * Identifier given to the next device if the device table cannot be used.
+     */
+    private long mVolatileDeviceId = -1;
+
+    /**
+     * Whether a device was added to the device table since unused devices were last deleted.
+     */
+    private boolean mDeviceStored;
+
+    /**
+     * Base directory where previous versions stored large payloads outside of SQLite.
      */
     private final File mLargePayloadDirectory;
 
+    /**
+     * Segment files of large payloads.
+     */
+    @VisibleForTesting
+    final LargePayloadStore mLargePayloadStore;
+
+    /**
+     * Whether logs stored in segment files were deleted since the last compaction.
+     * Segments of a previous process may also be unused, so it's initially true.
+     */
+    private boolean mLargePayloadsReleased = true;
+
     /**
      * Initializes variables.
      *
@@ -147,18 +329,39 @@ public class DatabasePersistence extends Persistence {
         mContext = context;
         mPendingDbIdentifiersGroups = new HashMap<>();
         mPendingDbIdentifiers = new HashSet<>();
+        mPendingLargePayloadDbIdentifiers = new HashSet<>();
+        mPendingSegmentDbIdentifiers = new HashSet<>();
+        mPendingWatermarks = new HashMap<>();
+        mPendingBatchCounts = new HashMap<>();
+        mGroupUsages = new HashMap<>();
         mDatabaseStorage = DatabaseStorage.getDatabaseStorage(DATABASE, TABLE, version, schema, maxRecords,
                 new DatabaseManager.Listener() {
 
                     @Override
                     public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
 
-                        /*
-                         * This is called only on upgrade and thus only if oldVersion is < 2.
-                         * Therefore we don't have to check anything to add the missing columns.
-                         */
-                        db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_TARGET_TOKEN + "` TEXT");
-                        db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_DATA_TYPE + "` TEXT");
+                        /* Add the columns missing in the old version. */
+                        if (oldVersion < 2) {
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_TARGET_TOKEN + "` TEXT");
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_DATA_TYPE + "` TEXT");
+                        }
+                        if (oldVersion < 3) {
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_PRIORITY + "` INTEGER");
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_SIZE + "` INTEGER");
+
+                            /* Existing logs get the priority of a group without quota, a null priority would be evicted first. */
+                            db.execSQL("UPDATE " + TABLE + " SET `" + COLUMN_PRIORITY + "` = " + GroupQuota.PRIORITY_NORMAL);
+                        }
+                        if (oldVersion < 4) {
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_TARGET_TOKEN_ID + "` INTEGER");
+                        }
+                        if (oldVersion < 5) {
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_DEVICE_ID + "` INTEGER");
+                        }
+                        if (oldVersion < 6) {
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_PAYLOAD_SEGMENT + "` INTEGER");
+                            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_PAYLOAD_OFFSET + "` INTEGER");
+                        }
                         return true;
                     }
 
@@ -167,10 +370,30 @@ public class DatabasePersistence extends Persistence {
                         AppCenterLog.error(LOG_TAG, "Cannot complete an operation (" + operation + ")", e);
                     }
                 });
-        mLargePayloadDirectory = new File(Constants.FILES_PATH + PAYLOAD_LARGE_DIRECTORY);
 
-        //noinspection ResultOfMethodCallIgnored we handle errors at read/write time for each file.
-        mLargePayloadDirectory.mkdirs();
+        /* Store each target token once, logs reference it by identifier. */
+        mDatabaseStorage.createTable(TARGET_TOKEN_TABLE, TARGET_TOKEN_SCHEMA);
+
+        /* Likewise for devices, which are the same for most logs. */
+        mDatabaseStorage.createTable(DEVICE_TABLE, DEVICE_SCHEMA);
+
+        /* Index groups so that reading a batch does not scan the logs of other groups. */
+        mDatabaseStorage.createIndex(INDEX_GROUP, COLUMN_GROUP, DatabaseManager.PRIMARY_KEY);
+
+        /* When full, evict logs of the lowest priority first, oldest first. */
+        mDatabaseStorage.createIndex(INDEX_PRIORITY, COLUMN_PRIORITY, DatabaseManager.PRIMARY_KEY);
+
+        /* Compacting sums and scans the logs of each large payload segment, the index also covers upgraded databases. */
+        mDatabaseStorage.createIndex(INDEX_PAYLOAD_SEGMENT, COLUMN_PAYLOAD_SEGMENT, DatabaseManager.PRIMARY_KEY);
+        mDatabaseStorage.setEvictionPolicy(COLUMN_PRIORITY + ", " + DatabaseManager.PRIMARY_KEY, new DatabaseManager.EvictionListener() {
+
+            @Override
+            public void onEvicted(@NonNull List<ContentValues> rows) {
+                onLogsEvicted(rows);
+            }
+        }, COLUMN_GROUP, COLUMN_SIZE, COLUMN_PAYLOAD_SEGMENT);
+        mLargePayloadDirectory = new File(Constants.FILES_PATH + PAYLOAD_LARGE_DIRECTORY);
+        mLargePayloadStore = new LargePayloadStore(new File(Constants.FILES_PATH + PAYLOAD_SEGMENT_DIRECTORY), PAYLOAD_SEGMENT_MAX_SIZE);
     }
 
     /**
@@ -178,15 +401,52 @@ public class DatabasePersistence extends Persistence {
      *
      * @param group       The group of the storage for the log.
      * @param logJ        The JSON string for a log.
-     * @param targetToken target token if the log is common schema.
+     * @param targetToken   encrypted target token, only used by previous schema versions.
+     * @param targetTokenId target token identifier if the log is common schema.
+     * @param deviceId      device identifier if the device was removed from the stored log.
+     * @param segment       segment of the payload if too large to be stored in the row.
+     * @param offset        offset of the payload in its segment.
+     * @param type          log type.
+     * @param priority      eviction priority.
+     * @param size          size in bytes of the serialized log.
      * @return A {@link ContentValues} instance.
      */
-    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, String type) {
+    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, Long targetTokenId, Long deviceId, Long segment, Long offset, String type, int priority, long size) {
         ContentValues values = new ContentValues();
         values.put(COLUMN_GROUP, group);
         values.put(COLUMN_LOG, logJ);
         values.put(COLUMN_TARGET_TOKEN, targetToken);
+        values.put(COLUMN_TARGET_TOKEN_ID, targetTokenId);
+        values.put(COLUMN_DEVICE_ID, deviceId);
+        values.put(COLUMN_PAYLOAD_SEGMENT, segment);
+        values.put(COLUMN_PAYLOAD_OFFSET, offset);
         values.put(COLUMN_DATA_TYPE, type);
+        values.put(COLUMN_PRIORITY, priority);
+        values.put(COLUMN_SIZE, size);
+        return values;
+    }
+
+    /**
+     * Instantiates {@link ContentValues} of the target token table.
+     *
+     * @param token encrypted target token.
+     * @return A {@link ContentValues} instance.
+     */
+    private static ContentValues getTargetTokenContentValues(String token) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TOKEN, token);
+        return values;
+    }
+
+    /**
+     * Instantiates {@link ContentValues} of the device table.
+     *
+     * @param device serialized device.
+     * @return A {@link ContentValues} instance.
+     */
+    private static ContentValues getDeviceContentValues(String device) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DEVICE, device);
         return values;
     }
 
@@ -196,45 +456,343 @@ public class DatabasePersistence extends Persistence {
         /* Convert log to JSON string and put in the database. */
         try {
             AppCenterLog.debug(LOG_TAG, "Storing a log to the Persistence database for log type " + log.getType() + " with sid=" + log.getSid());
-            String payload = getLogSerializer().serializeLog(log);
-            ContentValues contentValues;
-            boolean isLargePayload = payload.getBytes("UTF-8").length >= PAYLOAD_MAX_SIZE;
-            String targetToken;
-            if (log instanceof CommonSchemaLog) {
-                targetToken = log.getTransmissionTargetTokens().iterator().next();
-                targetToken = CryptoUtils.getInstance(mContext).encrypt(targetToken);
-            } else {
-                targetToken = null;
+            EncodedLog encodedLog = encodeLog(log);
+            int size = encodedLog.mBytes.length;
+            LargePayloadStore.Location location = isLargePayload(size) ? writeLargePayload(encodedLog.mBytes) : null;
+            long databaseId = mDatabaseStorage.put(buildContentValues(group, log, encodedLog, location));
+            AppCenterLog.debug(LOG_TAG, "Stored a log to the Persistence database for log type " + log.getType() + " with databaseId=" + databaseId);
+            deleteUnusedDevices();
+            enforceGroupQuota(group, 1, size);
+            compactLargePayloads();
+            return databaseId;
+        } catch (JSONException e) {
+            throw new PersistenceException("Cannot convert to JSON string", e);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot save large payload in a file", e);
+        }
+    }
+
+    @Override
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs) {
+
+        /* Convert logs to JSON strings and put them in the database in a single transaction. */
+        AppCenterLog.debug(LOG_TAG, "Storing " + logs.size() + " log(s) to the Persistence database for " + group);
+        List<Long> databaseIds = new ArrayList<>(logs.size());
+        List<ContentValues> contentValuesList = new ArrayList<>(logs.size());
+        long byteCount = 0;
+        List<FutureTask<EncodedLog>> encodedLogs = encodeLogs(logs);
+        for (int i = 0; i < logs.size(); i++) {
+            Log log = logs.get(i);
+            try {
+                EncodedLog encodedLog = awaitEncodedLog(encodedLogs.get(i));
+                int size = encodedLog.mBytes.length;
+
+                /* Large payloads are written before their row, so they can be part of the same transaction. */
+                LargePayloadStore.Location location = isLargePayload(size) ? writeLargePayload(encodedLog.mBytes) : null;
+                contentValuesList.add(buildContentValues(group, log, encodedLog, location));
+                byteCount += size;
+            } catch (JSONException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot convert to JSON string a log of type " + log.getType(), e);
+            } catch (IOException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot save large payload in a file for a log of type " + log.getType(), e);
             }
-            if (isLargePayload) {
-                contentValues = getContentValues(group, null, targetToken, log.getType());
+        }
+        if (!contentValuesList.isEmpty()) {
+            databaseIds.addAll(mDatabaseStorage.put(contentValuesList));
+        }
+        AppCenterLog.debug(LOG_TAG, "Stored " + databaseIds.size() + " log(s) to the Persistence database for " + group);
+        deleteUnusedDevices();
+        enforceGroupQuota(group, databaseIds.size(), byteCount);
+        compactLargePayloads();
+        return databaseIds;
+    }
+
+    /**
+     * Checks if a serialized log is too large to be stored in a database row.
+     *
+     * @param size size in bytes of the serialized log.
+     * @return true if payload has to be stored in a separate file.
+     */
+    private static boolean isLargePayload(long size) {
+        return size >= PAYLOAD_MAX_SIZE;
+    }
+
+    /**
+     * Serializes the device of a log apart, to store it once and reference it.
+     * The bytes are still those of the log to send, they give the size and the content of a large payload.
+     */
+    @Override
+    EncodedLog encodeLog(Log log) throws JSONException, UnsupportedEncodingException {
+        StringBuilder device = new StringBuilder();
+        String payload = getLogSerializer().serializeLog(log, DEVICE, device);
+        if (device.length() == 0) {
+            return new EncodedLog(payload, encodePayload(payload), null);
+        }
+        return new EncodedLog(payload, encodePayload(restoreDevice(payload, device.toString())), device.toString());
+    }
+
+    /**
+     * Builds the database entry for a log.
+     *
+     * @param group      The group of the storage for the log.
+     * @param log        The log.
+     * @param encodedLog The serialized log.
+     * @param location   The location of the payload if too large to be stored in the row.
+     * @return A {@link ContentValues} instance.
+     */
+    private ContentValues buildContentValues(@NonNull String group, @NonNull Log log, EncodedLog encodedLog, LargePayloadStore.Location location) {
+        Long targetTokenId;
+        if (log instanceof CommonSchemaLog) {
+            targetTokenId = getTargetTokenId(log.getTransmissionTargetTokens().iterator().next());
+        } else {
+            targetTokenId = null;
+        }
+        int priority = getEvictionPolicy().getPriority(group, getGroupQuota(group));
+        int size = encodedLog.mBytes.length;
+        if (location != null) {
+            return getContentValues(group, null, null, targetTokenId, null, location.mSegment, location.mOffset, log.getType(), priority, size);
+        }
+        Long deviceId = encodedLog.mDevice == null ? null : getDeviceId(encodedLog.mDevice);
+        return getContentValues(group, encodedLog.mPayload, null, targetTokenId, deviceId, null, null, log.getType(), priority, size);
+    }
+
+    /**
+     * Puts back a device in a log serialized without it.
+     *
+     * @param payload serialized log without its device.
+     * @param device  serialized device.
+     * @return serialized log with its device.
+     * @throws JSONException if the payload is not a JSON object.
+     */
+    @VisibleForTesting
+    static String restoreDevice(String payload, String device) throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.object();
+        writer.rawMembers(payload);
+        writer.key(DEVICE);
+        writer.rawValue(device);
+        writer.endObject();
+        return writer.toString();
+    }
+
+    /**
+     * Gets a stored device.
+     *
+     * @param deviceId device identifier.
+     * @return serialized device.
+     * @throws JSONException if the device is not found.
+     */
+    private String getDevice(long deviceId) throws JSONException {
+        loadDevices();
+        String device = mDevices.get(deviceId);
+        if (device == null) {
+            throw new JSONException("Device not found.");
+        }
+        return device;
+    }
+
+    /**
+     * Gets the identifier of a serialized device, storing the device only the first time it's used.
+     *
+     * @param device serialized device.
+     * @return device identifier.
+     */
+    private long getDeviceId(String device) {
+        loadDevices();
+        Long deviceId = mDeviceIds.get(device);
+        if (deviceId == null) {
+            deviceId = mDatabaseStorage.put(DEVICE_TABLE, getDeviceContentValues(device));
+
+            /* Logs are in memory as well if the table cannot be used, only identifiers of this process matter. */
+            if (deviceId < 0) {
+                deviceId = mVolatileDeviceId--;
             } else {
-                contentValues = getContentValues(group, payload, targetToken, log.getType());
+                mDeviceStored = true;
             }
-            long databaseId = mDatabaseStorage.put(contentValues);
-            AppCenterLog.debug(LOG_TAG, "Stored a log to the Persistence database for log type " + log.getType() + " with databaseId=" + databaseId);
-            if (isLargePayload) {
-                AppCenterLog.debug(LOG_TAG, "Payload is larger than what SQLite supports, storing payload in a separate file.");
-                File directory = getLargePayloadGroupDirectory(group);
+            mDeviceIds.put(device, deviceId);
+            mDevices.put(deviceId, device);
+        }
+        return deviceId;
+    }
 
-                //noinspection ResultOfMethodCallIgnored we'll get an error anyway at write time.
-                directory.mkdir();
-                File payloadFile = getLargePayloadFile(directory, databaseId);
-                try {
-                    StorageHelper.InternalStorage.write(payloadFile, payload);
-                } catch (IOException e) {
+    /**
+     * Loads stored devices if not already done.
+     */
+    private void loadDevices() {
+        if (mDevices != null) {
+            return;
+        }
+        mDevices = new HashMap<>();
+        mDeviceIds = new HashMap<>();
+        int deleted = mDatabaseStorage.deleteUnreferenced(DEVICE_TABLE, COLUMN_DEVICE_ID);
+        if (deleted > 0) {
+            AppCenterLog.debug(LOG_TAG, "Deleted " + deleted + " unused device(s) from the Persistence database.");
+        }
+        for (ContentValues values : mDatabaseStorage.getAll(DEVICE_TABLE, DEVICE_SCHEMA)) {
+            Long deviceId = values.getAsLong(DatabaseManager.PRIMARY_KEY);
+            String device = values.getAsString(COLUMN_DEVICE);
+            if (deviceId != null && device != null) {
+                mDevices.put(deviceId, device);
+                mDeviceIds.put(device, deviceId);
+            }
+        }
+        AppCenterLog.debug(LOG_TAG, "Loaded " + mDevices.size() + " device(s) from the Persistence database.");
+    }
+
+    /**
+     * Deletes devices that no stored log references anymore, once the logs using a new device are stored.
+     * Devices only change between app launches or with settings, so this rarely runs.
+     */
+    private void deleteUnusedDevices() {
+        if (!mDeviceStored) {
+            return;
+        }
+        mDeviceStored = false;
+
+        /* Reload devices on next use so that deleted ones are released from memory too. */
+        int deleted = mDatabaseStorage.deleteUnreferenced(DEVICE_TABLE, COLUMN_DEVICE_ID);
+        if (deleted > 0) {
+            AppCenterLog.debug(LOG_TAG, "Deleted " + deleted + " unused device(s) from the Persistence database.");
+            mDevices = null;
+            mDeviceIds = null;
+        }
+    }
+
+    /**
+     * Gets the identifier of a target token, encrypting and storing the token only the first time it's used.
+     *
+     * @param targetToken target token.
+     * @return target token identifier.
+     */
+    private long getTargetTokenId(String targetToken) {
+        loadTargetTokens();
+        Long targetTokenId = mTargetTokenIds.get(targetToken);
+        if (targetTokenId == null) {
+            String encryptedToken = CryptoUtils.getInstance(mContext).encrypt(targetToken);
+            targetTokenId = mDatabaseStorage.put(TARGET_TOKEN_TABLE, getTargetTokenContentValues(encryptedToken));
+
+            /* Logs are in memory as well if the table cannot be used, only identifiers of this process matter. */
+            if (targetTokenId < 0) {
+                targetTokenId = mVolatileTargetTokenId--;
+            }
+            mTargetTokenIds.put(targetToken, targetTokenId);
+            mTargetTokens.put(targetTokenId, targetToken);
+        }
+        return targetTokenId;
+    }
+
+    /**
+     * Loads and decrypts stored target tokens if not already done.
+     */
+    private void loadTargetTokens() {
+        if (mTargetTokens != null) {
+            return;
+        }
+        mTargetTokens = new HashMap<>();
+        mTargetTokenIds = new HashMap<>();
+        CryptoUtils cryptoUtils = CryptoUtils.getInstance(mContext);
+        for (ContentValues values : mDatabaseStorage.getAll(TARGET_TOKEN_TABLE, TARGET_TOKEN_SCHEMA)) {
+            Long targetTokenId = values.getAsLong(DatabaseManager.PRIMARY_KEY);
+            String token = cryptoUtils.decrypt(values.getAsString(COLUMN_TOKEN), false).getDecryptedData();
+            if (targetTokenId != null && token != null) {
+                mTargetTokens.put(targetTokenId, token);
+                mTargetTokenIds.put(token, targetTokenId);
+            }
+        }
+        AppCenterLog.debug(LOG_TAG, "Loaded " + mTargetTokens.size() + " target token(s) from the Persistence database.");
+    }
+
+    /**
+     * Appends a payload too large for SQLite to a segment file.
+     * This is done before inserting the database entry, so that no entry is left without payload if writing fails.
+     *
+     * @param payload The serialized log encoded in UTF-8.
+     * @return The location of the payload to store in the database entry.
+     * @throws IOException if the segment file cannot be written.
+     */
+    private LargePayloadStore.Location writeLargePayload(byte[] payload) throws IOException {
+        AppCenterLog.debug(LOG_TAG, "Payload is larger than what SQLite supports, storing payload in a segment file.");
+        LargePayloadStore.Location location = mLargePayloadStore.append(payload);
+        AppCenterLog.debug(LOG_TAG, "Payload written to segment " + location.mSegment + " at offset " + location.mOffset);
+        return location;
+    }
+
+    /**
+     * Reads a payload stored in a segment file.
+     *
+     * @param segment The segment of the payload.
+     * @param offset  The offset of the payload in its segment.
+     * @param size    The size in bytes of the payload.
+     * @return The serialized log.
+     * @throws JSONException if the location is incomplete or the segment cannot be read.
+     */
+    private String readLargePayload(long segment, Long offset, Long size) throws JSONException {
+        if (offset == null || size == null) {
+            throw new JSONException("Log payload location is incomplete.");
+        }
+        try {
+            return mLargePayloadStore.read(segment, offset, size);
+        } catch (IOException e) {
+            JSONException exception = new JSONException("Cannot read log payload from segment " + segment + ": " + e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Deletes unused segment files once logs stored in segments were deleted.
+     * A segment that is no longer appended to and is mostly unused is compacted:
+     * its remaining payloads are moved to the current segment before deleting it.
+     */
+    private void compactLargePayloads() {
+        if (!mLargePayloadsReleased) {
+            return;
+        }
+        mLargePayloadsReleased = false;
+        for (long segment : mLargePayloadStore.getSegments()) {
+            long usedSize = mDatabaseStorage.sum(COLUMN_SIZE, COLUMN_PAYLOAD_SEGMENT, segment);
+            if (usedSize == 0) {
+                mLargePayloadStore.delete(segment);
+            } else if (!mLargePayloadStore.isCurrent(segment) && usedSize * 2 < mLargePayloadStore.getSize(segment)) {
+                moveLargePayloads(segment);
+            }
+        }
+    }
+
+    /**
+     * Moves the payloads of a segment to the current segment, then deletes the segment.
+     * The segment is kept if any payload cannot be moved.
+     *
+     * @param segment The segment to compact.
+     */
+    private void moveLargePayloads(long segment) {
 
-                    /* Remove database entry if we cannot save payload as a file. */
-                    mDatabaseStorage.delete(databaseId);
-                    throw e;
+        /* Collect rows first as moving a payload updates the rows matching the query. */
+        List<ContentValues> rows = new ArrayList<>();
+        DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_PAYLOAD_SEGMENT, segment, false);
+        for (ContentValues values : scanner) {
+            rows.add(values);
+        }
+        scanner.close();
+        AppCenterLog.debug(LOG_TAG, "Compacting large payload segment " + segment + " with " + rows.size() + " log(s).");
+        try {
+            for (ContentValues values : rows) {
+                Long databaseId = values.getAsLong(DatabaseManager.PRIMARY_KEY);
+                Long offset = values.getAsLong(COLUMN_PAYLOAD_OFFSET);
+                Long size = values.getAsLong(COLUMN_SIZE);
+                if (databaseId == null || offset == null || size == null) {
+                    continue;
                 }
-                AppCenterLog.debug(LOG_TAG, "Payload written to " + payloadFile);
+                byte[] payload = mLargePayloadStore.readBytes(segment, offset, size);
+                LargePayloadStore.Location location = mLargePayloadStore.append(payload);
+                ContentValues locationValues = new ContentValues();
+                locationValues.put(COLUMN_PAYLOAD_SEGMENT, location.mSegment);
+                locationValues.put(COLUMN_PAYLOAD_OFFSET, location.mOffset);
+                mDatabaseStorage.update(databaseId, locationValues);
             }
-            return databaseId;
-        } catch (JSONException e) {
-            throw new PersistenceException("Cannot convert to JSON string", e);
+            mLargePayloadStore.delete(segment);
         } catch (IOException e) {
-            throw new PersistenceException("Cannot save large payload in a file", e);
+            AppCenterLog.error(LOG_TAG, "Cannot compact large payload segment " + segment, e);
         }
     }
 
@@ -250,10 +808,125 @@ public class DatabasePersistence extends Persistence {
         return new File(directory, databaseId + PAYLOAD_FILE_EXTENSION);
     }
 
+    /**
+     * Evicts the oldest logs of a group that is over its quota.
+     *
+     * @param group     The group of the storage for the logs.
+     * @param logCount  The number of logs just stored.
+     * @param byteCount The size in bytes of the logs just stored.
+     */
+    private void enforceGroupQuota(@NonNull String group, int logCount, long byteCount) {
+        GroupQuota quota = getGroupQuota(group);
+        if (quota == null) {
+            return;
+        }
+
+        /* Load usage if unknown, it then already includes the logs just stored. */
+        GroupUsage usage = mGroupUsages.get(group);
+        if (usage == null) {
+            usage = new GroupUsage();
+            usage.mLogCount = countLogs(group);
+            usage.mByteCount = mDatabaseStorage.sum(COLUMN_SIZE, COLUMN_GROUP, group);
+            mGroupUsages.put(group, usage);
+        } else {
+            usage.mLogCount += logCount;
+            usage.mByteCount += byteCount;
+        }
+
+        /* Evict in bulk until the policy is satisfied. */
+        int evicted = 0;
+        File directory = getLargePayloadGroupDirectory(group);
+        int evictionCount;
+        while ((evictionCount = getEvictionPolicy().getEvictionCount(quota, usage.mLogCount, usage.mByteCount)) > 0) {
+            List<ContentValues> rows = mDatabaseStorage.evict(COLUMN_GROUP, group, evictionCount);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (ContentValues row : rows) {
+                usage.mLogCount--;
+                Long size = row.getAsLong(COLUMN_SIZE);
+                if (size != null) {
+                    usage.mByteCount -= size;
+                    releaseLargePayload(directory, row, size);
+                }
+                if (!isPending(row)) {
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            notifyLogsEvicted(group, evicted);
+        }
+    }
+
+    /**
+     * Handles logs evicted because the database was full.
+     *
+     * @param rows evicted rows, with group and size.
+     */
+    private void onLogsEvicted(List<ContentValues> rows) {
+        Map<String, Integer> evictedCounts = new HashMap<>();
+        for (ContentValues row : rows) {
+            String group = row.getAsString(COLUMN_GROUP);
+            if (group == null) {
+                continue;
+            }
+            Long size = row.getAsLong(COLUMN_SIZE);
+            if (size != null) {
+                releaseLargePayload(getLargePayloadGroupDirectory(group), row, size);
+            }
+            Integer count = evictedCounts.get(group);
+            if (count == null) {
+                count = 0;
+            }
+            evictedCounts.put(group, isPending(row) ? count : count + 1);
+        }
+        for (Map.Entry<String, Integer> entry : evictedCounts.entrySet()) {
+            mGroupUsages.remove(entry.getKey());
+            if (entry.getValue() > 0) {
+                notifyLogsEvicted(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Checks if an evicted row was returned by {@link #getLogs(String, int, List)} and is being sent.
+     * The channel no longer counts those logs, so they must not be reported as evicted.
+     *
+     * @param row evicted row.
+     * @return true if the log is part of a batch waiting to be deleted.
+     */
+    private boolean isPending(ContentValues row) {
+        Long id = row.getAsLong(DatabaseManager.PRIMARY_KEY);
+        return id != null && mPendingDbIdentifiers.contains(id);
+    }
+
+    /**
+     * Releases the payload of an evicted log if its payload was too large for a database row.
+     * Segment files are reclaimed by the next compaction, a file of a previous version is deleted.
+     *
+     * @param directory The large payload directory of the group.
+     * @param row       The evicted row.
+     * @param size      The size in bytes of the serialized log.
+     */
+    private void releaseLargePayload(File directory, ContentValues row, long size) {
+        Long id = row.getAsLong(DatabaseManager.PRIMARY_KEY);
+        if (id != null && isLargePayload(size)) {
+            if (row.getAsLong(COLUMN_PAYLOAD_SEGMENT) != null) {
+                mLargePayloadsReleased = true;
+            } else {
+
+                //noinspection ResultOfMethodCallIgnored SQLite delete does not have return type either.
+                getLargePayloadFile(directory, id).delete();
+            }
+        }
+    }
+
     private void deleteLog(File groupLargePayloadDirectory, long id) {
         //noinspection ResultOfMethodCallIgnored SQLite delete does not have return type either.
         getLargePayloadFile(groupLargePayloadDirectory, id).delete();
         mDatabaseStorage.delete(id);
+        mLargePayloadsReleased = true;
     }
 
     @Override
@@ -264,12 +937,35 @@ public class DatabasePersistence extends Persistence {
         AppCenterLog.debug(LOG_TAG, "The IDs for deleting log(s) is/are:");
 
         List<Long> dbIdentifiers = mPendingDbIdentifiersGroups.remove(group + id);
-        File directory = getLargePayloadGroupDirectory(group);
         if (dbIdentifiers != null) {
+            File directory = getLargePayloadGroupDirectory(group);
             for (Long dbIdentifier : dbIdentifiers) {
                 AppCenterLog.debug(LOG_TAG, "\t" + dbIdentifier);
-                deleteLog(directory, dbIdentifier);
                 mPendingDbIdentifiers.remove(dbIdentifier);
+
+                /* Only touch the file system for logs that were read from a file. */
+                if (mPendingLargePayloadDbIdentifiers.remove(dbIdentifier)) {
+
+                    //noinspection ResultOfMethodCallIgnored SQLite delete does not have return type either.
+                    getLargePayloadFile(directory, dbIdentifier).delete();
+                }
+                if (mPendingSegmentDbIdentifiers.remove(dbIdentifier)) {
+                    mLargePayloadsReleased = true;
+                }
+            }
+
+            /* Delete all rows of the batch with a single statement. */
+            mDatabaseStorage.delete(dbIdentifiers);
+            mGroupUsages.remove(group);
+            compactLargePayloads();
+
+            /* Reset watermark once no batch is pending, identifiers restart if we switched to in-memory database. */
+            Integer batchCount = mPendingBatchCounts.get(group);
+            if (batchCount == null || batchCount <= 1) {
+                mPendingBatchCounts.remove(group);
+                mPendingWatermarks.remove(group);
+            } else {
+                mPendingBatchCounts.put(group, batchCount - 1);
             }
         }
     }
@@ -280,7 +976,7 @@ public class DatabasePersistence extends Persistence {
         /* Log. */
         AppCenterLog.debug(LOG_TAG, "Deleting all logs from the Persistence database for " + group);
 
-        /* Delete large payload files */
+        /* Delete large payload files of previous versions. */
         File directory = getLargePayloadGroupDirectory(group);
         File[] files = directory.listFiles();
         if (files != null) {
@@ -294,16 +990,23 @@ public class DatabasePersistence extends Persistence {
         //noinspection ResultOfMethodCallIgnored we are not checking SQLite result either.
         directory.delete();
 
-        /* Delete from database. */
+        /* Delete from database, segment files are reclaimed by compaction. */
         mDatabaseStorage.delete(COLUMN_GROUP, group);
+        mLargePayloadsReleased = true;
 
         /* Delete from pending state. */
-        for (Iterator<String> iterator = mPendingDbIdentifiersGroups.keySet().iterator(); iterator.hasNext(); ) {
-            String key = iterator.next();
-            if (key.startsWith(group)) {
+        for (Iterator<Map.Entry<String, List<Long>>> iterator = mPendingDbIdentifiersGroups.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, List<Long>> entry = iterator.next();
+            if (entry.getKey().startsWith(group)) {
+                mPendingLargePayloadDbIdentifiers.removeAll(entry.getValue());
+                mPendingSegmentDbIdentifiers.removeAll(entry.getValue());
                 iterator.remove();
             }
         }
+        mPendingBatchCounts.remove(group);
+        mPendingWatermarks.remove(group);
+        mGroupUsages.remove(group);
+        compactLargePayloads();
     }
 
     @Override
@@ -323,12 +1026,16 @@ public class DatabasePersistence extends Persistence {
         /* Log. */
         AppCenterLog.debug(LOG_TAG, "Trying to get " + limit + " logs from the Persistence database for " + group);
 
-        /* Query database and get scanner. */
-        DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group);
+        /* Query only the logs inserted after the last pending one, no more than we need. */
+        Long watermark = mPendingWatermarks.get(group);
+        DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, watermark, limit, false);
 
         /* Add logs to output parameter after deserialization if logs are not already sent. */
         int count = 0;
-        Map<Long, Log> candidates = new TreeMap<>();
+        long byteCount = 0;
+        long maxBytes = getMaxBatchBytes(group);
+        boolean rawPayload = isRawPayload(group);
+        TreeMap<Long, Log> candidates = new TreeMap<>();
         List<Long> failedDbIdentifiers = new ArrayList<>();
         File largePayloadGroupDirectory = getLargePayloadGroupDirectory(group);
         for (Iterator<ContentValues> iterator = scanner.iterator(); iterator.hasNext() && count < limit; ) {
@@ -343,13 +1050,14 @@ public class DatabasePersistence extends Persistence {
              */
             if (dbIdentifier == null) {
                 AppCenterLog.error(LOG_TAG, "Empty database record, probably content was larger than 2MB, need to delete as it's now corrupted.");
-                DatabaseStorage.DatabaseScanner idScanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, true);
+                DatabaseStorage.DatabaseScanner idScanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, watermark, 0, true);
                 for (ContentValues idValues : idScanner) {
                     Long invalidId = idValues.getAsLong(DatabaseManager.PRIMARY_KEY);
                     if (!mPendingDbIdentifiers.contains(invalidId) && !candidates.containsKey(invalidId)) {
 
                         /* Found the record to delete that we could not read when selecting all fields. */
                         deleteLog(largePayloadGroupDirectory, invalidId);
+                        mGroupUsages.remove(group);
                         AppCenterLog.error(LOG_TAG, "Empty database corrupted empty record deleted, id=" + invalidId);
                         break;
                     }
@@ -360,12 +1068,31 @@ public class DatabasePersistence extends Persistence {
 
             /* If the log is already in pending state, then skip. Otherwise put the log to candidate container. */
             if (!mPendingDbIdentifiers.contains(dbIdentifier)) {
+
+                /* Stop before going over the byte budget, using the stored size so that large payloads are not read. */
+                String databasePayload = values.getAsString(COLUMN_LOG);
+                boolean isLargePayload = databasePayload == null;
+                Long payloadSegment = values.getAsLong(COLUMN_PAYLOAD_SEGMENT);
+                Long size = values.getAsLong(COLUMN_SIZE);
+                long logSize;
+                if (size != null) {
+                    logSize = size;
+                } else if (isLargePayload && payloadSegment == null) {
+                    logSize = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier).length();
+                } else {
+                    logSize = databasePayload.length();
+                }
+                if (maxBytes > 0 && count > 0 && byteCount + logSize > maxBytes) {
+                    AppCenterLog.debug(LOG_TAG, "Batch of " + count + " log(s) reached the limit of " + maxBytes + " bytes.");
+                    break;
+                }
                 try {
 
                     /* Deserialize JSON to Log. */
                     String logPayload;
-                    String databasePayload = values.getAsString(COLUMN_LOG);
-                    if (databasePayload == null) {
+                    if (isLargePayload && payloadSegment != null) {
+                        logPayload = readLargePayload(payloadSegment, values.getAsLong(COLUMN_PAYLOAD_OFFSET), size);
+                    } else if (isLargePayload) {
                         File file = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier);
                         AppCenterLog.debug(LOG_TAG, "Read payload file " + file);
                         logPayload = StorageHelper.InternalStorage.read(file);
@@ -375,18 +1102,51 @@ public class DatabasePersistence extends Persistence {
                     } else {
                         logPayload = databasePayload;
                     }
+                    Long deviceId = values.getAsLong(COLUMN_DEVICE_ID);
+                    if (deviceId != null) {
+                        logPayload = restoreDevice(logPayload, getDevice(deviceId));
+                    }
                     String databasePayloadType = values.getAsString(COLUMN_DATA_TYPE);
-                    Log log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
+                    Log log;
+                    if (rawPayload) {
+
+                        /* Keep the payload as is, it will be spliced in the request. */
+                        logPayload = logPayload.trim();
+                        if (!logPayload.startsWith("{") || !logPayload.endsWith("}")) {
+                            throw new JSONException("Log payload is not a JSON object.");
+                        }
+                        log = new SerializedLog(databasePayloadType, logPayload, getLogSerializer());
+                    } else {
+                        log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
+                    }
 
                     /* Restore target token. */
-                    String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
-                    if (targetToken != null) {
-                        CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken, false);
-                        log.addTransmissionTarget(data.getDecryptedData());
+                    Long targetTokenId = values.getAsLong(COLUMN_TARGET_TOKEN_ID);
+                    if (targetTokenId != null) {
+                        loadTargetTokens();
+                        String targetToken = mTargetTokens.get(targetTokenId);
+                        if (targetToken == null) {
+                            throw new JSONException("Target token not found.");
+                        }
+                        log.addTransmissionTarget(targetToken);
+                    } else {
+
+                        /* Logs stored by previous versions have their own encrypted copy of the token. */
+                        String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
+                        if (targetToken != null) {
+                            CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken, false);
+                            log.addTransmissionTarget(data.getDecryptedData());
+                        }
                     }
 
                     /* Add log to list and count. */
                     candidates.put(dbIdentifier, log);
+                    if (payloadSegment != null) {
+                        mPendingSegmentDbIdentifiers.add(dbIdentifier);
+                    } else if (isLargePayload) {
+                        mPendingLargePayloadDbIdentifiers.add(dbIdentifier);
+                    }
+                    byteCount += logSize;
                     count++;
                 } catch (JSONException e) {
 
@@ -405,7 +1165,9 @@ public class DatabasePersistence extends Persistence {
             for (long id : failedDbIdentifiers) {
                 deleteLog(largePayloadGroupDirectory, id);
             }
+            mGroupUsages.remove(group);
             AppCenterLog.warn(LOG_TAG, "Deleted logs that cannot be deserialized");
+            compactLargePayloads();
         }
 
         /* No logs found. */
@@ -434,24 +1196,56 @@ public class DatabasePersistence extends Persistence {
             /* Add to output parameter. */
             outLogs.add(entry.getValue());
 
-            /* Log. */
-            AppCenterLog.debug(LOG_TAG, "\t" + entry.getValue().getSid() + " / " + dbIdentifier);
+            /* Log, without deserializing logs kept serialized. */
+            Log log = entry.getValue();
+            AppCenterLog.debug(LOG_TAG, "\t" + (log instanceof SerializedLog ? log.getType() : log.getSid()) + " / " + dbIdentifier);
         }
 
         /* Update pending IDs. */
         mPendingDbIdentifiersGroups.put(group + id, pendingDbIdentifiersGroup);
+        Integer batchCount = mPendingBatchCounts.get(group);
+        mPendingBatchCounts.put(group, batchCount == null ? 1 : batchCount + 1);
+        Long maxDbIdentifier = candidates.lastKey();
+        if (watermark == null || maxDbIdentifier > watermark) {
+            mPendingWatermarks.put(group, maxDbIdentifier);
+        }
         return id;
     }
 
     @Override
     public void clearPendingLogState() {
         mPendingDbIdentifiers.clear();
+        mPendingLargePayloadDbIdentifiers.clear();
+        mPendingSegmentDbIdentifiers.clear();
         mPendingDbIdentifiersGroups.clear();
+        mPendingWatermarks.clear();
+        mPendingBatchCounts.clear();
         AppCenterLog.debug(LOG_TAG, "Cleared pending log states");
     }
 
+    @Override
+    public void setWriteAheadLogging(boolean enabled) {
+        mDatabaseStorage.setWriteAheadLogging(enabled);
+    }
+
     @Override
     public void close() {
         mDatabaseStorage.close();
     }
-}
\ No newline at end of file
+
+    /**
+     * Storage usage of a group.
+     */
+    private static class GroupUsage {
+
+        /**
+         * Number of logs.
+         */
+        int mLogCount;
+
+        /**
+         * Size in bytes of serialized logs.
+         */
+        long mByteCount;
+    }
+}
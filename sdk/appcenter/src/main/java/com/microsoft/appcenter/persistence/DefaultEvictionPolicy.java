@@ -0,0 +1,42 @@
+package com.microsoft.appcenter.persistence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Eviction policy using the priority of the group quota and enforcing its limits.
+ * A group over its limits has a tenth of its limit evicted in addition to the excess,
+ * so that eviction does not run on every log stored.
+ */
+public class DefaultEvictionPolicy implements EvictionPolicy {
+
+    /**
+     * Fraction of a limit evicted in addition to the excess.
+     */
+    @VisibleForTesting
+    static final int EVICTION_BATCH_RATIO = 10;
+
+    @Override
+    public int getPriority(@NonNull String group, @Nullable GroupQuota quota) {
+        return quota == null ? GroupQuota.PRIORITY_NORMAL : quota.getPriority();
+    }
+
+    @Override
+    public int getEvictionCount(@NonNull GroupQuota quota, int logCount, long byteCount) {
+        int count = 0;
+        int maxLogs = quota.getMaxLogs();
+        if (maxLogs > 0 && logCount > maxLogs) {
+            count = logCount - maxLogs + maxLogs / EVICTION_BATCH_RATIO;
+        }
+        long maxBytes = quota.getMaxBytes();
+        if (maxBytes > 0 && byteCount > maxBytes && logCount > 0) {
+
+            /* Sizes of the oldest logs are not known in advance, estimate with the average size. */
+            long excessBytes = byteCount - maxBytes + maxBytes / EVICTION_BATCH_RATIO;
+            long averageSize = Math.max(1, byteCount / logCount);
+            count = (int) Math.max(count, (excessBytes + averageSize - 1) / averageSize);
+        }
+        return Math.min(count, logCount);
+    }
+}
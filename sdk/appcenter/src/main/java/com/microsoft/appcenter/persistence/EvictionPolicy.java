@@ -0,0 +1,31 @@
+package com.microsoft.appcenter.persistence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Policy choosing which logs are evicted from persistence.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Get the eviction priority of logs stored in a group.
+     * When persistence is full, logs of the lowest priority are evicted first, oldest first for a same priority.
+     *
+     * @param group group name.
+     * @param quota quota of the group, null if the group has none.
+     * @return eviction priority.
+     */
+    int getPriority(@NonNull String group, @Nullable GroupQuota quota);
+
+    /**
+     * Get the number of oldest logs to evict from a group that has a quota after logs were stored in it.
+     * Called again after eviction until it returns 0.
+     *
+     * @param quota     quota of the group.
+     * @param logCount  number of logs in the group.
+     * @param byteCount size in bytes of serialized logs in the group.
+     * @return number of logs to evict, 0 for none.
+     */
+    int getEvictionCount(@NonNull GroupQuota quota, int logCount, long byteCount);
+}
@@ -0,0 +1,1152 @@
+package com.microsoft.appcenter.persistence;
+
+import android.content.Context;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
+import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
+import com.microsoft.appcenter.utils.AppCenterLog;
+import com.microsoft.appcenter.utils.UUIDUtils;
+import com.microsoft.appcenter.utils.crypto.CryptoUtils;
+
+import org.json.JSONException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+
+/**
+ * Persistence storing logs of each group in append-only segment files, as a first in first out queue.
+ * A record is made of a header with the length of its body, a checksum of the body and a state,
+ * then a body with the log type, the encrypted target token if any and the serialized log.
+ * Logs are read with a cursor per group, deleted records are only marked as deleted in their header,
+ * and a segment file is deleted once all its records are deleted.
+ */
+public class FilePersistence extends Persistence {
+
+    /**
+     * Directory of group directories, relative to the files directory.
+     */
+    private static final String DIRECTORY = "/appcenter/file_persistence";
+
+    /**
+     * Size in bytes after which a new segment is started.
+     */
+    private static final long SEGMENT_MAX_SIZE = 256 * 1024;
+
+    /**
+     * Segment file extension.
+     */
+    private static final String SEGMENT_FILE_EXTENSION = ".segment";
+
+    /**
+     * Record header size: body length, body checksum and state.
+     */
+    @VisibleForTesting
+    static final int HEADER_SIZE = 9;
+
+    /**
+     * Offset of the state in the record header.
+     */
+    @VisibleForTesting
+    static final int STATE_OFFSET = 8;
+
+    /**
+     * State of a record that was not deleted.
+     */
+    private static final byte STATE_LIVE = 0;
+
+    /**
+     * State of a deleted record.
+     */
+    private static final byte STATE_DELETED = 1;
+
+    /**
+     * When persistence is over capacity, this fraction of the capacity is evicted in addition to the excess.
+     */
+    private static final int EVICTION_BATCH_RATIO = 10;
+
+    /**
+     * Escape character of group directory names.
+     */
+    private static final char ESCAPE_CHARACTER = '%';
+
+    /**
+     * Escaped form of the escape character in group directory names.
+     */
+    private static final String ESCAPED_ESCAPE_CHARACTER = "%25";
+
+    /**
+     * Escaped form of the path separator in group directory names.
+     */
+    private static final String ESCAPED_SEPARATOR = "%2F";
+
+    /**
+     * Charset of log payloads.
+     */
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * Application context.
+     */
+    private final Context mContext;
+
+    /**
+     * Directory of group directories.
+     */
+    private final File mDirectory;
+
+    /**
+     * Size in bytes after which a new segment is started.
+     */
+    private final long mSegmentMaxSize;
+
+    /**
+     * Maximum number of logs across groups.
+     */
+    private final int mCapacity;
+
+    /**
+     * Queue of each group, loaded on first use.
+     */
+    private Map<String, GroupQueue> mGroupQueues;
+
+    /**
+     * Logs returned by {@link #getLogs(String, int, List)} and not yet deleted, by group and batch identifier.
+     */
+    private final Map<String, Batch> mBatches = new HashMap<>();
+
+    /**
+     * Encrypted target tokens by token, a token is encrypted once per process.
+     */
+    private final Map<String, String> mEncryptedTargetTokens = new HashMap<>();
+
+    /**
+     * Target tokens by encrypted token, a token is decrypted once per process.
+     */
+    private final Map<String, String> mDecryptedTargetTokens = new HashMap<>();
+
+    /**
+     * Initializes variables.
+     *
+     * @param context application context.
+     */
+    public FilePersistence(Context context) {
+        this(context, new File(Constants.FILES_PATH + DIRECTORY), SEGMENT_MAX_SIZE, Persistence.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes variables.
+     *
+     * @param context        application context.
+     * @param directory      directory of group directories.
+     * @param segmentMaxSize size in bytes after which a new segment is started.
+     * @param capacity       maximum number of logs across groups.
+     */
+    @VisibleForTesting
+    FilePersistence(Context context, File directory, long segmentMaxSize, int capacity) {
+        mContext = context;
+        mDirectory = directory;
+        mSegmentMaxSize = segmentMaxSize;
+        mCapacity = capacity;
+    }
+
+    @Override
+    public long putLog(@NonNull String group, @NonNull Log log) throws PersistenceException {
+        AppCenterLog.debug(LOG_TAG, "Storing a log to the Persistence files for log type " + log.getType() + " with sid=" + log.getSid());
+        byte[] record;
+        try {
+            String payload = getLogSerializer().serializeLog(log);
+            record = buildRecord(log, encodePayload(payload));
+        } catch (JSONException e) {
+            throw new PersistenceException("Cannot convert to JSON string", e);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot encode log", e);
+        }
+        GroupQueue queue = getGroupQueue(group);
+        List<Long> positions = new ArrayList<>(1);
+        try {
+            append(queue, Collections.singletonList(record), positions);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot write log to a segment file", e);
+        }
+        AppCenterLog.debug(LOG_TAG, "Stored a log to the Persistence files for log type " + log.getType() + " at position " + positions.get(0));
+        enforceLimits(queue);
+        return positions.get(0);
+    }
+
+    @Override
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs) {
+
+        /* Build all records then append them with as few writes as possible. */
+        AppCenterLog.debug(LOG_TAG, "Storing " + logs.size() + " log(s) to the Persistence files for " + group);
+        List<byte[]> records = new ArrayList<>(logs.size());
+        List<FutureTask<EncodedLog>> encodedLogs = encodeLogs(logs);
+        for (int i = 0; i < logs.size(); i++) {
+            Log log = logs.get(i);
+            try {
+                records.add(buildRecord(log, awaitEncodedLog(encodedLogs.get(i)).mBytes));
+            } catch (JSONException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot convert to JSON string a log of type " + log.getType(), e);
+            } catch (IOException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot encode a log of type " + log.getType(), e);
+            }
+        }
+        GroupQueue queue = getGroupQueue(group);
+        List<Long> positions = new ArrayList<>(records.size());
+        try {
+            append(queue, records, positions);
+        } catch (IOException e) {
+            AppCenterLog.error(LOG_TAG, "Cannot write " + (records.size() - positions.size()) + " log(s) to a segment file", e);
+        }
+        AppCenterLog.debug(LOG_TAG, "Stored " + positions.size() + " log(s) to the Persistence files for " + group);
+        enforceLimits(queue);
+        return positions;
+    }
+
+    /**
+     * Builds the record of a log.
+     *
+     * @param log     the log.
+     * @param payload UTF-8 bytes of the serialized log.
+     * @return record bytes, header included.
+     * @throws IOException if the record cannot be built.
+     */
+    private byte[] buildRecord(@NonNull Log log, @NonNull byte[] payload) throws IOException {
+        String encryptedTargetToken = "";
+        if (log instanceof CommonSchemaLog) {
+            encryptedTargetToken = encryptTargetToken(log.getTransmissionTargetTokens().iterator().next());
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(payload.length + 64);
+        DataOutputStream output = new DataOutputStream(body);
+        output.writeUTF(log.getType());
+        output.writeUTF(encryptedTargetToken);
+        output.write(payload);
+        output.flush();
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bodyBytes);
+        return ByteBuffer.allocate(HEADER_SIZE + bodyBytes.length)
+                .putInt(bodyBytes.length)
+                .putInt((int) checksum.getValue())
+                .put(STATE_LIVE)
+                .put(bodyBytes)
+                .array();
+    }
+
+    /**
+     * Appends records to the queue of a group, writing all records that fit in a segment at once.
+     *
+     * @param queue        group queue.
+     * @param records      records to append, in order.
+     * @param outPositions list receiving the positions of records that were written.
+     * @throws IOException if records cannot be written, positions of records written before the error are kept.
+     */
+    private void append(GroupQueue queue, List<byte[]> records, List<Long> outPositions) throws IOException {
+        Segment segment = queue.getWriteSegment();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        List<Long> positions = new ArrayList<>();
+        long offset = segment.mSize;
+        for (byte[] record : records) {
+            if (offset > 0 && offset + record.length > mSegmentMaxSize) {
+                write(queue, segment, buffer, positions.size());
+                outPositions.addAll(positions);
+                positions.clear();
+                buffer.reset();
+                segment = queue.startSegment();
+                offset = 0;
+            }
+            positions.add(getPosition(segment.mId, offset));
+            buffer.write(record, 0, record.length);
+            offset += record.length;
+        }
+        write(queue, segment, buffer, positions.size());
+        outPositions.addAll(positions);
+    }
+
+    /**
+     * Writes records at the end of a segment.
+     *
+     * @param queue   group queue.
+     * @param segment segment to write to, the write segment of the queue.
+     * @param buffer  records.
+     * @param count   number of records.
+     * @throws IOException if records cannot be written.
+     */
+    private void write(GroupQueue queue, Segment segment, ByteArrayOutputStream buffer, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (queue.mWriteFile == null) {
+
+            //noinspection ResultOfMethodCallIgnored we'll get an error anyway at open time.
+            queue.mDirectory.mkdirs();
+            queue.mWriteFile = new RandomAccessFile(getSegmentFile(queue, segment.mId), "rw");
+        }
+
+        /* Write at the known end of the segment, dropping partial bytes if the write fails. */
+        queue.mWriteFile.seek(segment.mSize);
+        try {
+            queue.mWriteFile.write(buffer.toByteArray());
+        } catch (IOException e) {
+            try {
+                queue.mWriteFile.setLength(segment.mSize);
+            } catch (IOException truncateException) {
+                AppCenterLog.warn(LOG_TAG, "Cannot truncate segment " + segment.mId + " of group " + queue.mName, truncateException);
+            }
+            throw e;
+        }
+        long byteCount = buffer.size() - (long) count * HEADER_SIZE;
+        segment.mSize += buffer.size();
+        segment.mRecordCount += count;
+        segment.mByteCount += byteCount;
+        queue.mLogCount += count;
+        queue.mByteCount += byteCount;
+    }
+
+    /**
+     * Evicts logs of a group over its quota, then logs of the lowest priority if persistence is over capacity.
+     *
+     * @param queue queue logs were just appended to.
+     */
+    private void enforceLimits(GroupQueue queue) {
+
+        /* Evict in bulk until the group quota is satisfied. */
+        GroupQuota quota = getGroupQuota(queue.mName);
+        if (quota != null) {
+            int evicted = 0;
+            int evictionCount;
+            while ((evictionCount = getEvictionPolicy().getEvictionCount(quota, queue.mLogCount, queue.mByteCount)) > 0) {
+                int logCount = queue.mLogCount;
+                evicted += evictOldest(queue, evictionCount);
+                if (queue.mLogCount == logCount) {
+                    break;
+                }
+            }
+            if (evicted > 0) {
+                notifyLogsEvicted(queue.mName, evicted);
+            }
+        }
+
+        /* Then make room for new logs in other groups as well if over capacity. */
+        int logCount = 0;
+        for (GroupQueue groupQueue : mGroupQueues.values()) {
+            logCount += groupQueue.mLogCount;
+        }
+        if (logCount <= mCapacity) {
+            return;
+        }
+        int evictionCount = logCount - mCapacity + mCapacity / EVICTION_BATCH_RATIO;
+        while (evictionCount > 0) {
+
+            /* Evict from the group of lowest priority, the group with the most logs for a same priority. */
+            GroupQueue victim = null;
+            int victimPriority = 0;
+            for (GroupQueue groupQueue : mGroupQueues.values()) {
+                if (groupQueue.mLogCount == 0) {
+                    continue;
+                }
+                int priority = getEvictionPolicy().getPriority(groupQueue.mName, getGroupQuota(groupQueue.mName));
+                if (victim == null || priority < victimPriority || (priority == victimPriority && groupQueue.mLogCount > victim.mLogCount)) {
+                    victim = groupQueue;
+                    victimPriority = priority;
+                }
+            }
+            if (victim == null) {
+                break;
+            }
+            int victimLogCount = victim.mLogCount;
+            int count = evictOldest(victim, Math.min(evictionCount, victimLogCount));
+            if (victim.mLogCount == victimLogCount) {
+                break;
+            }
+            if (count > 0) {
+                notifyLogsEvicted(victim.mName, count);
+            }
+            evictionCount -= victimLogCount - victim.mLogCount;
+        }
+    }
+
+    /**
+     * Deletes the oldest logs of a group, including logs returned by {@link #getLogs(String, int, List)}.
+     *
+     * @param queue group queue.
+     * @param count number of logs to delete.
+     * @return number of deleted logs that were not returned by {@link #getLogs(String, int, List)}.
+     */
+    private int evictOldest(GroupQueue queue, int count) {
+        TreeMap<Long, Integer> records = new TreeMap<>();
+        List<Segment> unreadableSegments = new ArrayList<>();
+        for (Segment segment : queue.mSegments.values()) {
+            if (records.size() >= count) {
+                break;
+            }
+            if (segment.mDeadCount >= segment.mRecordCount) {
+                continue;
+            }
+            try {
+                DataInputStream input = openSegment(queue, segment, 0);
+                try {
+                    long offset = 0;
+                    while (offset < segment.mSize && records.size() < count) {
+                        int length = input.readInt();
+                        input.readInt();
+                        byte state = input.readByte();
+                        skipFully(input, length);
+                        if (state == STATE_LIVE) {
+                            records.put(getPosition(segment.mId, offset), length);
+                        }
+                        offset += HEADER_SIZE + length;
+                    }
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot read segment " + segment.mId + " of group " + queue.mName, e);
+                unreadableSegments.add(segment);
+            }
+        }
+
+        /* Logs being sent are deleted too, deleting their batch later must not count them again. */
+        int pendingCount = queue.mPendingLengths.size();
+        for (Long position : records.keySet()) {
+            queue.mPendingLengths.remove(position);
+        }
+        deleteRecords(queue, records);
+        int evicted = records.size();
+        for (Segment segment : unreadableSegments) {
+            evicted += segment.mRecordCount - segment.mDeadCount;
+            dropSegment(queue, segment);
+        }
+
+        /* The channel no longer counts logs being sent, only report the others. */
+        return evicted - (pendingCount - queue.mPendingLengths.size());
+    }
+
+    @Override
+    public void deleteLogs(@NonNull String group, @NonNull String id) {
+        AppCenterLog.debug(LOG_TAG, "Deleting logs from the Persistence files for " + group + " with " + id);
+        Batch batch = mBatches.remove(group + id);
+        if (batch == null) {
+            return;
+        }
+        GroupQueue queue = getGroupQueue(group);
+        TreeMap<Long, Integer> records = new TreeMap<>();
+        for (Long position : batch.mPositions) {
+
+            /* Logs evicted meanwhile are no longer pending. */
+            Integer length = queue.mPendingLengths.remove(position);
+            if (length != null) {
+                records.put(position, length);
+            }
+        }
+        deleteRecords(queue, records);
+    }
+
+    @Override
+    public void deleteLogs(String group) {
+        AppCenterLog.debug(LOG_TAG, "Deleting all logs from the Persistence files for " + group);
+        GroupQueue queue = getGroupQueue(group);
+        for (Segment segment : new ArrayList<>(queue.mSegments.values())) {
+            dropSegment(queue, segment);
+        }
+
+        //noinspection ResultOfMethodCallIgnored we are not checking file deletions either.
+        queue.mDirectory.delete();
+        mGroupQueues.put(group, new GroupQueue(group, queue.mDirectory, queue.mNextSegment));
+        for (Iterator<Batch> iterator = mBatches.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().mGroup.equals(group)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Deletes records, deleting segments whose records are all deleted and marking the others as deleted in place.
+     *
+     * @param queue   group queue.
+     * @param records body length of records by position, in order.
+     */
+    private void deleteRecords(GroupQueue queue, TreeMap<Long, Integer> records) {
+        Iterator<Map.Entry<Long, Integer>> iterator = records.entrySet().iterator();
+        Map.Entry<Long, Integer> entry = iterator.hasNext() ? iterator.next() : null;
+        while (entry != null) {
+
+            /* Collect records of the same segment. */
+            long segmentId = getSegmentId(entry.getKey());
+            List<Long> offsets = new ArrayList<>();
+            long byteCount = 0;
+            while (entry != null && getSegmentId(entry.getKey()) == segmentId) {
+                offsets.add(getOffset(entry.getKey()));
+                byteCount += entry.getValue();
+                entry = iterator.hasNext() ? iterator.next() : null;
+            }
+            Segment segment = queue.mSegments.get(segmentId);
+            if (segment == null) {
+                continue;
+            }
+            segment.mDeadCount += offsets.size();
+            segment.mByteCount -= byteCount;
+            queue.mLogCount -= offsets.size();
+            queue.mByteCount -= byteCount;
+            if (segment.mDeadCount >= segment.mRecordCount) {
+                dropSegment(queue, segment);
+                continue;
+            }
+            try {
+                RandomAccessFile file = new RandomAccessFile(getSegmentFile(queue, segmentId), "rw");
+                try {
+                    for (Long offset : offsets) {
+                        file.seek(offset + STATE_OFFSET);
+                        file.write(STATE_DELETED);
+                    }
+                } finally {
+                    file.close();
+                }
+            } catch (IOException e) {
+
+                /* Logs would be sent again after a restart. */
+                AppCenterLog.error(LOG_TAG, "Cannot mark logs as deleted in segment " + segmentId + " of group " + queue.mName, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes a segment file with all its records.
+     *
+     * @param queue   group queue.
+     * @param segment segment to delete.
+     */
+    private void dropSegment(GroupQueue queue, Segment segment) {
+        queue.mSegments.remove(segment.mId);
+        queue.mLogCount -= segment.mRecordCount - segment.mDeadCount;
+        queue.mByteCount -= segment.mByteCount;
+        for (Iterator<Long> iterator = queue.mPendingLengths.keySet().iterator(); iterator.hasNext(); ) {
+            if (getSegmentId(iterator.next()) == segment.mId) {
+                iterator.remove();
+            }
+        }
+        if (segment == queue.mWriteSegment) {
+            queue.closeWriteFile();
+            queue.mWriteSegment = null;
+        }
+
+        //noinspection ResultOfMethodCallIgnored we are not checking file deletions either.
+        getSegmentFile(queue, segment.mId).delete();
+        AppCenterLog.debug(LOG_TAG, "Deleted segment " + segment.mId + " of group " + queue.mName);
+    }
+
+    @Override
+    public int countLogs(@NonNull String group) {
+        return getGroupQueue(group).mLogCount;
+    }
+
+    @Override
+    @Nullable
+    public String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @NonNull List<Log> outLogs) {
+        AppCenterLog.debug(LOG_TAG, "Trying to get " + limit + " logs from the Persistence files for " + group);
+        GroupQueue queue = getGroupQueue(group);
+        long maxBytes = getMaxBatchBytes(group);
+        boolean rawPayload = isRawPayload(group);
+        List<Log> logs = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        TreeMap<Long, Integer> lengths = new TreeMap<>();
+        TreeMap<Long, Integer> invalidRecords = new TreeMap<>();
+        List<Segment> unreadableSegments = new ArrayList<>();
+        long byteCount = 0;
+        boolean batchFull = false;
+
+        /* Read from the cursor, records before it are being sent or deleted. */
+        for (Segment segment : queue.mSegments.tailMap(queue.mReadSegment, true).values()) {
+            long offset = segment.mId == queue.mReadSegment ? queue.mReadOffset : 0;
+            if (offset < segment.mSize) {
+                try {
+                    DataInputStream input = openSegment(queue, segment, offset);
+                    try {
+                        while (offset < segment.mSize && logs.size() < limit) {
+                            int length = input.readInt();
+                            int checksum = input.readInt();
+                            byte state = input.readByte();
+                            long position = getPosition(segment.mId, offset);
+                            if (state != STATE_LIVE) {
+                                skipFully(input, length);
+                                offset += HEADER_SIZE + length;
+                                continue;
+                            }
+                            byte[] body = new byte[length];
+                            input.readFully(body);
+                            try {
+                                Record record = parseRecord(body, checksum);
+
+                                /* Stop before going over the byte budget, the cursor stays on this record. */
+                                if (maxBytes > 0 && !logs.isEmpty() && byteCount + record.mPayloadSize > maxBytes) {
+                                    AppCenterLog.debug(LOG_TAG, "Batch of " + logs.size() + " log(s) reached the limit of " + maxBytes + " bytes.");
+                                    batchFull = true;
+                                    break;
+                                }
+                                logs.add(toLog(record, rawPayload));
+                                positions.add(position);
+                                lengths.put(position, length);
+                                byteCount += record.mPayloadSize;
+                            } catch (JSONException e) {
+
+                                /* If it is not able to deserialize, delete and get another log. */
+                                AppCenterLog.error(LOG_TAG, "Cannot deserialize a log in the Persistence files", e);
+                                invalidRecords.put(position, length);
+                            }
+                            offset += HEADER_SIZE + length;
+                        }
+                    } finally {
+                        input.close();
+                    }
+                } catch (IOException e) {
+                    AppCenterLog.error(LOG_TAG, "Cannot read segment " + segment.mId + " of group " + group, e);
+                    unreadableSegments.add(segment);
+                    offset = segment.mSize;
+                }
+            }
+            queue.mReadSegment = segment.mId;
+            queue.mReadOffset = offset;
+            if (batchFull || logs.size() >= limit) {
+                break;
+            }
+        }
+
+        /* Delete what cannot be read, without notifying eviction like database persistence. */
+        deleteRecords(queue, invalidRecords);
+        for (Segment segment : unreadableSegments) {
+            dropSegment(queue, segment);
+        }
+        if (logs.isEmpty()) {
+            AppCenterLog.debug(LOG_TAG, "No logs found in the Persistence files at the moment");
+            return null;
+        }
+
+        /* Keep returned logs pending until their batch is deleted. */
+        String id = UUIDUtils.randomUUID().toString();
+        AppCenterLog.debug(LOG_TAG, "Returning " + logs.size() + " log(s) with an ID, " + id);
+        queue.mPendingLengths.putAll(lengths);
+        mBatches.put(group + id, new Batch(group, positions));
+        outLogs.addAll(logs);
+        return id;
+    }
+
+    /**
+     * Parses and checks the body of a record.
+     *
+     * @param body     record body.
+     * @param checksum checksum from the record header.
+     * @return parsed record.
+     * @throws JSONException if the record is corrupted.
+     */
+    private static Record parseRecord(byte[] body, int checksum) throws JSONException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(body);
+        if ((int) crc32.getValue() != checksum) {
+            throw new JSONException("Log record checksum does not match.");
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(body));
+            String type = input.readUTF();
+            String encryptedTargetToken = input.readUTF();
+            int payloadOffset = body.length - input.available();
+            String payload = new String(body, payloadOffset, body.length - payloadOffset, UTF_8);
+            return new Record(type, encryptedTargetToken, payload, body.length - payloadOffset);
+        } catch (IOException e) {
+            throw new JSONException("Log record is corrupted.");
+        }
+    }
+
+    /**
+     * Converts a record to a log.
+     *
+     * @param record     parsed record.
+     * @param rawPayload true to keep the serialized log, false to deserialize it.
+     * @return log.
+     * @throws JSONException if the log cannot be deserialized.
+     */
+    private Log toLog(Record record, boolean rawPayload) throws JSONException {
+        Log log;
+        if (rawPayload) {
+
+            /* Keep the payload as is, it will be spliced in the request. */
+            String payload = record.mPayload.trim();
+            if (!payload.startsWith("{") || !payload.endsWith("}")) {
+                throw new JSONException("Log payload is not a JSON object.");
+            }
+            log = new SerializedLog(record.mType, payload, getLogSerializer());
+        } else {
+            log = getLogSerializer().deserializeLog(record.mPayload, record.mType);
+        }
+        if (!record.mEncryptedTargetToken.isEmpty()) {
+            log.addTransmissionTarget(decryptTargetToken(record.mEncryptedTargetToken));
+        }
+        return log;
+    }
+
+    /**
+     * Encrypts a target token, only the first time it's used.
+     *
+     * @param targetToken target token.
+     * @return encrypted target token.
+     */
+    private String encryptTargetToken(String targetToken) {
+        String encryptedTargetToken = mEncryptedTargetTokens.get(targetToken);
+        if (encryptedTargetToken == null) {
+            encryptedTargetToken = CryptoUtils.getInstance(mContext).encrypt(targetToken);
+            mEncryptedTargetTokens.put(targetToken, encryptedTargetToken);
+            mDecryptedTargetTokens.put(encryptedTargetToken, targetToken);
+        }
+        return encryptedTargetToken;
+    }
+
+    /**
+     * Decrypts a target token, only the first time it's read.
+     *
+     * @param encryptedTargetToken encrypted target token.
+     * @return target token.
+     */
+    private String decryptTargetToken(String encryptedTargetToken) {
+        String targetToken = mDecryptedTargetTokens.get(encryptedTargetToken);
+        if (targetToken == null) {
+            targetToken = CryptoUtils.getInstance(mContext).decrypt(encryptedTargetToken, false).getDecryptedData();
+            mDecryptedTargetTokens.put(encryptedTargetToken, targetToken);
+        }
+        return targetToken;
+    }
+
+    @Override
+    public void clearPendingLogState() {
+
+        /* Logs being sent are read again from the start of each queue. */
+        if (mGroupQueues != null) {
+            for (GroupQueue queue : mGroupQueues.values()) {
+                queue.mPendingLengths.clear();
+                queue.mReadSegment = 0;
+                queue.mReadOffset = 0;
+            }
+        }
+        mBatches.clear();
+        AppCenterLog.debug(LOG_TAG, "Cleared pending log states");
+    }
+
+    @Override
+    public void close() {
+        if (mGroupQueues != null) {
+            for (GroupQueue queue : mGroupQueues.values()) {
+                queue.closeWriteFile();
+            }
+        }
+    }
+
+    /**
+     * Gets the queue of a group, loading all queues the first time.
+     *
+     * @param group group name.
+     * @return group queue.
+     */
+    private GroupQueue getGroupQueue(@NonNull String group) {
+        if (mGroupQueues == null) {
+            mGroupQueues = new HashMap<>();
+            File[] directories = mDirectory.listFiles();
+            if (directories != null) {
+                for (File directory : directories) {
+                    if (directory.isDirectory()) {
+                        String name = getGroupName(directory.getName());
+                        mGroupQueues.put(name, loadGroupQueue(name, directory));
+                    }
+                }
+            }
+        }
+        GroupQueue queue = mGroupQueues.get(group);
+        if (queue == null) {
+            queue = new GroupQueue(group, new File(mDirectory, getDirectoryName(group)), 0);
+            mGroupQueues.put(group, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Gets the directory name of a group. Group names can contain path separators,
+     * such as One Collector groups, those are escaped so that every group has a flat directory.
+     *
+     * @param group group name.
+     * @return directory name.
+     */
+    @VisibleForTesting
+    static String getDirectoryName(@NonNull String group) {
+        return group.replace(String.valueOf(ESCAPE_CHARACTER), ESCAPED_ESCAPE_CHARACTER).replace("/", ESCAPED_SEPARATOR);
+    }
+
+    /**
+     * Gets the group name of a directory, reverting {@link #getDirectoryName(String)}.
+     *
+     * @param directoryName directory name.
+     * @return group name.
+     */
+    @VisibleForTesting
+    static String getGroupName(@NonNull String directoryName) {
+        StringBuilder group = new StringBuilder(directoryName.length());
+        for (int i = 0; i < directoryName.length(); i++) {
+            char c = directoryName.charAt(i);
+            if (c == ESCAPE_CHARACTER && directoryName.startsWith(ESCAPED_SEPARATOR, i)) {
+                group.append('/');
+                i += ESCAPED_SEPARATOR.length() - 1;
+            } else if (c == ESCAPE_CHARACTER && directoryName.startsWith(ESCAPED_ESCAPE_CHARACTER, i)) {
+                group.append(ESCAPE_CHARACTER);
+                i += ESCAPED_ESCAPE_CHARACTER.length() - 1;
+            } else {
+                group.append(c);
+            }
+        }
+        return group.toString();
+    }
+
+    /**
+     * Loads the segments of a group, truncating a record that was not fully written.
+     *
+     * @param group     group name.
+     * @param directory group directory.
+     * @return group queue.
+     */
+    private GroupQueue loadGroupQueue(String group, File directory) {
+        GroupQueue queue = new GroupQueue(group, directory, 0);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(SEGMENT_FILE_EXTENSION)) {
+                    continue;
+                }
+                try {
+                    long segmentId = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_EXTENSION.length()));
+                    queue.mSegments.put(segmentId, loadSegment(segmentId, file));
+                } catch (NumberFormatException e) {
+                    AppCenterLog.warn(LOG_TAG, "Ignoring unexpected file in Persistence files: " + name);
+                } catch (IOException e) {
+                    AppCenterLog.error(LOG_TAG, "Cannot read segment file " + file, e);
+                }
+            }
+        }
+        for (Segment segment : queue.mSegments.values()) {
+            queue.mLogCount += segment.mRecordCount - segment.mDeadCount;
+            queue.mByteCount += segment.mByteCount;
+        }
+
+        /* Keep appending to the last segment of the previous process. */
+        if (!queue.mSegments.isEmpty()) {
+            Segment lastSegment = queue.mSegments.lastEntry().getValue();
+            queue.mNextSegment = lastSegment.mId + 1;
+            if (lastSegment.mSize < mSegmentMaxSize) {
+                queue.mWriteSegment = lastSegment;
+            }
+        }
+        AppCenterLog.debug(LOG_TAG, "Found " + queue.mLogCount + " log(s) in " + queue.mSegments.size() + " segment(s) for " + group);
+        return queue;
+    }
+
+    /**
+     * Reads record headers of a segment file.
+     *
+     * @param segmentId segment identifier.
+     * @param file      segment file.
+     * @return segment.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Segment loadSegment(long segmentId, File file) throws IOException {
+        Segment segment = new Segment(segmentId);
+        long fileSize = file.length();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            while (segment.mSize + HEADER_SIZE <= fileSize) {
+                int length = input.readInt();
+                input.readInt();
+                byte state = input.readByte();
+                if (length < 0 || segment.mSize + HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                skipFully(input, length);
+                segment.mSize += HEADER_SIZE + length;
+                segment.mRecordCount++;
+                if (state == STATE_LIVE) {
+                    segment.mByteCount += length;
+                } else {
+                    segment.mDeadCount++;
+                }
+            }
+        } finally {
+            input.close();
+        }
+
+        /* Drop the end of a write that did not complete. */
+        if (segment.mSize < fileSize) {
+            AppCenterLog.warn(LOG_TAG, "Truncating incomplete record in segment file " + file);
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                randomAccessFile.setLength(segment.mSize);
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Opens a segment for reading.
+     *
+     * @param queue   group queue.
+     * @param segment segment.
+     * @param offset  offset to start reading at.
+     * @return input stream.
+     * @throws IOException if the segment cannot be opened.
+     */
+    private DataInputStream openSegment(GroupQueue queue, Segment segment, long offset) throws IOException {
+        FileInputStream input = new FileInputStream(getSegmentFile(queue, segment.mId));
+        try {
+            input.getChannel().position(offset);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        return new DataInputStream(new BufferedInputStream(input));
+    }
+
+    private static void skipFully(DataInputStream input, int count) throws IOException {
+        if (input.skipBytes(count) < count) {
+            throw new EOFException();
+        }
+    }
+
+    @NonNull
+    private static File getSegmentFile(GroupQueue queue, long segmentId) {
+        return new File(queue.mDirectory, segmentId + SEGMENT_FILE_EXTENSION);
+    }
+
+    @VisibleForTesting
+    static long getPosition(long segmentId, long offset) {
+        return segmentId << 32 | offset;
+    }
+
+    private static long getSegmentId(long position) {
+        return position >>> 32;
+    }
+
+    private static long getOffset(long position) {
+        return position & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Queue of segments of a group.
+     */
+    private class GroupQueue {
+
+        /**
+         * Group name.
+         */
+        final String mName;
+
+        /**
+         * Group directory.
+         */
+        final File mDirectory;
+
+        /**
+         * Segments by identifier.
+         */
+        final TreeMap<Long, Segment> mSegments = new TreeMap<>();
+
+        /**
+         * Body length of logs being sent by position.
+         */
+        final Map<Long, Integer> mPendingLengths = new HashMap<>();
+
+        /**
+         * Identifier of the next segment to start.
+         */
+        long mNextSegment;
+
+        /**
+         * Segment records are appended to, null if a new segment must be started.
+         */
+        Segment mWriteSegment;
+
+        /**
+         * Open file of the write segment.
+         */
+        RandomAccessFile mWriteFile;
+
+        /**
+         * Segment of the read cursor, reading continues in the next segment if it was deleted.
+         */
+        long mReadSegment;
+
+        /**
+         * Offset of the read cursor.
+         */
+        long mReadOffset;
+
+        /**
+         * Number of logs.
+         */
+        int mLogCount;
+
+        /**
+         * Size in bytes of log records.
+         */
+        long mByteCount;
+
+        GroupQueue(String name, File directory, long nextSegment) {
+            mName = name;
+            mDirectory = directory;
+            mNextSegment = nextSegment;
+        }
+
+        /**
+         * Gets the segment records are appended to, starting one if needed.
+         *
+         * @return write segment.
+         */
+        Segment getWriteSegment() {
+            return mWriteSegment == null ? startSegment() : mWriteSegment;
+        }
+
+        /**
+         * Starts a new write segment.
+         *
+         * @return new write segment.
+         */
+        Segment startSegment() {
+            closeWriteFile();
+            mWriteSegment = new Segment(mNextSegment++);
+            mSegments.put(mWriteSegment.mId, mWriteSegment);
+            return mWriteSegment;
+        }
+
+        /**
+         * Closes the file of the write segment if open.
+         */
+        void closeWriteFile() {
+            if (mWriteFile != null) {
+                try {
+                    mWriteFile.close();
+                } catch (IOException e) {
+                    AppCenterLog.warn(LOG_TAG, "Closing segment file failed", e);
+                }
+                mWriteFile = null;
+            }
+        }
+    }
+
+    /**
+     * Segment file state.
+     */
+    private static class Segment {
+
+        /**
+         * Segment identifier.
+         */
+        final long mId;
+
+        /**
+         * Size in bytes of complete records.
+         */
+        long mSize;
+
+        /**
+         * Number of records, deleted ones included.
+         */
+        int mRecordCount;
+
+        /**
+         * Number of deleted records.
+         */
+        int mDeadCount;
+
+        /**
+         * Size in bytes of bodies of records not deleted.
+         */
+        long mByteCount;
+
+        Segment(long id) {
+            mId = id;
+        }
+    }
+
+    /**
+     * Parsed record body.
+     */
+    private static class Record {
+
+        /**
+         * Log type.
+         */
+        final String mType;
+
+        /**
+         * Encrypted target token, empty if none.
+         */
+        final String mEncryptedTargetToken;
+
+        /**
+         * Serialized log.
+         */
+        final String mPayload;
+
+        /**
+         * Size in bytes of the serialized log.
+         */
+        final int mPayloadSize;
+
+        Record(String type, String encryptedTargetToken, String payload, int payloadSize) {
+            mType = type;
+            mEncryptedTargetToken = encryptedTargetToken;
+            mPayload = payload;
+            mPayloadSize = payloadSize;
+        }
+    }
+
+    /**
+     * Logs returned together by {@link #getLogs(String, int, List)}.
+     */
+    private static class Batch {
+
+        /**
+         * Group name.
+         */
+        final String mGroup;
+
+        /**
+         * Record positions.
+         */
+        final List<Long> mPositions;
+
+        Batch(String group, List<Long> positions) {
+            mGroup = group;
+            mPositions = positions;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.microsoft.appcenter.persistence;
+
+/**
+ * Storage quota of a log group.
+ * When persistence is full, logs of the lowest priority are evicted first.
+ * A group going over its own log count or byte limit has its oldest logs evicted regardless of other groups.
+ */
+public class GroupQuota {
+
+    /**
+     * Priority of logs that can be evicted first, like analytics events.
+     */
+    public static final int PRIORITY_LOW = 0;
+
+    /**
+     * Priority of groups without a quota.
+     */
+    public static final int PRIORITY_NORMAL = 1;
+
+    /**
+     * Priority of logs to keep as long as possible, like crash reports.
+     */
+    public static final int PRIORITY_HIGH = 2;
+
+    /**
+     * Eviction priority.
+     */
+    private final int mPriority;
+
+    /**
+     * Maximum number of logs, 0 for no limit.
+     */
+    private final int mMaxLogs;
+
+    /**
+     * Maximum size in bytes of serialized logs, 0 for no limit.
+     */
+    private final long mMaxBytes;
+
+    /**
+     * Init.
+     *
+     * @param priority eviction priority, logs of lower priority are evicted first when persistence is full.
+     * @param maxLogs  maximum number of logs of the group, 0 for no limit.
+     * @param maxBytes maximum size in bytes of serialized logs of the group, 0 for no limit.
+     */
+    public GroupQuota(int priority, int maxLogs, long maxBytes) {
+        if (maxLogs < 0) {
+            throw new IllegalArgumentException("maxLogs must not be negative.");
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative.");
+        }
+        mPriority = priority;
+        mMaxLogs = maxLogs;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Get eviction priority.
+     *
+     * @return eviction priority.
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Get maximum number of logs.
+     *
+     * @return maximum number of logs, 0 for no limit.
+     */
+    public int getMaxLogs() {
+        return mMaxLogs;
+    }
+
+    /**
+     * Get maximum size in bytes of serialized logs.
+     *
+     * @return maximum size in bytes, 0 for no limit.
+     */
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+}
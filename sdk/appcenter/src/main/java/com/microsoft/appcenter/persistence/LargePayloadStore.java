@@ -0,0 +1,259 @@
+package com.microsoft.appcenter.persistence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+
+/**
+ * Append-only store of payloads too large for a database row.
+ * Payloads are appended to segment files and referenced by segment, offset and length.
+ * Payloads are never deleted individually: a segment is deleted or compacted by the caller once enough of it is unused.
+ */
+class LargePayloadStore {
+
+    /**
+     * Segment file extension.
+     */
+    private static final String SEGMENT_FILE_EXTENSION = ".segment";
+
+    /**
+     * Charset of payloads.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Directory of segment files.
+     */
+    private final File mDirectory;
+
+    /**
+     * Size in bytes after which a new segment is started.
+     */
+    private final long mSegmentMaxSize;
+
+    /**
+     * Size in bytes of each segment by identifier, loaded on first use.
+     */
+    private TreeMap<Long, Long> mSegmentSizes;
+
+    /**
+     * Identifier of the segment payloads are appended to, -1 if a new segment must be started.
+     */
+    private long mCurrentSegment = -1;
+
+    /**
+     * Identifier of the next segment to start.
+     */
+    private long mNextSegment;
+
+    /**
+     * Init.
+     *
+     * @param directory      directory of segment files, created when the first payload is appended.
+     * @param segmentMaxSize size in bytes after which a new segment is started.
+     */
+    LargePayloadStore(@NonNull File directory, long segmentMaxSize) {
+        mDirectory = directory;
+        mSegmentMaxSize = segmentMaxSize;
+    }
+
+    /**
+     * Appends a payload to the current segment, starting a new segment if the current one is full.
+     *
+     * @param payload payload bytes.
+     * @return location of the payload.
+     * @throws IOException if the payload cannot be written.
+     */
+    @NonNull
+    Location append(@NonNull byte[] payload) throws IOException {
+        loadSegments();
+        long offset = getSize(mCurrentSegment);
+        if (mCurrentSegment < 0 || (offset > 0 && offset + payload.length > mSegmentMaxSize)) {
+            mCurrentSegment = mNextSegment++;
+            offset = 0;
+        }
+        long segment = mCurrentSegment;
+
+        //noinspection ResultOfMethodCallIgnored we'll get an error anyway at write time.
+        mDirectory.mkdirs();
+
+        /* Write at the known end of the segment, overwriting whatever a failed write may have left. */
+        RandomAccessFile file = new RandomAccessFile(getSegmentFile(segment), "rw");
+        try {
+            file.seek(offset);
+            file.write(payload);
+        } finally {
+            file.close();
+        }
+        mSegmentSizes.put(segment, offset + payload.length);
+        return new Location(segment, offset);
+    }
+
+    /**
+     * Reads a payload through a memory mapping of its segment.
+     *
+     * @param segment segment identifier.
+     * @param offset  offset of the payload in the segment.
+     * @param length  length in bytes of the payload.
+     * @return payload decoded from UTF-8.
+     * @throws IOException if the segment cannot be read or does not contain the payload.
+     */
+    @NonNull
+    String read(long segment, long offset, long length) throws IOException {
+        return UTF_8.decode(map(segment, offset, length)).toString();
+    }
+
+    /**
+     * Reads payload bytes through a memory mapping of its segment.
+     *
+     * @param segment segment identifier.
+     * @param offset  offset of the payload in the segment.
+     * @param length  length in bytes of the payload.
+     * @return payload bytes.
+     * @throws IOException if the segment cannot be read or does not contain the payload.
+     */
+    @NonNull
+    byte[] readBytes(long segment, long offset, long length) throws IOException {
+        ByteBuffer buffer = map(segment, offset, length);
+        byte[] payload = new byte[buffer.remaining()];
+        buffer.get(payload);
+        return payload;
+    }
+
+    private MappedByteBuffer map(long segment, long offset, long length) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getSegmentFile(segment), "r");
+        try {
+            if (offset < 0 || length < 0 || offset + length > file.length()) {
+                throw new IOException("Payload is outside of segment " + segment + ".");
+            }
+
+            /* The mapping remains valid after the file is closed. */
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Gets the identifiers of existing segments.
+     *
+     * @return segment identifiers in increasing order.
+     */
+    @NonNull
+    List<Long> getSegments() {
+        loadSegments();
+        return new ArrayList<>(mSegmentSizes.keySet());
+    }
+
+    /**
+     * Gets the size of a segment.
+     *
+     * @param segment segment identifier.
+     * @return size in bytes, 0 if the segment does not exist.
+     */
+    long getSize(long segment) {
+        loadSegments();
+        Long size = mSegmentSizes.get(segment);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Checks if payloads are currently appended to a segment.
+     *
+     * @param segment segment identifier.
+     * @return true if payloads are appended to this segment.
+     */
+    boolean isCurrent(long segment) {
+        loadSegments();
+        return segment == mCurrentSegment;
+    }
+
+    /**
+     * Deletes a segment with all its payloads.
+     *
+     * @param segment segment identifier.
+     */
+    void delete(long segment) {
+        loadSegments();
+        mSegmentSizes.remove(segment);
+        if (segment == mCurrentSegment) {
+            mCurrentSegment = -1;
+        }
+
+        //noinspection ResultOfMethodCallIgnored SQLite delete does not have return type either.
+        getSegmentFile(segment).delete();
+        AppCenterLog.debug(LOG_TAG, "Deleted large payload segment " + segment);
+    }
+
+    @NonNull
+    @VisibleForTesting
+    File getSegmentFile(long segment) {
+        return new File(mDirectory, segment + SEGMENT_FILE_EXTENSION);
+    }
+
+    /**
+     * Lists segment files if not already done.
+     */
+    private void loadSegments() {
+        if (mSegmentSizes != null) {
+            return;
+        }
+        mSegmentSizes = new TreeMap<>();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_FILE_EXTENSION)) {
+                    try {
+                        long segment = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_EXTENSION.length()));
+                        mSegmentSizes.put(segment, file.length());
+                    } catch (NumberFormatException e) {
+                        AppCenterLog.warn(LOG_TAG, "Ignoring unexpected file in large payload directory: " + name);
+                    }
+                }
+            }
+        }
+
+        /* Keep appending to the last segment of the previous process. */
+        if (!mSegmentSizes.isEmpty()) {
+            mCurrentSegment = mSegmentSizes.lastKey();
+            mNextSegment = mCurrentSegment + 1;
+        }
+        AppCenterLog.debug(LOG_TAG, "Found " + mSegmentSizes.size() + " large payload segment(s).");
+    }
+
+    /**
+     * Location of a payload.
+     */
+    static class Location {
+
+        /**
+         * Segment identifier.
+         */
+        final long mSegment;
+
+        /**
+         * Offset in the segment.
+         */
+        final long mOffset;
+
+        Location(long segment, long offset) {
+            mSegment = segment;
+            mOffset = offset;
+        }
+    }
+}
@@ -6,9 +6,26 @@ import android.support.annotation.Nullable;
 
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import org.json.JSONException;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 
 /**
  * Abstract class for Persistence service.
@@ -25,6 +42,36 @@ public abstract class Persistence implements Closeable {
      */
     private LogSerializer mLogSerializer;
 
+    /**
+     * Groups for which logs are returned without being deserialized.
+     */
+    private final Set<String> mRawPayloadGroups = new HashSet<>();
+
+    /**
+     * Maximum size in bytes of a batch per group.
+     */
+    private final Map<String, Long> mMaxBatchBytes = new HashMap<>();
+
+    /**
+     * Storage quotas per group.
+     */
+    private final Map<String, GroupQuota> mGroupQuotas = new HashMap<>();
+
+    /**
+     * Eviction policy.
+     */
+    private EvictionPolicy mEvictionPolicy = new DefaultEvictionPolicy();
+
+    /**
+     * Eviction listener.
+     */
+    private EvictionListener mEvictionListener;
+
+    /**
+     * Executor serializing logs written together, null to serialize on the writing thread.
+     */
+    private Executor mSerializationExecutor;
+
     /**
      * Writes a log to the storage with the given {@code group}.
      *
@@ -35,6 +82,26 @@ public abstract class Persistence implements Closeable {
      */
     public abstract long putLog(@NonNull String group, @NonNull Log log) throws PersistenceException;
 
+    /**
+     * Writes logs to the storage with the given {@code group}, as a single write operation if
+     * the storage supports it. Logs that cannot be written are skipped and the error is logged.
+     *
+     * @param group The group of the storage for the logs.
+     * @param logs  The logs to be placed in the storage, in order.
+     * @return Log identifiers from persistence after saving, for logs that could be written.
+     */
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs) {
+        List<Long> ids = new ArrayList<>(logs.size());
+        for (Log log : logs) {
+            try {
+                ids.add(putLog(group, log));
+            } catch (PersistenceException e) {
+                AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+            }
+        }
+        return ids;
+    }
+
     /**
      * Deletes a log with the give ID from the {@code group}.
      *
@@ -60,6 +127,10 @@ public abstract class Persistence implements Closeable {
 
     /**
      * Gets an array of logs for the given {@code group}.
+     * If the group was set to use raw payloads with {@link #setRawPayload(String, boolean)},
+     * logs are returned as {@link com.microsoft.appcenter.ingestion.models.SerializedLog} instances.
+     * If the group has a byte budget set with {@link #setMaxBatchBytes(String, long)},
+     * fewer logs than {@code limit} are returned to stay within the budget, but always at least one.
      *
      * @param group   The group of the storage for logs.
      * @param limit   The max number of logs to be returned.
@@ -74,6 +145,152 @@ public abstract class Persistence implements Closeable {
      */
     public abstract void clearPendingLogState();
 
+    /**
+     * Sets whether logs of the {@code group} are returned in their persisted serialized form by
+     * {@link #getLogs(String, int, List)}. This avoids a deserialization then a serialization
+     * when sending logs, the model of such a log is only deserialized if something reads or modifies it.
+     *
+     * @param group      The group of the storage for logs.
+     * @param rawPayload true to get serialized logs, false to get deserialized models.
+     */
+    public void setRawPayload(@NonNull String group, boolean rawPayload) {
+        if (rawPayload) {
+            mRawPayloadGroups.add(group);
+        } else {
+            mRawPayloadGroups.remove(group);
+        }
+    }
+
+    /**
+     * Checks whether logs of the {@code group} are returned in their serialized form.
+     *
+     * @param group The group of the storage for logs.
+     * @return true if serialized logs are returned, false otherwise.
+     */
+    boolean isRawPayload(@NonNull String group) {
+        return mRawPayloadGroups.contains(group);
+    }
+
+    /**
+     * Sets the maximum size of serialized logs returned together by {@link #getLogs(String, int, List)} for the {@code group}.
+     *
+     * @param group    The group of the storage for logs.
+     * @param maxBytes The maximum size in bytes, 0 for no limit.
+     */
+    public void setMaxBatchBytes(@NonNull String group, long maxBytes) {
+        if (maxBytes > 0) {
+            mMaxBatchBytes.put(group, maxBytes);
+        } else {
+            mMaxBatchBytes.remove(group);
+        }
+    }
+
+    /**
+     * Gets the maximum size of serialized logs returned together for the {@code group}.
+     *
+     * @param group The group of the storage for logs.
+     * @return The maximum size in bytes, 0 for no limit.
+     */
+    long getMaxBatchBytes(@NonNull String group) {
+        Long maxBytes = mMaxBatchBytes.get(group);
+        return maxBytes == null ? 0 : maxBytes;
+    }
+
+    /**
+     * Sets the storage quota of the {@code group}, applied to logs stored after this call.
+     *
+     * @param group The group of the storage for logs.
+     * @param quota The quota, null to remove the quota of the group.
+     */
+    public void setGroupQuota(@NonNull String group, @Nullable GroupQuota quota) {
+        if (quota == null) {
+            mGroupQuotas.remove(group);
+        } else {
+            mGroupQuotas.put(group, quota);
+        }
+    }
+
+    /**
+     * Gets the storage quota of the {@code group}.
+     *
+     * @param group The group of the storage for logs.
+     * @return The quota, null if the group has none.
+     */
+    @Nullable
+    GroupQuota getGroupQuota(@NonNull String group) {
+        return mGroupQuotas.get(group);
+    }
+
+    /**
+     * Sets the policy choosing which logs are evicted.
+     *
+     * @param evictionPolicy The eviction policy.
+     */
+    public void setEvictionPolicy(@NonNull EvictionPolicy evictionPolicy) {
+        mEvictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Gets the policy choosing which logs are evicted.
+     *
+     * @return The eviction policy.
+     */
+    EvictionPolicy getEvictionPolicy() {
+        return mEvictionPolicy;
+    }
+
+    /**
+     * Sets a listener notified of evicted logs.
+     *
+     * @param evictionListener The listener, null to remove the listener.
+     */
+    public void setEvictionListener(@Nullable EvictionListener evictionListener) {
+        mEvictionListener = evictionListener;
+    }
+
+    /**
+     * Notifies the eviction listener.
+     *
+     * @param group The group of the storage for logs.
+     * @param count The number of evicted logs.
+     */
+    void notifyLogsEvicted(@NonNull String group, int count) {
+        AppCenterLog.warn(LOG_TAG, "Evicted " + count + " log(s) of group " + group + " from the Persistence database.");
+        if (mEvictionListener != null) {
+            mEvictionListener.onLogsEvicted(group, count);
+        }
+    }
+
+    /**
+     * Sets an executor on which logs written together by {@link #putLogs(String, List)} are serialized
+     * in parallel. Logs are still stored in order by the writing thread, which also serializes the logs
+     * no worker picked yet.
+     *
+     * @param executor The executor, null to serialize logs on the writing thread.
+     */
+    public void setSerializationExecutor(@Nullable Executor executor) {
+        mSerializationExecutor = executor;
+    }
+
+    /**
+     * Gets the executor on which logs written together are serialized.
+     *
+     * @return The executor, null if logs are serialized on the writing thread.
+     */
+    @Nullable
+    Executor getSerializationExecutor() {
+        return mSerializationExecutor;
+    }
+
+    /**
+     * Sets whether the storage uses write-ahead logging, so that reading logs to send and writing
+     * new logs do not block each other. Storage without such a journal ignores this setting.
+     *
+     * @param enabled true to use write-ahead logging, false to use the default journal.
+     */
+    public void setWriteAheadLogging(boolean enabled) {
+    }
+
     /**
      * Gets a {@link LogSerializer}.
      *
@@ -95,6 +312,137 @@ public abstract class Persistence implements Closeable {
         mLogSerializer = logSerializer;
     }
 
+    /**
+     * Prepares the serialization and encoding of logs, submitting them to the serialization executor if any.
+     *
+     * @param logs logs to serialize.
+     * @return a task per log, in the same order.
+     */
+    List<FutureTask<EncodedLog>> encodeLogs(List<Log> logs) {
+        List<FutureTask<EncodedLog>> tasks = new ArrayList<>(logs.size());
+        for (final Log log : logs) {
+            tasks.add(new FutureTask<>(new Callable<EncodedLog>() {
+
+                @Override
+                public EncodedLog call() throws JSONException, UnsupportedEncodingException {
+                    return encodeLog(log);
+                }
+            }));
+        }
+
+        /* The first log is serialized by the writing thread right away. */
+        Executor executor = getSerializationExecutor();
+        if (executor != null) {
+            try {
+                for (int i = 1; i < tasks.size(); i++) {
+                    executor.execute(tasks.get(i));
+                }
+            } catch (RejectedExecutionException e) {
+
+                /* Tasks not submitted are run by the writing thread. */
+                AppCenterLog.warn(LOG_TAG, "Serialization executor rejected logs, serializing them on the writing thread.");
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Serializes and encodes a log, called by {@link #encodeLogs(List)} from any thread.
+     *
+     * @param log log to serialize.
+     * @return serialized and encoded log.
+     * @throws JSONException                if the log cannot be serialized.
+     * @throws UnsupportedEncodingException if UTF-8 is not supported.
+     */
+    EncodedLog encodeLog(Log log) throws JSONException, UnsupportedEncodingException {
+        String payload = getLogSerializer().serializeLog(log);
+        return new EncodedLog(payload, encodePayload(payload), null);
+    }
+
+    /**
+     * Gets the result of a task of {@link #encodeLogs(List)}, running it on the calling thread if no worker started it.
+     *
+     * @param task task serializing and encoding a log.
+     * @return serialized and encoded log.
+     * @throws JSONException if the log cannot be serialized.
+     * @throws IOException   if the log cannot be encoded or if interrupted while waiting for a worker.
+     */
+    static EncodedLog awaitEncodedLog(FutureTask<EncodedLog> task) throws JSONException, IOException {
+
+        /* Running a task that a worker already started does nothing, the result is then awaited. */
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for log serialization.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JSONException) {
+                throw (JSONException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * Encodes a serialized log, the encoded size is the size of the log and the bytes are written as is if stored in a file.
+     *
+     * @param payload serialized log.
+     * @return UTF-8 bytes.
+     * @throws UnsupportedEncodingException if UTF-8 is not supported.
+     */
+    static byte[] encodePayload(String payload) throws UnsupportedEncodingException {
+        return payload.getBytes("UTF-8");
+    }
+
+    /**
+     * Listener notified of logs deleted to make room for new logs.
+     */
+    public interface EvictionListener {
+
+        /**
+         * Called when logs were evicted from persistence because it was full or the group was over its quota.
+         *
+         * @param group The group of the evicted logs.
+         * @param count The number of evicted logs.
+         */
+        void onLogsEvicted(@NonNull String group, int count);
+    }
+
+    /**
+     * Serialized log with its UTF-8 encoding.
+     */
+    static class EncodedLog {
+
+        /**
+         * Serialized log, without the device if serialized apart.
+         */
+        final String mPayload;
+
+        /**
+         * UTF-8 bytes of the serialized log, including the device if serialized apart.
+         */
+        final byte[] mBytes;
+
+        /**
+         * Serialized device if serialized apart from the payload, null otherwise.
+         */
+        final String mDevice;
+
+        EncodedLog(String payload, byte[] bytes, String device) {
+            mPayload = payload;
+            mBytes = bytes;
+            mDevice = device;
+        }
+    }
+
     /**
      * Thrown when {@link Persistence} cannot write a log to the storage.
      */
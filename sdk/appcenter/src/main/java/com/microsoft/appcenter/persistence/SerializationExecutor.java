@@ -0,0 +1,51 @@
+package com.microsoft.appcenter.persistence;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor serializing logs written together to persistence, see {@link Persistence#setSerializationExecutor}.
+ * The queue is not bounded as the writer waits for all the logs it submitted before submitting more.
+ */
+public class SerializationExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Idle time after which a thread is terminated.
+     */
+    private static final long KEEP_ALIVE_TIME = 30;
+
+    /**
+     * Thread name prefix.
+     */
+    private static final String THREAD_NAME = "AppCenter.Serializer-";
+
+    /**
+     * Init.
+     *
+     * @param poolSize number of threads.
+     */
+    public SerializationExecutor(int poolSize) {
+        super(checkPoolSize(poolSize), poolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, THREAD_NAME + mCount.getAndIncrement());
+            }
+        });
+        allowCoreThreadTimeOut(true);
+    }
+
+    private static int checkPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive.");
+        }
+        return poolSize;
+    }
+}
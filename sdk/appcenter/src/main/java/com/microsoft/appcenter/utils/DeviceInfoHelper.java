@@ -1,11 +1,16 @@
 package com.microsoft.appcenter.utils;
 
 import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Point;
+import android.net.ConnectivityManager;
 import android.os.Build;
+import android.support.annotation.VisibleForTesting;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
 import android.view.Display;
@@ -21,6 +26,8 @@ import java.util.TimeZone;
 
 /**
  * DeviceInfoHelper class to retrieve device information.
+ * Device information is collected once and cached, carrier and screen size are refreshed
+ * after the system broadcasts a change that can affect them.
  */
 public class DeviceInfoHelper {
 
@@ -34,14 +41,89 @@ public class DeviceInfoHelper {
      */
     private static WrapperSdk sWrapperSdk;
 
+    /**
+     * Cached device information without wrapper SDK information, never modified once built.
+     */
+    private static Device sSnapshot;
+
+    /**
+     * Whether carrier information must be read again before next use.
+     */
+    private static boolean sCarrierStale;
+
+    /**
+     * Whether screen size must be read again before next use.
+     */
+    private static boolean sScreenSizeStale;
+
+    /**
+     * Context used to listen to system changes.
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static Context sReceiverContext;
+
+    /**
+     * Receiver of system changes, null until device information is first cached.
+     */
+    private static BroadcastReceiver sReceiver;
+
     /**
      * Gets device information.
+     * Only fields that changed since the last call are read again from the system,
+     * so this is fast after the first call, including when the process is crashing.
      *
      * @param context The context of the application.
-     * @return {@link Device}
+     * @return {@link Device}, a new instance that the caller can modify.
      * @throws DeviceInfoException If device information cannot be retrieved
      */
     public static synchronized Device getDeviceInfo(Context context) throws DeviceInfoException {
+        if (sSnapshot == null) {
+            sSnapshot = buildDeviceInfo(context);
+            sCarrierStale = false;
+            sScreenSizeStale = false;
+            registerReceiver(context);
+        } else if (sCarrierStale || sScreenSizeStale) {
+
+            /* Publish a new snapshot as previous one may still be referenced. */
+            Device snapshot = copy(sSnapshot);
+            if (sCarrierStale) {
+                sCarrierStale = false;
+                snapshot.setCarrierCountry(null);
+                snapshot.setCarrierName(null);
+                readCarrierInfo(context, snapshot);
+            }
+            if (sScreenSizeStale) {
+                sScreenSizeStale = false;
+                readScreenSize(context, snapshot);
+            }
+            sSnapshot = snapshot;
+        }
+        Device device = copy(sSnapshot);
+
+        /* Locale and timezone are process settings kept up to date by the system, they are cheap to read. */
+        device.setLocale(Locale.getDefault().toString());
+
+        /* Timezone offset in minutes (including DST). */
+        device.setTimeZoneOffset(TimeZone.getDefault().getOffset(System.currentTimeMillis()) / 60 / 1000);
+
+        /* Add wrapper SDK information if any. */
+        if (sWrapperSdk != null) {
+            device.setWrapperSdkVersion(sWrapperSdk.getWrapperSdkVersion());
+            device.setWrapperSdkName(sWrapperSdk.getWrapperSdkName());
+            device.setWrapperRuntimeVersion(sWrapperSdk.getWrapperRuntimeVersion());
+            device.setLiveUpdateReleaseLabel(sWrapperSdk.getLiveUpdateReleaseLabel());
+            device.setLiveUpdateDeploymentKey(sWrapperSdk.getLiveUpdateDeploymentKey());
+            device.setLiveUpdatePackageHash(sWrapperSdk.getLiveUpdatePackageHash());
+        }
+
+        /* Return device properties. */
+        return device;
+    }
+
+    /**
+     * Reads device information from the system, except locale, timezone and wrapper SDK information.
+     */
+    private static Device buildDeviceInfo(Context context) throws DeviceInfoException {
         Device device = new Device();
 
         /* Application version. */
@@ -60,6 +142,31 @@ public class DeviceInfoHelper {
         device.setAppNamespace(context.getPackageName());
 
         /* Carrier info. */
+        readCarrierInfo(context, device);
+
+        /* Hardware info. */
+        device.setModel(Build.MODEL);
+        device.setOemName(Build.MANUFACTURER);
+
+        /* OS version. */
+        device.setOsApiLevel(Build.VERSION.SDK_INT);
+        device.setOsName(OS_NAME);
+        device.setOsVersion(Build.VERSION.RELEASE);
+        device.setOsBuild(Build.ID);
+
+        /* Screen size. */
+        readScreenSize(context, device);
+
+        /* Set SDK name and version. Don't add the BuildConfig import or it will trigger a Javadoc warning... */
+        device.setSdkName(com.microsoft.appcenter.BuildConfig.SDK_NAME);
+        device.setSdkVersion(com.microsoft.appcenter.BuildConfig.VERSION_NAME);
+        return device;
+    }
+
+    /**
+     * Reads carrier information, fields are left unset if not available.
+     */
+    private static void readCarrierInfo(Context context, Device device) {
         try {
             TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
             String networkCountryIso = telephonyManager.getNetworkCountryIso();
@@ -73,46 +180,109 @@ public class DeviceInfoHelper {
         } catch (Exception e) {
             AppCenterLog.error(AppCenter.LOG_TAG, "Cannot retrieve carrier info", e);
         }
+    }
 
-        /* Locale. */
-        device.setLocale(Locale.getDefault().toString());
-
-        /* Hardware info. */
-        device.setModel(Build.MODEL);
-        device.setOemName(Build.MANUFACTURER);
-
-        /* OS version. */
-        device.setOsApiLevel(Build.VERSION.SDK_INT);
-        device.setOsName(OS_NAME);
-        device.setOsVersion(Build.VERSION.RELEASE);
-        device.setOsBuild(Build.ID);
-
-        /* Screen size. */
+    /**
+     * Reads screen size, the field is left as is if not available.
+     */
+    private static void readScreenSize(Context context, Device device) {
         try {
             device.setScreenSize(getScreenSize(context));
         } catch (Exception e) {
             AppCenterLog.error(AppCenter.LOG_TAG, "Cannot retrieve screen size", e);
         }
+    }
 
-        /* Set SDK name and version. Don't add the BuildConfig import or it will trigger a Javadoc warning... */
-        device.setSdkName(com.microsoft.appcenter.BuildConfig.SDK_NAME);
-        device.setSdkVersion(com.microsoft.appcenter.BuildConfig.VERSION_NAME);
+    /**
+     * Copies device information.
+     */
+    private static Device copy(Device source) {
+        Device device = new Device();
+        device.setSdkName(source.getSdkName());
+        device.setSdkVersion(source.getSdkVersion());
+        device.setModel(source.getModel());
+        device.setOemName(source.getOemName());
+        device.setOsName(source.getOsName());
+        device.setOsVersion(source.getOsVersion());
+        device.setOsBuild(source.getOsBuild());
+        device.setOsApiLevel(source.getOsApiLevel());
+        device.setLocale(source.getLocale());
+        device.setTimeZoneOffset(source.getTimeZoneOffset());
+        device.setScreenSize(source.getScreenSize());
+        device.setAppVersion(source.getAppVersion());
+        device.setCarrierName(source.getCarrierName());
+        device.setCarrierCountry(source.getCarrierCountry());
+        device.setAppBuild(source.getAppBuild());
+        device.setAppNamespace(source.getAppNamespace());
+        device.setWrapperSdkVersion(source.getWrapperSdkVersion());
+        device.setWrapperSdkName(source.getWrapperSdkName());
+        device.setWrapperRuntimeVersion(source.getWrapperRuntimeVersion());
+        device.setLiveUpdateReleaseLabel(source.getLiveUpdateReleaseLabel());
+        device.setLiveUpdateDeploymentKey(source.getLiveUpdateDeploymentKey());
+        device.setLiveUpdatePackageHash(source.getLiveUpdatePackageHash());
+        return device;
+    }
 
-        /* Timezone offset in minutes (including DST). */
-        device.setTimeZoneOffset(TimeZone.getDefault().getOffset(System.currentTimeMillis()) / 60 / 1000);
+    /**
+     * Listens to system changes that can affect cached device information.
+     */
+    private static void registerReceiver(Context context) {
+        Context applicationContext = context.getApplicationContext();
+        sReceiverContext = applicationContext != null ? applicationContext : context;
+        sReceiver = new BroadcastReceiver() {
 
-        /* Add wrapper SDK information if any. */
-        if (sWrapperSdk != null) {
-            device.setWrapperSdkVersion(sWrapperSdk.getWrapperSdkVersion());
-            device.setWrapperSdkName(sWrapperSdk.getWrapperSdkName());
-            device.setWrapperRuntimeVersion(sWrapperSdk.getWrapperRuntimeVersion());
-            device.setLiveUpdateReleaseLabel(sWrapperSdk.getLiveUpdateReleaseLabel());
-            device.setLiveUpdateDeploymentKey(sWrapperSdk.getLiveUpdateDeploymentKey());
-            device.setLiveUpdatePackageHash(sWrapperSdk.getLiveUpdatePackageHash());
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onSystemChange(intent.getAction());
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+
+        /* Carrier can change when the network changes. */
+        //noinspection deprecation
+        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+
+        /* Display size can change with the configuration. */
+        filter.addAction(Intent.ACTION_CONFIGURATION_CHANGED);
+        try {
+            sReceiverContext.registerReceiver(sReceiver, filter);
+        } catch (RuntimeException e) {
+
+            /* Keep using the cached information, it's still accurate in most cases. */
+            AppCenterLog.warn(AppCenter.LOG_TAG, "Cannot listen to device information changes", e);
         }
+    }
 
-        /* Return device properties. */
-        return device;
+    /**
+     * Marks cached fields affected by a system change to be read again.
+     *
+     * @param action broadcast action.
+     */
+    @VisibleForTesting
+    static synchronized void onSystemChange(String action) {
+        //noinspection deprecation
+        if (ConnectivityManager.CONNECTIVITY_ACTION.equals(action)) {
+            sCarrierStale = true;
+        } else if (Intent.ACTION_CONFIGURATION_CHANGED.equals(action)) {
+            sScreenSizeStale = true;
+        }
+    }
+
+    /**
+     * Clears cached device information and stops listening to system changes.
+     */
+    @VisibleForTesting
+    static synchronized void clearCache() {
+        if (sReceiver != null) {
+            try {
+                sReceiverContext.unregisterReceiver(sReceiver);
+            } catch (RuntimeException e) {
+                AppCenterLog.warn(AppCenter.LOG_TAG, "Cannot stop listening to device information changes", e);
+            }
+        }
+        sReceiver = null;
+        sReceiverContext = null;
+        sSnapshot = null;
     }
 
     /**
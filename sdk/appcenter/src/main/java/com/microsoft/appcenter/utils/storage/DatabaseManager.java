@@ -7,6 +7,7 @@ import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.Build;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -17,6 +18,8 @@ import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -38,6 +41,28 @@ public class DatabaseManager implements Closeable {
      */
     private static final String PRIMARY_KEY_SELECTION = "oid = ?";
 
+    /**
+     * When the table is over capacity, this fraction of the capacity is evicted in addition to the excess
+     * so that the next inserts do not have to evict again.
+     */
+    @VisibleForTesting
+    static final int EVICTION_BATCH_RATIO = 10;
+
+    /**
+     * Number of pages in the write-ahead log after which a commit checkpoints it.
+     * Lower than the SQLite default of 1000 so that the deletes following each upload are
+     * checkpointed before the log grows larger than the table of pending logs itself.
+     */
+    @VisibleForTesting
+    static final int WAL_AUTO_CHECKPOINT_PAGES = 256;
+
+    /**
+     * Size in bytes the write-ahead log file is truncated to after a checkpoint, so that a burst
+     * of logs does not leave a large file behind.
+     */
+    @VisibleForTesting
+    static final long WAL_SIZE_LIMIT = 1024 * 1024;
+
     /**
      * Application context instance.
      */
@@ -68,6 +93,26 @@ public class DatabaseManager implements Closeable {
      */
     private final Listener mListener;
 
+    /**
+     * Number of rows in the SQLite table maintained by this manager, negative until counted.
+     */
+    private long mRowCount = -1;
+
+    /**
+     * SQL ordering of rows for eviction, rows sorting first are evicted first.
+     */
+    private String mEvictionOrder = PRIMARY_KEY;
+
+    /**
+     * Columns of evicted rows reported to the eviction listener, in addition to the identifier.
+     */
+    private String[] mEvictionColumns = {};
+
+    /**
+     * Eviction listener.
+     */
+    private EvictionListener mEvictionListener;
+
     /**
      * SQLite helper instance.
      */
@@ -84,6 +129,11 @@ public class DatabaseManager implements Closeable {
      */
     private long mIMDBAutoInc;
 
+    /**
+     * Is write-ahead logging enabled?
+     */
+    private boolean mWriteAheadLogging;
+
     /**
      * Initializes the table in the database.
      *
@@ -123,26 +173,7 @@ public class DatabaseManager implements Closeable {
 
             @Override
             public void onCreate(SQLiteDatabase db) {
-
-                /* Generate a schema from specimen. */
-                StringBuilder sql = new StringBuilder("CREATE TABLE `");
-                sql.append(mTable);
-                sql.append("` (oid INTEGER PRIMARY KEY AUTOINCREMENT");
-                for (Map.Entry<String, Object> col : mSchema.valueSet()) {
-                    sql.append(", `").append(col.getKey()).append("` ");
-                    Object val = col.getValue();
-                    if (val instanceof Double || val instanceof Float) {
-                        sql.append("REAL");
-                    } else if (val instanceof Number || val instanceof Boolean) {
-                        sql.append("INTEGER");
-                    } else if (val instanceof byte[]) {
-                        sql.append("BLOB");
-                    } else {
-                        sql.append("TEXT");
-                    }
-                }
-                sql.append(");");
-                db.execSQL(sql.toString());
+                db.execSQL(buildCreateTable("CREATE TABLE `", mTable, mSchema));
             }
 
             @Override
@@ -154,9 +185,45 @@ public class DatabaseManager implements Closeable {
                     onCreate(db);
                 }
             }
+
+            @Override
+            public void onOpen(SQLiteDatabase db) {
+                if (mWriteAheadLogging) {
+                    configureCheckpoints(db);
+                }
+            }
         };
     }
 
+    /**
+     * Generates a table creation statement from a schema specimen.
+     *
+     * @param statement The statement prefix, up to the table name.
+     * @param table     The table name.
+     * @param schema    The schema.
+     * @return SQL statement.
+     */
+    private static String buildCreateTable(String statement, String table, ContentValues schema) {
+        StringBuilder sql = new StringBuilder(statement);
+        sql.append(table);
+        sql.append("` (oid INTEGER PRIMARY KEY AUTOINCREMENT");
+        for (Map.Entry<String, Object> col : schema.valueSet()) {
+            sql.append(", `").append(col.getKey()).append("` ");
+            Object val = col.getValue();
+            if (val instanceof Double || val instanceof Float) {
+                sql.append("REAL");
+            } else if (val instanceof Number || val instanceof Boolean) {
+                sql.append("INTEGER");
+            } else if (val instanceof byte[]) {
+                sql.append("BLOB");
+            } else {
+                sql.append("TEXT");
+            }
+        }
+        sql.append(");");
+        return sql.toString();
+    }
+
     /**
      * Converts a cursor to an entry.
      *
@@ -209,17 +276,16 @@ public class DatabaseManager implements Closeable {
             try {
 
                 /* Insert data. */
-                long id = getDatabase().insertOrThrow(mTable, null, values);
+                SQLiteDatabase database = getDatabase();
+                long rowCount = countRows(database);
+                long id = database.insertOrThrow(mTable, null, values);
+                mRowCount = rowCount + 1;
 
-                /* Purge oldest entry if it hits the limit. */
-                if (mMaxNumberOfRecords < getRowCount() && mMaxNumberOfRecords > 0) {
-                    Cursor cursor = getCursor(null, null, true);
-                    cursor.moveToNext();
-                    delete(cursor.getLong(0));
-                    cursor.close();
-                }
+                /* Purge oldest entries if it hits the limit. */
+                notifyEvicted(evictOldest(database));
                 return id;
             } catch (RuntimeException e) {
+                mRowCount = -1;
                 switchToInMemory("put", e);
             }
         }
@@ -230,6 +296,55 @@ public class DatabaseManager implements Closeable {
         return mIMDBAutoInc++;
     }
 
+    /**
+     * Stores the entries to the table in a single transaction.
+     * Entries are either all committed or none of them is when this method returns.
+     *
+     * @param valuesList The entries to be stored.
+     * @return Database identifiers, in the same order as the entries.
+     */
+    public List<Long> put(@NonNull List<ContentValues> valuesList) {
+        List<Long> ids = new ArrayList<>(valuesList.size());
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                SQLiteDatabase database = getDatabase();
+                long rowCount = countRows(database);
+                List<ContentValues> evictedRows;
+                database.beginTransaction();
+                try {
+
+                    /* Insert data. */
+                    for (ContentValues values : valuesList) {
+                        ids.add(database.insertOrThrow(mTable, null, values));
+                    }
+                    mRowCount = rowCount + ids.size();
+
+                    /* Purge oldest entries if it hits the limit. */
+                    evictedRows = evictOldest(database);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+                notifyEvicted(evictedRows);
+                return ids;
+            } catch (RuntimeException e) {
+                ids.clear();
+                mRowCount = -1;
+                switchToInMemory("put", e);
+            }
+        }
+
+        /* Store the values to in-memory database. */
+        for (ContentValues values : valuesList) {
+            values.put(PRIMARY_KEY, mIMDBAutoInc);
+            mIMDB.put(mIMDBAutoInc, values);
+            ids.add(mIMDBAutoInc++);
+        }
+        return ids;
+    }
+
     /**
      * Updates the entry for the identifier.
      *
@@ -279,7 +394,8 @@ public class DatabaseManager implements Closeable {
         /* Try SQLite. */
         if (mIMDB == null) {
             try {
-                getDatabase().execSQL(String.format("DELETE FROM " + mTable + " WHERE " + PRIMARY_KEY + " IN (%s);", TextUtils.join(", ", idList)));
+                int deleted = getDatabase().delete(mTable, PRIMARY_KEY + " IN (" + TextUtils.join(", ", idList) + ")", null);
+                onRowsDeleted(deleted);
             } catch (RuntimeException e) {
                 switchToInMemory("delete", e);
             }
@@ -304,7 +420,8 @@ public class DatabaseManager implements Closeable {
         /* Try SQLite. */
         if (mIMDB == null) {
             try {
-                getDatabase().delete(mTable, key + " = ?", new String[]{String.valueOf(value)});
+                int deleted = getDatabase().delete(mTable, key + " = ?", new String[]{String.valueOf(value)});
+                onRowsDeleted(deleted);
             } catch (RuntimeException e) {
                 switchToInMemory("delete", e);
             }
@@ -386,7 +503,133 @@ public class DatabaseManager implements Closeable {
      * @return A scanner to iterate all values.
      */
     Scanner getScanner(String key, Object value, boolean idOnly) {
-        return new Scanner(key, value, idOnly);
+        return getScanner(key, value, null, 0, idOnly);
+    }
+
+    /**
+     * Gets a scanner to iterate values those match key == value and with an identifier greater than afterId.
+     *
+     * @param key     The optional key for query.
+     * @param value   The optional value for query.
+     * @param afterId The optional identifier that all returned identifiers must be greater than.
+     * @param limit   The maximum number of values to return, 0 for no limit.
+     * @param idOnly  true to return only identifier, false to return all fields.
+     *                This flag is ignored if using in memory database.
+     * @return A scanner to iterate values.
+     */
+    Scanner getScanner(String key, Object value, Long afterId, int limit, boolean idOnly) {
+        return new Scanner(key, value, afterId, limit, idOnly);
+    }
+
+    /**
+     * Creates an index on the table if it does not already exist.
+     * This is a no-op when using in memory database.
+     *
+     * @param name    The index name.
+     * @param columns The indexed columns, in order.
+     */
+    public void createIndex(@NonNull String name, @NonNull String... columns) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                getDatabase().execSQL("CREATE INDEX IF NOT EXISTS `" + name + "` ON `" + mTable + "` (" + TextUtils.join(", ", columns) + ")");
+            } catch (RuntimeException e) {
+                switchToInMemory("createIndex", e);
+            }
+        }
+    }
+
+    /**
+     * Creates a secondary table in the same database if it does not already exist.
+     * Secondary tables are not limited in size and are not used when in memory database.
+     *
+     * @param table  The table name.
+     * @param schema The schema.
+     */
+    public void createTable(@NonNull String table, @NonNull ContentValues schema) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                getDatabase().execSQL(buildCreateTable("CREATE TABLE IF NOT EXISTS `", table, schema));
+            } catch (RuntimeException e) {
+                switchToInMemory("createTable", e);
+            }
+        }
+    }
+
+    /**
+     * Stores an entry to a secondary table.
+     *
+     * @param table  The table name.
+     * @param values The entry to be stored.
+     * @return A database identifier, -1 when using in memory database.
+     */
+    public long put(@NonNull String table, @NonNull ContentValues values) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                return getDatabase().insertOrThrow(table, null, values);
+            } catch (RuntimeException e) {
+                switchToInMemory("put", e);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets all entries of a secondary table.
+     *
+     * @param table  The table name.
+     * @param schema The schema.
+     * @return All entries with their identifier, empty when using in memory database.
+     */
+    @NonNull
+    public List<ContentValues> getAll(@NonNull String table, @NonNull ContentValues schema) {
+        List<ContentValues> rows = new ArrayList<>();
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            Cursor cursor = null;
+            try {
+                cursor = getDatabase().query(table, null, null, null, null, null, null);
+                while (cursor.moveToNext()) {
+                    rows.add(buildValues(cursor, schema));
+                }
+            } catch (RuntimeException e) {
+                rows.clear();
+                switchToInMemory("getAll", e);
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Deletes the entries of a secondary table that no entry of the main table references.
+     *
+     * @param table  The secondary table name.
+     * @param column The column of the main table that references secondary table identifiers.
+     * @return The number of deleted entries, 0 when using in memory database.
+     */
+    public int deleteUnreferenced(@NonNull String table, @NonNull String column) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+
+                /* Exclude nulls from the sub-query as NOT IN never matches if the list contains null. */
+                return getDatabase().delete(table, PRIMARY_KEY + " NOT IN (SELECT `" + column + "` FROM `" + mTable + "` WHERE `" + column + "` IS NOT NULL)", null);
+            } catch (RuntimeException e) {
+                switchToInMemory("deleteUnreferenced", e);
+            }
+        }
+        return 0;
     }
 
     /**
@@ -398,6 +641,7 @@ public class DatabaseManager implements Closeable {
         if (mIMDB == null) {
             try {
                 getDatabase().delete(mTable, null, null);
+                mRowCount = 0;
             } catch (RuntimeException e) {
                 switchToInMemory("clear", e);
             }
@@ -419,6 +663,7 @@ public class DatabaseManager implements Closeable {
         if (mIMDB == null) {
             try {
                 getDatabase().close();
+                mRowCount = -1;
             } catch (RuntimeException e) {
                 switchToInMemory("close", e);
             }
@@ -441,7 +686,8 @@ public class DatabaseManager implements Closeable {
         /* Try SQLite. */
         if (mIMDB == null) {
             try {
-                return DatabaseUtils.queryNumEntries(getDatabase(), mTable);
+                mRowCount = DatabaseUtils.queryNumEntries(getDatabase(), mTable);
+                return mRowCount;
             } catch (RuntimeException e) {
                 switchToInMemory("count", e);
             }
@@ -451,6 +697,232 @@ public class DatabaseManager implements Closeable {
         return mIMDB.size();
     }
 
+    /**
+     * Gets the count of records in the table, counting only if not already known.
+     *
+     * @param database SQLite database.
+     * @return The number of records in the table.
+     */
+    private long countRows(SQLiteDatabase database) {
+        if (mRowCount < 0) {
+            mRowCount = DatabaseUtils.queryNumEntries(database, mTable);
+        }
+        return mRowCount;
+    }
+
+    /**
+     * Update the row count after a delete.
+     *
+     * @param deleted number of deleted rows.
+     */
+    private void onRowsDeleted(int deleted) {
+        if (mRowCount >= 0) {
+            mRowCount = Math.max(0, mRowCount - deleted);
+        }
+    }
+
+    /**
+     * Delete the first rows in eviction order if the table is over capacity.
+     * A fraction of the capacity is evicted in addition to the excess so that eviction does not run on every insert.
+     *
+     * @param database SQLite database.
+     * @return evicted rows, with identifier and eviction columns.
+     */
+    private List<ContentValues> evictOldest(SQLiteDatabase database) {
+        if (mMaxNumberOfRecords <= 0) {
+            return Collections.emptyList();
+        }
+        long excess = mRowCount - mMaxNumberOfRecords;
+        if (excess > 0) {
+            long count = Math.min(mRowCount, excess + mMaxNumberOfRecords / EVICTION_BATCH_RATIO);
+            return deleteFirstRows(database, null, null, count);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Delete the first rows in eviction order, all rows where key matches value if specified.
+     *
+     * @param database SQLite database.
+     * @param key      The optional key for query.
+     * @param value    The optional value for query.
+     * @param count    The maximum number of rows to delete.
+     * @return deleted rows, with identifier and eviction columns.
+     */
+    private List<ContentValues> deleteFirstRows(SQLiteDatabase database, String key, Object value, long count) {
+        SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+        builder.setTables(mTable);
+        String[] selectionArgs = null;
+        if (key != null) {
+            if (value == null) {
+                builder.appendWhere(key + " IS NULL");
+            } else {
+                builder.appendWhere(key + " = ?");
+                selectionArgs = new String[]{value.toString()};
+            }
+        }
+        String[] projection = new String[mEvictionColumns.length + 1];
+        projection[0] = PRIMARY_KEY;
+        System.arraycopy(mEvictionColumns, 0, projection, 1, mEvictionColumns.length);
+        List<ContentValues> rows = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = builder.query(database, projection, null, selectionArgs, null, null, mEvictionOrder, String.valueOf(count));
+        try {
+            while (cursor.moveToNext()) {
+                ContentValues values = buildValues(cursor, mSchema);
+                rows.add(values);
+                ids.add(values.getAsLong(PRIMARY_KEY));
+            }
+        } finally {
+            cursor.close();
+        }
+        if (!ids.isEmpty()) {
+            onRowsDeleted(database.delete(mTable, PRIMARY_KEY + " IN (" + TextUtils.join(", ", ids) + ")", null));
+        }
+        return rows;
+    }
+
+    /**
+     * Notify the eviction listener if rows were evicted.
+     *
+     * @param evictedRows evicted rows.
+     */
+    private void notifyEvicted(List<ContentValues> evictedRows) {
+        if (mEvictionListener != null && !evictedRows.isEmpty()) {
+            mEvictionListener.onEvicted(evictedRows);
+        }
+    }
+
+    /**
+     * Configures which rows are deleted first when the table is over capacity or when calling {@link #evict}.
+     * This only applies to SQLite, in memory database evicts the oldest rows without notifying the listener.
+     *
+     * @param orderBy  SQL ordering of rows, rows sorting first are evicted first.
+     * @param listener The optional listener notified of rows evicted because the table was over capacity.
+     * @param columns  Columns of evicted rows to report in addition to the identifier.
+     */
+    public void setEvictionPolicy(@NonNull String orderBy, @Nullable EvictionListener listener, @NonNull String... columns) {
+        mEvictionOrder = orderBy;
+        mEvictionListener = listener;
+        mEvictionColumns = columns;
+    }
+
+    /**
+     * Enables or disables write-ahead logging. When enabled, scanners and other queries use read
+     * connections of the SQLite connection pool, while inserts and deletes use the write connection,
+     * so reading pending logs and writing new logs no longer block each other.
+     * This requires API level 16, the setting is ignored on older devices.
+     *
+     * @param enabled true to use write-ahead logging, false to use the default rollback journal.
+     */
+    public void setWriteAheadLogging(boolean enabled) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            AppCenterLog.warn(AppCenter.LOG_TAG, "Write-ahead logging requires API level 16.");
+            return;
+        }
+        mWriteAheadLogging = enabled;
+        try {
+
+            /* This also applies to the database if already open, the journal mode is then switched. */
+            mSQLiteOpenHelper.setWriteAheadLoggingEnabled(enabled);
+            if (enabled && mIMDB == null) {
+                configureCheckpoints(getDatabase());
+            }
+        } catch (RuntimeException e) {
+            AppCenterLog.error(AppCenter.LOG_TAG, "Failed to configure write-ahead logging.", e);
+        }
+    }
+
+    /**
+     * Tunes write-ahead log checkpoints of the write connection.
+     *
+     * @param database SQLite database.
+     */
+    private static void configureCheckpoints(SQLiteDatabase database) {
+
+        /* Settings are per connection, a transaction makes the pragmas run on the write connection that checkpoints. */
+        database.beginTransaction();
+        try {
+            DatabaseUtils.longForQuery(database, "PRAGMA wal_autocheckpoint=" + WAL_AUTO_CHECKPOINT_PAGES, null);
+            DatabaseUtils.longForQuery(database, "PRAGMA journal_size_limit=" + WAL_SIZE_LIMIT, null);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes the first rows in eviction order where key matches value.
+     * The eviction listener is not called.
+     *
+     * @param key   The optional key for query.
+     * @param value The optional value for query.
+     * @param count The maximum number of rows to delete.
+     * @return deleted rows, with identifier and eviction columns.
+     */
+    public List<ContentValues> evict(@Nullable String key, @Nullable Object value, int count) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                return deleteFirstRows(getDatabase(), key, value, count);
+            } catch (RuntimeException e) {
+                switchToInMemory("evict", e);
+            }
+        }
+
+        /* Delete oldest values from in-memory database. */
+        List<ContentValues> rows = new ArrayList<>();
+        for (Iterator<ContentValues> iterator = mIMDB.values().iterator(); iterator.hasNext() && rows.size() < count; ) {
+            ContentValues values = iterator.next();
+            Object candidateValue = key == null ? null : values.get(key);
+            if (key == null || (value != null && value.equals(candidateValue)) || (value == null && candidateValue == null)) {
+                iterator.remove();
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the sum of a numeric column over all rows, all rows where key matches value if specified.
+     *
+     * @param column The column to sum.
+     * @param key    The optional key for query.
+     * @param value  The optional value for query.
+     * @return The sum, 0 if there are no rows.
+     */
+    public long sum(@NonNull String column, @Nullable String key, @Nullable Object value) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                String sql = "SELECT IFNULL(SUM(`" + column + "`), 0) FROM `" + mTable + "`";
+                if (key == null) {
+                    return DatabaseUtils.longForQuery(getDatabase(), sql, null);
+                } else if (value == null) {
+                    return DatabaseUtils.longForQuery(getDatabase(), sql + " WHERE " + key + " IS NULL", null);
+                }
+                return DatabaseUtils.longForQuery(getDatabase(), sql + " WHERE " + key + " = ?", new String[]{value.toString()});
+            } catch (RuntimeException e) {
+                switchToInMemory("sum", e);
+            }
+        }
+
+        /* Sum in-memory database values. */
+        long sum = 0;
+        for (ContentValues values : mIMDB.values()) {
+            Object candidateValue = key == null ? null : values.get(key);
+            if (key == null || (value != null && value.equals(candidateValue)) || (value == null && candidateValue == null)) {
+                Long columnValue = values.getAsLong(column);
+                if (columnValue != null) {
+                    sum += columnValue;
+                }
+            }
+        }
+        return sum;
+    }
+
     /**
      * Gets a cursor for all rows in the table, all rows where key matches value if specified.
      *
@@ -461,24 +933,48 @@ public class DatabaseManager implements Closeable {
      * @throws RuntimeException If an error occurs.
      */
     Cursor getCursor(String key, Object value, boolean idOnly) throws RuntimeException {
+        return getCursor(key, value, null, 0, idOnly);
+    }
+
+    /**
+     * Gets a cursor for rows in the table with an identifier greater than afterId,
+     * all rows where key matches value if specified.
+     *
+     * @param key     The optional key for query.
+     * @param value   The optional value for query.
+     * @param afterId The optional identifier that all returned identifiers must be greater than.
+     * @param limit   The maximum number of rows to return, 0 for no limit.
+     * @param idOnly  Return only row identifier if true, return all fields otherwise.
+     * @return A cursor for rows that matches the given criteria.
+     * @throws RuntimeException If an error occurs.
+     */
+    Cursor getCursor(String key, Object value, Long afterId, int limit, boolean idOnly) throws RuntimeException {
 
         /* Build a query to get values. */
         SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
         builder.setTables(mTable);
-        String[] selectionArgs;
-        if (key == null) {
-            selectionArgs = null;
-        } else if (value == null) {
-            builder.appendWhere(key + " IS NULL");
-            selectionArgs = null;
-        } else {
-            builder.appendWhere(key + " = ?");
-            selectionArgs = new String[]{String.valueOf(value.toString())};
+        List<String> selectionArgs = new ArrayList<>(2);
+        if (key != null) {
+            if (value == null) {
+                builder.appendWhere(key + " IS NULL");
+            } else {
+                builder.appendWhere(key + " = ?");
+                selectionArgs.add(value.toString());
+            }
+        }
+
+        /* The selection is combined with the where clause by the builder, arguments of the where clause come first. */
+        String selection = null;
+        if (afterId != null) {
+            selection = PRIMARY_KEY + " > ?";
+            selectionArgs.add(String.valueOf(afterId));
         }
 
         /* Query database. */
         String[] projectionIn = idOnly ? new String[]{PRIMARY_KEY} : null;
-        return builder.query(getDatabase(), projectionIn, null, selectionArgs, null, null, PRIMARY_KEY);
+        String[] selectionArgsArray = selectionArgs.isEmpty() ? null : selectionArgs.toArray(new String[selectionArgs.size()]);
+        String limitClause = limit > 0 ? String.valueOf(limit) : null;
+        return builder.query(getDatabase(), projectionIn, selection, selectionArgsArray, null, null, PRIMARY_KEY, limitClause);
     }
 
     /**
@@ -537,6 +1033,19 @@ public class DatabaseManager implements Closeable {
         mSQLiteOpenHelper = helper;
     }
 
+    /**
+     * Listener notified of rows deleted because the table was over capacity.
+     */
+    public interface EvictionListener {
+
+        /**
+         * Called after rows were evicted.
+         *
+         * @param rows evicted rows, with identifier and the columns requested in {@link #setEvictionPolicy}.
+         */
+        void onEvicted(@NonNull List<ContentValues> rows);
+    }
+
     /**
      * Database listener.
      */
@@ -579,6 +1088,16 @@ public class DatabaseManager implements Closeable {
          */
         private final Object value;
 
+        /**
+         * Optional identifier that all scanned identifiers must be greater than.
+         */
+        private final Long afterId;
+
+        /**
+         * Maximum number of values to scan, 0 for no limit.
+         */
+        private final int limit;
+
         /**
          * Return only IDs flags (SQLite implementation only).
          */
@@ -592,9 +1111,11 @@ public class DatabaseManager implements Closeable {
         /**
          * Initializes a cursor with optional filter.
          */
-        private Scanner(String key, Object value, boolean idOnly) {
+        private Scanner(String key, Object value, Long afterId, int limit, boolean idOnly) {
             this.key = key;
             this.value = value;
+            this.afterId = afterId;
+            this.limit = limit;
             this.idOnly = idOnly;
         }
 
@@ -621,7 +1142,7 @@ public class DatabaseManager implements Closeable {
                 try {
                     /* Close cursor first if it was being used. */
                     close();
-                    cursor = getCursor(key, value, idOnly);
+                    cursor = getCursor(key, value, afterId, limit, idOnly);
 
                     /* Wrap cursor as iterator. */
                     return new Iterator<ContentValues>() {
@@ -691,17 +1212,24 @@ public class DatabaseManager implements Closeable {
                 /** Next value. */
                 ContentValues next;
 
+                /** Number of values returned so far. */
+                int count;
+
                 @Override
                 public boolean hasNext() {
 
                     /* Iterator needs to be moved to the next. */
                     if (!advanced) {
                         next = null;
-                        while (iterator.hasNext()) {
+                        while ((limit <= 0 || count < limit) && iterator.hasNext()) {
                             ContentValues nextCandidate = iterator.next();
+                            if (afterId != null && nextCandidate.getAsLong(PRIMARY_KEY) <= afterId) {
+                                continue;
+                            }
                             Object candidateValue = nextCandidate.get(key);
                             if (key == null || (value != null && value.equals(candidateValue)) || (value == null && candidateValue == null)) {
                                 next = nextCandidate;
+                                count++;
                                 break;
                             }
                         }
@@ -730,7 +1258,7 @@ public class DatabaseManager implements Closeable {
             if (mIMDB == null) {
                 try {
                     if (cursor == null) {
-                        cursor = getCursor(key, value, idOnly);
+                        cursor = getCursor(key, value, afterId, limit, idOnly);
                     }
                     return cursor.getCount();
                 } catch (RuntimeException e) {
@@ -13,20 +13,17 @@ import android.text.TextUtils;
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -308,6 +305,11 @@ public class StorageHelper {
      */
     public static class InternalStorage {
 
+        /**
+         * Encoding of text files.
+         */
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
         /**
          * Read contents from a file.
          *
@@ -320,34 +322,19 @@ public class StorageHelper {
         }
 
         /**
-         * Read contents from a file.
+         * Read contents from a file as UTF-8 text, the contents are returned unchanged.
          *
          * @param file The file to read from.
          * @return The contents of the file.
          */
         public static String read(@NonNull File file) {
-            try {
-                BufferedReader reader = new BufferedReader(new FileReader(file));
-                StringBuilder contents;
 
-                //noinspection TryFinallyCanBeTryWithResources (requires min API level 19)
-                try {
-                    String line;
-                    String lineSeparator = System.getProperty("line.separator");
-                    contents = new StringBuilder();
-                    while ((line = reader.readLine()) != null) {
-                        contents.append(line).append(lineSeparator);
-                    }
-                } finally {
-
-                    //noinspection ThrowFromFinallyBlock
-                    reader.close();
-                }
-                return contents.toString();
-            } catch (IOException e) {
-                AppCenterLog.error(AppCenter.LOG_TAG, "Could not read file " + file.getAbsolutePath(), e);
+            /* Read the whole file in a buffer sized from the file length and decode it in one pass. */
+            byte[] contents = readBytes(file);
+            if (contents == null) {
+                return null;
             }
-            return null;
+            return new String(contents, UTF_8);
         }
 
         /**
@@ -397,13 +384,26 @@ public class StorageHelper {
             if (TextUtils.isEmpty(contents) || TextUtils.getTrimmedLength(contents) <= 0) {
                 return;
             }
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+            write(file, contents.getBytes(UTF_8));
+        }
+
+        /**
+         * Write contents to a file, for callers that already encoded them.
+         *
+         * @param file     The file instance.
+         * @param contents The content to be written to the file.
+         * @throws IOException If an I/O error occurs
+         */
+        public static void write(@NonNull File file, @NonNull byte[] contents) throws IOException {
+            FileOutputStream outputStream = new FileOutputStream(file);
+
             //noinspection TryFinallyCanBeTryWithResources
             try {
-                writer.write(contents);
+                outputStream.write(contents);
             } finally {
+
                 //noinspection ThrowFromFinallyBlock
-                writer.close();
+                outputStream.close();
             }
         }
 
@@ -612,6 +612,16 @@ public class StorageHelper {
             return mDatabaseManager.put(values);
         }
 
+        /**
+         * Store entries in a table in a single transaction.
+         *
+         * @param valuesList The entries to be stored.
+         * @return The identifiers of the created database entries, in the same order as the entries.
+         */
+        public List<Long> put(@NonNull List<ContentValues> valuesList) {
+            return mDatabaseManager.put(valuesList);
+        }
+
         /**
          * Update an entry in a table.
          *
@@ -707,6 +717,120 @@ public class StorageHelper {
             return new DatabaseScanner(mDatabaseManager.getScanner(key, value, idOnly));
         }
 
+        /**
+         * Gets a scanner to iterate values those match key == value, in identifier order,
+         * skipping identifiers lower than or equal to afterId and stopping after limit values.
+         *
+         * @param key     The optional key for query.
+         * @param value   The optional value for query.
+         * @param afterId The optional identifier that all returned identifiers must be greater than.
+         * @param limit   The maximum number of values to return, 0 for no limit.
+         * @param idOnly  True to return only identifiers, false to return all fields.
+         *                This flag is ignored if using in memory database.
+         * @return A scanner to iterate values.
+         */
+        public DatabaseScanner getScanner(@Nullable String key, @Nullable Object value, @Nullable Long afterId, @IntRange(from = 0) int limit, boolean idOnly) {
+            return new DatabaseScanner(mDatabaseManager.getScanner(key, value, afterId, limit, idOnly));
+        }
+
+        /**
+         * Creates an index on the table if it does not already exist.
+         *
+         * @param name    The index name.
+         * @param columns The indexed columns, in order.
+         */
+        public void createIndex(@NonNull String name, @NonNull String... columns) {
+            mDatabaseManager.createIndex(name, columns);
+        }
+
+        /**
+         * Configures which rows are deleted first when the table is over capacity or when calling {@link #evict}.
+         *
+         * @param orderBy  SQL ordering of rows, rows sorting first are evicted first.
+         * @param listener The optional listener notified of rows evicted because the table was over capacity.
+         * @param columns  Columns of evicted rows to report in addition to the identifier.
+         */
+        public void setEvictionPolicy(@NonNull String orderBy, @Nullable DatabaseManager.EvictionListener listener, @NonNull String... columns) {
+            mDatabaseManager.setEvictionPolicy(orderBy, listener, columns);
+        }
+
+        /**
+         * Deletes the first rows in eviction order where key matches value.
+         *
+         * @param key   The optional key for query.
+         * @param value The optional value for query.
+         * @param count The maximum number of rows to delete.
+         * @return Deleted rows, with identifier and eviction columns.
+         */
+        public List<ContentValues> evict(@Nullable String key, @Nullable Object value, int count) {
+            return mDatabaseManager.evict(key, value, count);
+        }
+
+        /**
+         * Creates a secondary table in the same database if it does not already exist.
+         *
+         * @param table  The table name.
+         * @param schema The schema.
+         */
+        public void createTable(@NonNull String table, @NonNull ContentValues schema) {
+            mDatabaseManager.createTable(table, schema);
+        }
+
+        /**
+         * Stores an entry to a secondary table.
+         *
+         * @param table  The table name.
+         * @param values The entry to be stored.
+         * @return A database identifier, -1 when using in memory database.
+         */
+        public long put(@NonNull String table, @NonNull ContentValues values) {
+            return mDatabaseManager.put(table, values);
+        }
+
+        /**
+         * Gets all entries of a secondary table.
+         *
+         * @param table  The table name.
+         * @param schema The schema.
+         * @return All entries with their identifier, empty when using in memory database.
+         */
+        @NonNull
+        public List<ContentValues> getAll(@NonNull String table, @NonNull ContentValues schema) {
+            return mDatabaseManager.getAll(table, schema);
+        }
+
+        /**
+         * Deletes the entries of a secondary table that no entry of the main table references.
+         *
+         * @param table  The secondary table name.
+         * @param column The column of the main table that references secondary table identifiers.
+         * @return The number of deleted entries, 0 when using in memory database.
+         */
+        public int deleteUnreferenced(@NonNull String table, @NonNull String column) {
+            return mDatabaseManager.deleteUnreferenced(table, column);
+        }
+
+        /**
+         * Enables or disables write-ahead logging, so that queries and writes use separate connections.
+         *
+         * @param enabled true to use write-ahead logging, false to use the default rollback journal.
+         */
+        public void setWriteAheadLogging(boolean enabled) {
+            mDatabaseManager.setWriteAheadLogging(enabled);
+        }
+
+        /**
+         * Gets the sum of a numeric column over all rows, all rows where key matches value if specified.
+         *
+         * @param column The column to sum.
+         * @param key    The optional key for query.
+         * @param value  The optional value for query.
+         * @return The sum, 0 if there are no rows.
+         */
+        public long sum(@NonNull String column, @Nullable String key, @Nullable Object value) {
+            return mDatabaseManager.sum(column, key, value);
+        }
+
         /**
          * Clears the table in the database.
          */
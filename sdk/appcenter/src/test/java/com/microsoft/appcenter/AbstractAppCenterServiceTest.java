@@ -4,6 +4,7 @@ import android.content.Context;
 
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.storage.StorageHelper;
 
 import org.junit.Assert;
@@ -210,7 +211,7 @@ public class AbstractAppCenterServiceTest {
         Channel channel = mock(Channel.class);
         mService.onStarted(mock(Context.class), "", null, channel);
         verify(channel).removeGroup(mService.getGroupName());
-        verify(channel).addGroup(mService.getGroupName(), mService.getTriggerCount(), mService.getTriggerInterval(), mService.getTriggerMaxParallelRequests(), null, mService.getChannelListener());
+        verify(channel).addGroup(mService.getGroupName(), mService.getTriggerCount(), mService.getTriggerInterval(), mService.getTriggerMaxParallelRequests(), null, mService.getChannelListener(), mService.getGroupQuota());
         verifyNoMoreInteractions(channel);
         assertSame(channel, mService.mChannel);
 
@@ -225,14 +226,14 @@ public class AbstractAppCenterServiceTest {
         Channel channel = mock(Channel.class);
         mService.onStarted(mock(Context.class), "", null, channel);
         verify(channel).removeGroup(mService.getGroupName());
-        verify(channel).addGroup(eq(mService.getGroupName()), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), any(Channel.GroupListener.class));
+        verify(channel).addGroup(eq(mService.getGroupName()), anyInt(), anyLong(), anyInt(), isNull(Ingestion.class), any(Channel.GroupListener.class), any(GroupQuota.class));
         mService.setInstanceEnabled(false);
         verify(channel, times(2)).removeGroup(mService.getGroupName());
         verify(channel).clear(mService.getGroupName());
         verifyNoMoreInteractions(channel);
         assertSame(channel, mService.mChannel);
         mService.setInstanceEnabled(true);
-        verify(channel, times(2)).addGroup(mService.getGroupName(), mService.getTriggerCount(), mService.getTriggerInterval(), mService.getTriggerMaxParallelRequests(), null, mService.getChannelListener());
+        verify(channel, times(2)).addGroup(mService.getGroupName(), mService.getTriggerCount(), mService.getTriggerInterval(), mService.getTriggerMaxParallelRequests(), null, mService.getChannelListener(), mService.getGroupQuota());
         verifyNoMoreInteractions(channel);
     }
 
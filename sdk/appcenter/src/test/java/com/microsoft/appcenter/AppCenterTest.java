@@ -199,6 +199,7 @@ public class AppCenterTest {
         when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class), anyInt(), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
         StorageHelper.DatabaseStorage.DatabaseScanner databaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
         when(databaseStorage.getScanner(anyString(), anyObject())).thenReturn(databaseScanner);
+        when(databaseStorage.getScanner(anyString(), anyObject(), any(Long.class), anyInt(), anyBoolean())).thenReturn(databaseScanner);
         when(databaseScanner.iterator()).thenReturn(mDataBaseScannerIterator);
 
         /* Mock network state helper. */
@@ -910,6 +911,54 @@ public class AppCenterTest {
         verify(mChannel).setLogUrl(logUrl);
     }
 
+    @Test
+    public void channelSettings() {
+
+        /* Change settings before start. */
+        AppCenter.setAdaptiveBatching(true);
+        AppCenter.setMaxBatchBytes(1024);
+        AppCenter.setIngestQueue(true);
+        AppCenter.setSerializationThreads(2);
+        AppCenter.setWriteAheadLogging(true);
+
+        /* No effect for now. */
+        verify(mChannel, never()).setAdaptiveBatching(anyBoolean());
+        verify(mChannel, never()).setMaxBatchBytes(anyLong());
+        verify(mChannel, never()).setIngestQueue(anyBoolean());
+        verify(mChannel, never()).setSerializationThreads(anyInt());
+        verify(mChannel, never()).setWriteAheadLogging(anyBoolean());
+
+        /* Start should propagate the settings. */
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setAdaptiveBatching(true);
+        verify(mChannel).setMaxBatchBytes(1024);
+        verify(mChannel).setIngestQueue(true);
+        verify(mChannel).setSerializationThreads(2);
+        verify(mChannel).setWriteAheadLogging(true);
+
+        /* Change them after, should work immediately. */
+        AppCenter.setAdaptiveBatching(false);
+        AppCenter.setMaxBatchBytes(0);
+        AppCenter.setIngestQueue(false);
+        AppCenter.setSerializationThreads(0);
+        AppCenter.setWriteAheadLogging(false);
+        verify(mChannel).setAdaptiveBatching(false);
+        verify(mChannel).setMaxBatchBytes(0);
+        verify(mChannel).setIngestQueue(false);
+        verify(mChannel).setSerializationThreads(0);
+        verify(mChannel).setWriteAheadLogging(false);
+    }
+
+    @Test
+    public void channelSettingsNotSetByDefault() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel, never()).setAdaptiveBatching(anyBoolean());
+        verify(mChannel, never()).setMaxBatchBytes(anyLong());
+        verify(mChannel, never()).setIngestQueue(anyBoolean());
+        verify(mChannel, never()).setSerializationThreads(anyInt());
+        verify(mChannel, never()).setWriteAheadLogging(anyBoolean());
+    }
+
     @Test
     public void getSdkVersionTest() {
         assertEquals(BuildConfig.VERSION_NAME, AppCenter.getSdkVersion());
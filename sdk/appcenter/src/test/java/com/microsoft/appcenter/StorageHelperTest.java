@@ -7,25 +7,22 @@ import com.microsoft.appcenter.utils.storage.StorageHelper;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.internal.stubbing.answers.ThrowsException;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
@@ -45,13 +42,13 @@ public class StorageHelperTest {
     @Rule
     public PowerMockRule rule = new PowerMockRule();
 
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
     @Test
     public void readFileNotFound() throws Exception {
         mockStatic(AppCenterLog.class);
-        FileReader fileReader = mock(FileReader.class, new ThrowsException(new FileNotFoundException()));
-        whenNew(FileReader.class).withAnyArguments().thenReturn(fileReader);
-        assertNull(StorageHelper.InternalStorage.read(new File("")));
-        verify(fileReader).close();
+        assertNull(StorageHelper.InternalStorage.read(new File(mTemporaryFolder.getRoot(), "missing")));
         verifyStatic();
         AppCenterLog.error(anyString(), anyString(), any(IOException.class));
     }
@@ -59,13 +56,13 @@ public class StorageHelperTest {
     @Test
     public void readError() throws Exception {
         mockStatic(AppCenterLog.class);
-        BufferedReader reader = mock(BufferedReader.class);
-        whenNew(BufferedReader.class).withAnyArguments().thenReturn(reader);
-        whenNew(FileReader.class).withAnyArguments().thenReturn(mock(FileReader.class));
-        when(reader.readLine()).thenReturn("incomplete");
-        when(reader.readLine()).thenThrow(new EOFException());
+        FileInputStream fileInputStream = mock(FileInputStream.class);
+        whenNew(FileInputStream.class).withAnyArguments().thenReturn(fileInputStream);
+        DataInputStream dataInputStream = mock(DataInputStream.class);
+        whenNew(DataInputStream.class).withAnyArguments().thenReturn(dataInputStream);
+        doThrow(new EOFException()).when(dataInputStream).readFully(any(byte[].class));
         assertNull(StorageHelper.InternalStorage.read(new File("")));
-        verify(reader).close();
+        verify(fileInputStream).close();
         verifyStatic();
         AppCenterLog.error(anyString(), anyString(), any(IOException.class));
     }
@@ -73,25 +70,47 @@ public class StorageHelperTest {
     @Test
     public void readErrorAndCloseError() throws Exception {
         mockStatic(AppCenterLog.class);
-        FileReader fileReader = mock(FileReader.class, new ThrowsException(new IOException()));
-        whenNew(FileReader.class).withAnyArguments().thenReturn(fileReader);
+        FileInputStream fileInputStream = mock(FileInputStream.class, new ThrowsException(new IOException()));
+        whenNew(FileInputStream.class).withAnyArguments().thenReturn(fileInputStream);
+        DataInputStream dataInputStream = mock(DataInputStream.class, new ThrowsException(new IOException()));
+        whenNew(DataInputStream.class).withAnyArguments().thenReturn(dataInputStream);
         assertNull(StorageHelper.InternalStorage.read(new File("")));
-        verify(fileReader).close();
+        verify(fileInputStream).close();
         verifyStatic();
         AppCenterLog.error(anyString(), anyString(), any(IOException.class));
     }
 
+    @Test
+    public void readContentsUnchanged() throws Exception {
+        File file = mTemporaryFolder.newFile();
+        String contents = "{\"a\":\"\u00e9\u20ac\"}\r\nline\n\nlast";
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(contents.getBytes("UTF-8"));
+        outputStream.close();
+        assertEquals(contents, StorageHelper.InternalStorage.read(file));
+    }
+
+    @Test
+    public void writeBytes() throws Exception {
+        File file = mTemporaryFolder.newFile();
+        byte[] contents = "\u00e9t\u00e9\n".getBytes("UTF-8");
+        StorageHelper.InternalStorage.write(file, contents);
+        assertArrayEquals(contents, StorageHelper.InternalStorage.readBytes(file));
+    }
+
     @Test(expected = IOException.class)
     public void writeError() throws Exception {
         mockStatic(TextUtils.class);
         when(TextUtils.isEmpty(anyString())).thenReturn(false);
         when(TextUtils.getTrimmedLength(anyString())).thenReturn(4);
-        BufferedWriter writer = mock(BufferedWriter.class);
-        whenNew(BufferedWriter.class).withAnyArguments().thenReturn(writer);
-        whenNew(FileWriter.class).withAnyArguments().thenReturn(mock(FileWriter.class));
-        doThrow(new IOException("mock")).when(writer).write(anyString());
-        StorageHelper.InternalStorage.write(mock(File.class), "test");
-        verify(writer).close();
+        FileOutputStream outputStream = mock(FileOutputStream.class);
+        whenNew(FileOutputStream.class).withAnyArguments().thenReturn(outputStream);
+        doThrow(new IOException("mock")).when(outputStream).write(any(byte[].class));
+        try {
+            StorageHelper.InternalStorage.write(mock(File.class), "test");
+        } finally {
+            verify(outputStream).close();
+        }
     }
 
     @Test(expected = IOException.class)
@@ -0,0 +1,62 @@
+package com.microsoft.appcenter.channel;
+
+import org.junit.Test;
+
+import static com.microsoft.appcenter.channel.AdaptiveBatchPolicy.BACK_OFF_FACTOR;
+import static com.microsoft.appcenter.channel.AdaptiveBatchPolicy.FAST_UPLOAD_LATENCY;
+import static com.microsoft.appcenter.channel.AdaptiveBatchPolicy.MAX_BATCH_SIZE_FACTOR;
+import static com.microsoft.appcenter.channel.AdaptiveBatchPolicy.SLOW_UPLOAD_LATENCY;
+import static com.microsoft.appcenter.channel.AdaptiveBatchPolicy.SPEED_UP_FACTOR;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveBatchPolicyTest {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final long INTERVAL = 3000;
+
+    @Test
+    public void baselineWithoutLatency() {
+        AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy(BATCH_SIZE, INTERVAL);
+        assertEquals(BATCH_SIZE, policy.getMaxLogsPerBatch(1));
+        assertEquals(INTERVAL, policy.getBatchTimeInterval(1, false));
+        assertEquals(INTERVAL, policy.getBatchTimeInterval(BATCH_SIZE - 1, false));
+        assertEquals(INTERVAL * BACK_OFF_FACTOR, policy.getBatchTimeInterval(1, true));
+    }
+
+    @Test
+    public void batchGrowsWithBacklog() {
+        AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy(BATCH_SIZE, INTERVAL);
+        assertEquals(BATCH_SIZE, policy.getMaxLogsPerBatch(BATCH_SIZE));
+        assertEquals(BATCH_SIZE * 2, policy.getMaxLogsPerBatch(BATCH_SIZE * 2));
+        assertEquals(BATCH_SIZE * MAX_BATCH_SIZE_FACTOR, policy.getMaxLogsPerBatch(BATCH_SIZE * 100));
+    }
+
+    @Test
+    public void fastNetwork() {
+        AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy(BATCH_SIZE, INTERVAL);
+        policy.onUploadSucceeded(FAST_UPLOAD_LATENCY / 2);
+
+        /* Interval shortens only once half a batch is waiting and if not metered. */
+        assertEquals(INTERVAL, policy.getBatchTimeInterval(1, false));
+        assertEquals(INTERVAL / SPEED_UP_FACTOR, policy.getBatchTimeInterval(BATCH_SIZE / 2, false));
+        assertEquals(INTERVAL * BACK_OFF_FACTOR, policy.getBatchTimeInterval(BATCH_SIZE / 2, true));
+    }
+
+    @Test
+    public void slowNetwork() {
+        AdaptiveBatchPolicy policy = new AdaptiveBatchPolicy(BATCH_SIZE, INTERVAL);
+        policy.onUploadSucceeded(SLOW_UPLOAD_LATENCY * 2);
+        assertEquals(BATCH_SIZE, policy.getMaxLogsPerBatch(BATCH_SIZE * 100));
+        assertEquals(INTERVAL * BACK_OFF_FACTOR, policy.getBatchTimeInterval(BATCH_SIZE / 2, false));
+
+        /* Average recovers progressively. */
+        policy.onUploadSucceeded(0);
+        assertEquals(BATCH_SIZE, policy.getMaxLogsPerBatch(BATCH_SIZE * 100));
+        for (int i = 0; i < 20; i++) {
+            policy.onUploadSucceeded(0);
+        }
+        assertEquals(BATCH_SIZE * MAX_BATCH_SIZE_FACTOR, policy.getMaxLogsPerBatch(BATCH_SIZE * 100));
+        assertEquals(INTERVAL / SPEED_UP_FACTOR, policy.getBatchTimeInterval(BATCH_SIZE / 2, false));
+    }
+}
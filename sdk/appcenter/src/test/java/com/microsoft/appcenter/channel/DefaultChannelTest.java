@@ -12,14 +12,21 @@ import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Device;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.persistence.SerializationExecutor;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
+import com.microsoft.appcenter.utils.HandlerUtils;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
 import com.microsoft.appcenter.utils.UUIDUtils;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
 
 import java.io.IOException;
 import java.net.SocketException;
@@ -29,16 +36,21 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -47,7 +59,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 @SuppressWarnings("unused")
 public class DefaultChannelTest extends AbstractDefaultChannelTest {
@@ -69,6 +83,37 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         verify(mAppCenterHandler, never()).removeCallbacks(any(Runnable.class));
     }
 
+    @Test
+    public void serializedLogNotEnqueued() throws Persistence.PersistenceException {
+        Persistence persistence = mock(Persistence.class);
+        Channel.Listener listener = mock(Channel.Listener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, mock(Ingestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.addListener(listener);
+
+        /* Logs read from persistence without deserialization cannot be decorated nor persisted again. */
+        Log log = new SerializedLog("mock", "{}");
+        channel.enqueue(log, TEST_GROUP);
+        verify(listener, never()).onPreparingLog(log, TEST_GROUP);
+        verify(persistence, never()).putLog(TEST_GROUP, log);
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+
+        /* Same when consumed from the ingest queue. */
+        doAnswer(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return true;
+            }
+        }).when(mAppCenterHandler).post(any(Runnable.class));
+        channel.setIngestQueue(true);
+        channel.enqueue(log, TEST_GROUP);
+        verify(listener, never()).onPreparingLog(log, TEST_GROUP);
+        verify(persistence, never()).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void analyticsSuccess() throws Persistence.PersistenceException {
@@ -83,6 +128,9 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
         channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mockListener);
 
+        /* Logs are read serialized even with a group listener, it deserializes them if needed. */
+        verify(mockPersistence).setRawPayload(TEST_GROUP, true);
+
         /* Enqueuing 49 events. */
         for (int i = 1; i <= 49; i++) {
             channel.enqueue(mock(Log.class), TEST_GROUP);
@@ -1131,12 +1179,70 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         Channel.Listener listener = spy(new AbstractChannelListener());
         DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
         channel.addListener(listener);
-        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
-        verify(listener).onGroupAdded(TEST_GROUP);
+        GroupQuota groupQuota = new GroupQuota(GroupQuota.PRIORITY_LOW, 0, 0);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null, groupQuota);
+        verify(listener).onGroupAdded(TEST_GROUP, groupQuota);
         channel.removeGroup(TEST_GROUP);
         verify(listener).onGroupRemoved(TEST_GROUP);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void maxBatchBytes() {
+        Persistence mockPersistence = mock(Persistence.class);
+        Ingestion mockIngestion = mock(Ingestion.class);
+
+        /* Persistence returns fewer logs than requested to stay within the byte budget. */
+        when(mockPersistence.getLogs(any(String.class), anyInt(), any(ArrayList.class))).then(getGetLogsAnswer(20));
+        when(mockPersistence.countLogs(TEST_GROUP)).thenReturn(0, 50, 65);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.setMaxBatchBytes(1000);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        verify(mockPersistence).setMaxBatchBytes(TEST_GROUP, 1000);
+
+        /* Logs left out of the batch are still pending. */
+        for (int i = 0; i < 50; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP);
+        }
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertEquals(30, channel.getCounter(TEST_GROUP));
+
+        /* The count is not restored for logs that persistence deleted while reading the next batch. */
+        for (int i = 0; i < 20; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP);
+        }
+        verify(mockIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertEquals(25, channel.getCounter(TEST_GROUP));
+
+        /* Remove limit. */
+        channel.setMaxBatchBytes(0);
+        verify(mockPersistence).setMaxBatchBytes(TEST_GROUP, 0);
+    }
+
+    @Test
+    public void groupQuotaAndEviction() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(TEST_GROUP)).thenReturn(10);
+        GroupQuota groupQuota = new GroupQuota(GroupQuota.PRIORITY_LOW, 100, 0);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, mock(Ingestion.class), mAppCenterHandler);
+        ArgumentCaptor<Persistence.EvictionListener> evictionListener = ArgumentCaptor.forClass(Persistence.EvictionListener.class);
+        verify(persistence).setEvictionListener(evictionListener.capture());
+
+        /* Quota is passed to persistence. */
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null, groupQuota);
+        verify(persistence).setGroupQuota(TEST_GROUP, groupQuota);
+        assertEquals(10, channel.getCounter(TEST_GROUP));
+
+        /* Evicted logs are no longer pending. */
+        evictionListener.getValue().onLogsEvicted(TEST_GROUP, 4);
+        assertEquals(6, channel.getCounter(TEST_GROUP));
+        evictionListener.getValue().onLogsEvicted(TEST_GROUP, 20);
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+
+        /* Unknown groups are ignored. */
+        evictionListener.getValue().onLogsEvicted("other", 1);
+    }
+
     @Test
     public void useAlternateIngestion() throws IOException {
 
@@ -1168,4 +1274,223 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         verify(alternateIngestion).reopen();
         verify(defaultIngestion).reopen();
     }
+    @Test
+    @SuppressWarnings("unchecked")
+    public void groupCommit() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(anyString(), anyListOf(Log.class))).then(new Answer<List<Long>>() {
+
+            @Override
+            public List<Long> answer(InvocationOnMock invocation) {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < ((List) invocation.getArguments()[1]).size(); i++) {
+                    ids.add((long) i);
+                }
+                return ids;
+            }
+        });
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(Ingestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.setGroupCommit(3, 100);
+
+        /* Prepare to mock commit timer. */
+        final AtomicReference<Runnable> runnable = new AtomicReference<>();
+        when(mAppCenterHandler.postDelayed(any(Runnable.class), eq(100L))).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                runnable.set((Runnable) invocation.getArguments()[0]);
+                return true;
+            }
+        });
+
+        /* Logs are buffered until the batch is full. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(100L));
+        verify(mockPersistence, never()).putLogs(anyString(), anyListOf(Log.class));
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        verify(mAppCenterHandler).removeCallbacks(runnable.get());
+        assertEquals(3, channel.getCounter(TEST_GROUP));
+
+        /* Or until the timer expires. */
+        runnable.set(null);
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        assertNotNull(runnable.get());
+        runnable.get().run();
+        verify(mockPersistence, times(2)).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(4, channel.getCounter(TEST_GROUP));
+
+        /* Buffered logs are written when shutting down. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        channel.shutdown();
+        ArgumentCaptor<List> logs = ArgumentCaptor.forClass(List.class);
+        verify(mockPersistence, times(3)).putLogs(eq(TEST_GROUP), logs.capture());
+        assertEquals(3, logs.getAllValues().get(0).size());
+        assertEquals(1, logs.getAllValues().get(1).size());
+        assertEquals(2, logs.getAllValues().get(2).size());
+        verify(mockPersistence, never()).putLog(anyString(), any(Log.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void ingestQueue() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(anyString(), anyListOf(Log.class))).then(new Answer<List<Long>>() {
+
+            @Override
+            public List<Long> answer(InvocationOnMock invocation) {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < ((List) invocation.getArguments()[1]).size(); i++) {
+                    ids.add((long) i);
+                }
+                return ids;
+            }
+        });
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(Ingestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.setIngestQueue(true);
+
+        /* Prepare to capture the runnable consuming the queue. */
+        final AtomicReference<Runnable> runnable = new AtomicReference<>();
+        doAnswer(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                runnable.set((Runnable) invocation.getArguments()[0]);
+                return true;
+            }
+        }).when(mAppCenterHandler).post(any(Runnable.class));
+
+        /* Logs are only published, the App Center thread is woken up once. */
+        Log log1 = mock(Log.class);
+        Log log2 = mock(Log.class);
+        channel.enqueue(log1, TEST_GROUP);
+        channel.enqueue(log2, TEST_GROUP);
+        channel.enqueue(mock(Log.class), "unknown");
+        verify(mAppCenterHandler).post(any(Runnable.class));
+        verify(mockPersistence, never()).putLogs(anyString(), anyListOf(Log.class));
+        verify(log1, never()).setDevice(any(Device.class));
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+
+        /* Consuming the queue prepares logs and writes them together, in order. */
+        assertNotNull(runnable.get());
+        runnable.get().run();
+        verify(log1).setDevice(any(Device.class));
+        ArgumentCaptor<List> logs = ArgumentCaptor.forClass(List.class);
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), logs.capture());
+        assertEquals(asList(log1, log2), logs.getValue());
+        assertEquals(2, channel.getCounter(TEST_GROUP));
+
+        /* A log published after consuming wakes the thread up again, and shutting down persists it. */
+        Log log3 = mock(Log.class);
+        channel.enqueue(log3, TEST_GROUP);
+        verify(mAppCenterHandler, times(2)).post(any(Runnable.class));
+        channel.shutdown();
+        verify(mockPersistence, times(2)).putLogs(eq(TEST_GROUP), logs.capture());
+        assertEquals(singletonList(log3), logs.getValue());
+
+        /* Disabled queue persists on the calling thread. */
+        channel.setIngestQueue(false);
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mockPersistence).putLog(eq(TEST_GROUP), any(Log.class));
+        verify(mAppCenterHandler, times(2)).post(any(Runnable.class));
+    }
+
+    @Test
+    public void serializationThreads() {
+        Persistence mockPersistence = mock(Persistence.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(Ingestion.class), mAppCenterHandler);
+
+        /* Persistence gets an executor with the requested number of threads. */
+        channel.setSerializationThreads(4);
+        ArgumentCaptor<SerializationExecutor> executor = ArgumentCaptor.forClass(SerializationExecutor.class);
+        verify(mockPersistence).setSerializationExecutor(executor.capture());
+        SerializationExecutor firstExecutor = executor.getValue();
+        assertEquals(4, firstExecutor.getMaximumPoolSize());
+
+        /* Changing the thread count replaces the executor. */
+        channel.setSerializationThreads(2);
+        verify(mockPersistence, times(2)).setSerializationExecutor(executor.capture());
+        assertTrue(firstExecutor.isShutdown());
+        SerializationExecutor secondExecutor = executor.getValue();
+        assertEquals(2, secondExecutor.getMaximumPoolSize());
+
+        /* Shutting down the channel serializes on the calling thread again. */
+        channel.shutdown();
+        verify(mockPersistence).setSerializationExecutor(isNull(SerializationExecutor.class));
+        assertTrue(secondExecutor.isShutdown());
+    }
+
+    @Test
+    public void writeAheadLogging() {
+        Persistence mockPersistence = mock(Persistence.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(Ingestion.class), mAppCenterHandler);
+        channel.setWriteAheadLogging(true);
+        verify(mockPersistence).setWriteAheadLogging(true);
+        channel.setWriteAheadLogging(false);
+        verify(mockPersistence).setWriteAheadLogging(false);
+    }
+
+    @Test
+    public void sendWithoutUiThread() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isCallableFromAnyThread()).thenReturn(true);
+        Channel.GroupListener mockListener = mock(Channel.GroupListener.class);
+        when(mockPersistence.getLogs(any(String.class), anyInt(), any(ArrayList.class))).then(getGetLogsAnswer(1));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mockListener);
+
+        /* Enqueue a log, batch is sent without going through UI thread. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mockPersistence).deleteLogs(eq(TEST_GROUP), anyString());
+        verify(mockListener).onSuccess(any(Log.class));
+        verifyStatic(never());
+        HandlerUtils.runOnUiThread(any(Runnable.class));
+    }
+
+    @Test
+    @PrepareForTest(NetworkStateHelper.class)
+    public void adaptiveBatching() throws Persistence.PersistenceException {
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        when(networkStateHelper.isNetworkMetered()).thenReturn(true);
+        mockStatic(NetworkStateHelper.class);
+        when(NetworkStateHelper.getSharedInstance(any(Context.class))).thenReturn(networkStateHelper);
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.setAdaptiveBatching(true);
+
+        /* Interval is longer on metered network. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL * AdaptiveBatchPolicy.BACK_OFF_FACTOR));
+
+        /* Disabling restores configured interval. */
+        channel.removeGroup(TEST_GROUP);
+        channel.setAdaptiveBatching(false);
+        when(mockPersistence.countLogs(TEST_GROUP)).thenReturn(1);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL));
+    }
+
+    @Test
+    @PrepareForTest(NetworkStateHelper.class)
+    public void adaptiveBatchingDrainsBacklogWithLargerBatches() throws Persistence.PersistenceException {
+        mockStatic(NetworkStateHelper.class);
+        when(NetworkStateHelper.getSharedInstance(any(Context.class))).thenReturn(mock(NetworkStateHelper.class));
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.countLogs(TEST_GROUP)).thenReturn(500);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.setAdaptiveBatching(true);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, 1, null, null);
+        verify(mockPersistence).getLogs(eq(TEST_GROUP), eq(50 * AdaptiveBatchPolicy.MAX_BATCH_SIZE_FACTOR), anyList());
+    }
 }
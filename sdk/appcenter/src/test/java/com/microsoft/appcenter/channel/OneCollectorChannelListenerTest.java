@@ -9,6 +9,7 @@ import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.ingestion.models.one.Extensions;
 import com.microsoft.appcenter.ingestion.models.one.SdkExtension;
+import com.microsoft.appcenter.persistence.GroupQuota;
 import com.microsoft.appcenter.utils.UUIDUtils;
 
 import org.junit.Test;
@@ -34,6 +35,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -49,7 +51,8 @@ public class OneCollectorChannelListenerTest {
         OneCollectorChannelListener listener = new OneCollectorChannelListener(mock(Context.class), channel, mock(LogSerializer.class), UUIDUtils.randomUUID());
 
         /* Mock group added. */
-        listener.onGroupAdded(TEST_GROUP);
+        GroupQuota groupQuota = new GroupQuota(GroupQuota.PRIORITY_LOW, 0, 0);
+        listener.onGroupAdded(TEST_GROUP, groupQuota);
 
         /* Verify one collector group added. */
         verify(channel).addGroup(eq(TEST_GROUP + ONE_COLLECTOR_GROUP_NAME_SUFFIX), eq(ONE_COLLECTOR_TRIGGER_COUNT), eq(ONE_COLLECTOR_TRIGGER_INTERVAL), eq(ONE_COLLECTOR_TRIGGER_MAX_PARALLEL_REQUESTS), argThat(new ArgumentMatcher<Ingestion>() {
@@ -58,10 +61,10 @@ public class OneCollectorChannelListenerTest {
             public boolean matches(Object argument) {
                 return argument instanceof OneCollectorIngestion;
             }
-        }), isNull(Channel.GroupListener.class));
+        }), isNull(Channel.GroupListener.class), same(groupQuota));
 
         /* Mock one collector group added callback, should not loop indefinitely. */
-        listener.onGroupAdded(TEST_GROUP + ONE_COLLECTOR_GROUP_NAME_SUFFIX);
+        listener.onGroupAdded(TEST_GROUP + ONE_COLLECTOR_GROUP_NAME_SUFFIX, groupQuota);
         verifyNoMoreInteractions(channel);
     }
 
@@ -1,6 +1,7 @@
 package com.microsoft.appcenter.http;
 
 import android.net.TrafficStats;
+import android.os.Handler;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.utils.HandlerUtils;
@@ -10,6 +11,7 @@ import com.microsoft.appcenter.utils.UUIDUtils;
 import org.json.JSONException;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -21,20 +23,26 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
 
 import static android.util.Log.VERBOSE;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
@@ -42,6 +50,7 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -65,7 +74,7 @@ public class DefaultHttpClientTest {
     /**
      * Simulate ASyncTask. It's not in @Before because some tests like cancel must not use this.
      */
-    private static void mockCall() throws Exception {
+    static void mockCall() throws Exception {
 
         /* Mock AsyncTask... */
         whenNew(DefaultHttpClient.Call.class).withAnyArguments().thenAnswer(new Answer<Object>() {
@@ -74,7 +83,7 @@ public class DefaultHttpClientTest {
             public Object answer(InvocationOnMock invocation) throws Throwable {
 
                 @SuppressWarnings("unchecked")
-                final DefaultHttpClient.Call call = new DefaultHttpClient.Call(invocation.getArguments()[0].toString(), invocation.getArguments()[1].toString(), (Map<String, String>) invocation.getArguments()[2], (HttpClient.CallTemplate) invocation.getArguments()[3], (ServiceCallback) invocation.getArguments()[4]);
+                final DefaultHttpClient.Call call = new DefaultHttpClient.Call((DefaultHttpClient) invocation.getArguments()[0], invocation.getArguments()[1].toString(), invocation.getArguments()[2].toString(), (Map<String, String>) invocation.getArguments()[3], (HttpClient.CallTemplate) invocation.getArguments()[4], (ServiceCallback) invocation.getArguments()[5]);
                 DefaultHttpClient.Call spyCall = spy(call);
                 when(spyCall.executeOnExecutor(any(Executor.class))).then(new Answer<DefaultHttpClient.Call>() {
 
@@ -619,4 +628,213 @@ public class DefaultHttpClientTest {
         verify(serviceCallback).onCallFailed(exception);
         verify(serviceCallback, never()).onCallSucceeded(notNull(String.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void postCompressed() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Build a payload large enough to be compressed. */
+        char[] chars = new char[DefaultHttpClient.MIN_GZIP_LENGTH];
+        Arrays.fill(chars, 'a');
+        String payload = new String(chars);
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(payload);
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        new DefaultHttpClient(true).callAsync("", METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded("OK");
+        verify(urlConnection).setRequestProperty(DefaultHttpClient.CONTENT_ENCODING_KEY, DefaultHttpClient.CONTENT_ENCODING_VALUE);
+        verify(urlConnection).setChunkedStreamingMode(0);
+        verify(urlConnection, never()).setFixedLengthStreamingMode(anyInt());
+
+        /* Verify payload is compressed. */
+        byte[] compressed = buffer.toByteArray();
+        assertTrue(compressed.length < payload.length());
+        InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed)), "UTF-8");
+        StringBuilder uncompressed = new StringBuilder();
+        char[] readBuffer = new char[1024];
+        int len;
+        while ((len = reader.read(readBuffer)) > 0) {
+            uncompressed.append(readBuffer, 0, len);
+        }
+        reader.close();
+        assertEquals(payload, uncompressed.toString());
+    }
+
+    @Test
+    public void postSmallPayloadNotCompressed() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("mockPayload");
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        new DefaultHttpClient(true).callAsync("", METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded("OK");
+        verify(urlConnection, never()).setRequestProperty(eq(DefaultHttpClient.CONTENT_ENCODING_KEY), anyString());
+        verify(urlConnection).setFixedLengthStreamingMode("mockPayload".length());
+        assertEquals("mockPayload", buffer.toString("UTF-8"));
+    }
+
+    @Test
+    public void postStreaming() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()), new ByteArrayInputStream("OK".getBytes()));
+
+        /* Write a payload larger than what is buffered, in small pieces. */
+        final byte[] payload = new byte[DefaultHttpClient.MIN_GZIP_LENGTH * 3];
+        Arrays.fill(payload, (byte) 'a');
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                OutputStream out = (OutputStream) invocation.getArguments()[0];
+                for (int i = 0; i < payload.length; i += 100) {
+                    out.write(payload, i, 100);
+                }
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(OutputStream.class));
+
+        /* Test with and without verbose logging, the payload is the same. */
+        mockCall();
+        for (int logLevel : new int[]{android.util.Log.ASSERT, VERBOSE}) {
+            AppCenter.setLogLevel(logLevel);
+            buffer.reset();
+            ServiceCallback serviceCallback = mock(ServiceCallback.class);
+            new DefaultHttpClient().callAsync("", METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+            verify(serviceCallback).onCallSucceeded("OK");
+            assertArrayEquals(payload, buffer.toByteArray());
+        }
+
+        /* Verify payload was streamed and not built as a string. */
+        verify(callTemplate, never()).buildRequestBody();
+        verify(urlConnection, times(2)).setChunkedStreamingMode(0);
+        verify(urlConnection, never()).setFixedLengthStreamingMode(anyInt());
+        verify(urlConnection, never()).setRequestProperty(eq(DefaultHttpClient.CONTENT_ENCODING_KEY), anyString());
+    }
+
+    /**
+     * Mock main handler to run callbacks immediately.
+     */
+    private static void mockMainHandler() {
+        Handler handler = mock(Handler.class);
+        when(handler.post(any(Runnable.class))).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return true;
+            }
+        });
+        mockStatic(HandlerUtils.class);
+        when(HandlerUtils.getMainHandler()).thenReturn(handler);
+    }
+
+    @Test
+    @PrepareForTest(HandlerUtils.class)
+    public void callOnExecutor() throws Exception {
+
+        /* Configure mock HTTP. */
+        mockStatic(TrafficStats.class);
+        mockMainHandler();
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Mock executor to run immediately. */
+        Executor executor = mock(Executor.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(executor).execute(any(Runnable.class));
+
+        /* Verify call ran on executor and result was delivered. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        DefaultHttpClient httpClient = new DefaultHttpClient(false, executor);
+        assertNotNull(httpClient.callAsync("", METHOD_GET, new HashMap<String, String>(), null, serviceCallback));
+        verify(executor).execute(any(DefaultHttpClient.ExecutorCall.class));
+        verify(serviceCallback).onCallSucceeded("OK");
+        verifyNoMoreInteractions(serviceCallback);
+    }
+
+    @Test
+    @PrepareForTest(HandlerUtils.class)
+    public void cancelOnExecutor() throws Exception {
+        mockMainHandler();
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+
+        /* Mock executor to run later. */
+        Executor executor = mock(Executor.class);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        ServiceCall call = new DefaultHttpClient(false, executor).callAsync("", METHOD_GET, new HashMap<String, String>(), null, serviceCallback);
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(runnable.capture());
+
+        /* Cancel before running: nothing happens. Cancelling twice is allowed. */
+        call.cancel();
+        call.cancel();
+        runnable.getValue().run();
+        verifyZeroInteractions(urlConnection);
+        verifyZeroInteractions(serviceCallback);
+    }
+
+    @Test
+    @PrepareForTest(HandlerUtils.class)
+    public void rejectedOnExecutor() throws Exception {
+        mockMainHandler();
+        Executor executor = mock(Executor.class);
+        RejectedExecutionException exception = new RejectedExecutionException();
+        doThrow(exception).when(executor).execute(any(Runnable.class));
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        assertNotNull(new DefaultHttpClient(false, executor).callAsync("", METHOD_GET, new HashMap<String, String>(), null, serviceCallback));
+        verify(serviceCallback).onCallFailed(exception);
+        verifyNoMoreInteractions(serviceCallback);
+    }
+
+    @Test
+    public void callableFromAnyThreadOnlyWithExecutor() {
+        assertFalse(new DefaultHttpClient().isCallableFromAnyThread());
+        assertTrue(new DefaultHttpClient(false, mock(Executor.class)).isCallableFromAnyThread());
+    }
+}
@@ -0,0 +1,73 @@
+package com.microsoft.appcenter.http;
+
+import android.net.TrafficStats;
+
+import org.json.JSONException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static com.microsoft.appcenter.http.DefaultHttpClientTest.mockCall;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.whenNew;
+
+@SuppressWarnings("unused")
+@PrepareForTest({DefaultHttpClient.class, TrafficStats.class})
+public class KeepAliveHttpClientTest {
+
+    @Rule
+    public PowerMockRule rule = new PowerMockRule();
+
+    @Test
+    public void keepConnectionAfterResponse() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(503);
+        when(urlConnection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        when(urlConnection.getErrorStream()).thenReturn(new ByteArrayInputStream("Busy".getBytes()));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("mockPayload");
+
+        /* Call and verify the connection is left to the pool even for an error response. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        new KeepAliveHttpClient(false, null).callAsync("", METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallFailed(new HttpException(503, "Busy"));
+        verify(urlConnection, never()).disconnect();
+    }
+
+    @Test
+    public void disconnectOnFailure() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpURLConnection urlConnection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        JSONException exception = new JSONException("mock");
+        when(callTemplate.buildRequestBody()).thenThrow(exception);
+
+        /* Call and verify the connection is closed. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        new KeepAliveHttpClient(false, null).callAsync("", METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallFailed(exception);
+        verify(urlConnection).disconnect();
+    }
+}
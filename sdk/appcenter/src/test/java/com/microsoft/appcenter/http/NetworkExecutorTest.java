@@ -0,0 +1,52 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static com.microsoft.appcenter.http.NetworkExecutor.DEFAULT_POOL_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkExecutorTest {
+
+    @After
+    public void tearDown() {
+        NetworkExecutor.unsetInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        NetworkExecutor executor = NetworkExecutor.getSharedInstance();
+        assertSame(executor, NetworkExecutor.getSharedInstance());
+        assertEquals(DEFAULT_POOL_SIZE, executor.getCorePoolSize());
+        assertEquals(DEFAULT_POOL_SIZE, executor.getMaximumPoolSize());
+        assertEquals(NetworkExecutor.QUEUE_CAPACITY, executor.getQueue().remainingCapacity());
+        assertTrue(executor.allowsCoreThreadTimeOut());
+        NetworkExecutor.unsetInstance();
+        assertNotSame(executor, NetworkExecutor.getSharedInstance());
+    }
+
+    @Test
+    public void setPoolSize() {
+        NetworkExecutor executor = new NetworkExecutor(2);
+        executor.setPoolSize(4);
+        assertEquals(4, executor.getCorePoolSize());
+        assertEquals(4, executor.getMaximumPoolSize());
+        executor.setPoolSize(1);
+        assertEquals(1, executor.getCorePoolSize());
+        assertEquals(1, executor.getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPoolSize() {
+        new NetworkExecutor(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNewPoolSize() {
+        new NetworkExecutor(1).setPoolSize(-1);
+    }
+}
@@ -22,6 +22,8 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -96,6 +98,11 @@ public class AppCenterIngestionTest {
         assertNotNull(callTemplate.get());
         assertEquals("mockPayload", callTemplate.get().buildRequestBody());
 
+        /* Verify streamed payload is written by the serializer. */
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((HttpClient.StreamingCallTemplate) callTemplate.get()).writeRequestBody(out);
+        verify(serializer).writeContainer(eq(container), any(OutputStream.class));
+
         /* Verify close. */
         ingestion.close();
         verify(httpClient).close();
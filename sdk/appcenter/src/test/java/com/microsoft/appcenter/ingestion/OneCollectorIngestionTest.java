@@ -23,6 +23,7 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -110,6 +111,11 @@ public class OneCollectorIngestionTest {
         assertNotNull(callTemplate.get());
         assertEquals("mockPayload1\nmockPayload2\n", callTemplate.get().buildRequestBody());
 
+        /* Verify streamed payload is the same. */
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((HttpClient.StreamingCallTemplate) callTemplate.get()).writeRequestBody(out);
+        assertEquals("mockPayload1\nmockPayload2\n", out.toString("UTF-8"));
+
         /* Verify close. */
         ingestion.close();
         verify(httpClient).close();
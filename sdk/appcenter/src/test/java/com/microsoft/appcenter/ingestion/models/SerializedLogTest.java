@@ -0,0 +1,133 @@
+package com.microsoft.appcenter.ingestion.models;
+
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.test.TestUtils;
+
+import org.json.JSONException;
+import org.json.JSONStringer;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static com.microsoft.appcenter.test.TestUtils.checkEquals;
+import static com.microsoft.appcenter.test.TestUtils.checkNotEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unused")
+public class SerializedLogTest {
+
+    @Test
+    public void compareDifferentType() {
+        TestUtils.compareSelfNullClass(new SerializedLog("mock", "{}"));
+    }
+
+    @Test
+    public void compare() {
+        SerializedLog a = new SerializedLog("mock", "{}");
+        SerializedLog b = new SerializedLog("mock", "{}");
+        checkEquals(a, b);
+        checkNotEquals(a, new SerializedLog(null, "{}"));
+        checkNotEquals(a, new SerializedLog("mock", "{\"a\":1}"));
+        checkEquals(new SerializedLog(null, "{}"), new SerializedLog(null, "{}"));
+
+        /* Transmission targets. */
+        a.addTransmissionTarget("token");
+        checkNotEquals(a, b);
+        b.addTransmissionTarget("token");
+        checkEquals(a, b);
+        assertEquals(1, a.getTransmissionTargetTokens().size());
+        assertTrue(a.getTransmissionTargetTokens().contains("token"));
+    }
+
+    @Test
+    public void modelFieldsAreNotAvailableWithoutSerializer() {
+        SerializedLog log = new SerializedLog("mock", "{}");
+        assertEquals("mock", log.getType());
+        assertEquals("{}", log.getPayload());
+        assertNull(log.getTimestamp());
+        assertNull(log.getSid());
+        assertNull(log.getDistributionGroupId());
+        assertNull(log.getDevice());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setTimestamp() {
+        new SerializedLog("mock", "{}").setTimestamp(new Date());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setSid() {
+        new SerializedLog("mock", "{}").setSid(UUID.randomUUID());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setDevice() {
+        new SerializedLog("mock", "{}").setDevice(new Device());
+    }
+
+    @Test
+    public void modelDeserializedOnFirstAccess() throws JSONException {
+        LogSerializer serializer = mock(LogSerializer.class);
+        Log model = mock(Log.class);
+        Date timestamp = new Date();
+        when(model.getTimestamp()).thenReturn(timestamp);
+        when(serializer.deserializeLog("{}", "mock")).thenReturn(model);
+        SerializedLog log = new SerializedLog("mock", "{}", serializer);
+        log.addTransmissionTarget("token");
+
+        /* Sending does not need the model. */
+        assertEquals("{}", log.getPayload());
+        assertEquals(1, log.getTransmissionTargetTokens().size());
+        assertFalse(log.isDeserialized());
+        verify(serializer, never()).deserializeLog(anyString(), anyString());
+
+        /* Reading a model field deserializes once, with transmission targets. */
+        assertSame(timestamp, log.getTimestamp());
+        assertTrue(log.isDeserialized());
+        assertSame(model, SerializedLog.getModel(log));
+        log.getSid();
+        verify(serializer, times(1)).deserializeLog("{}", "mock");
+        verify(model).addTransmissionTarget("token");
+
+        /* Changes and writing go to the model. */
+        UUID sid = UUID.randomUUID();
+        log.setSid(sid);
+        verify(model).setSid(sid);
+        log.addTransmissionTarget("token2");
+        verify(model).addTransmissionTarget("token2");
+        JSONStringer writer = mock(JSONStringer.class);
+        log.write(writer);
+        verify(model).write(writer);
+    }
+
+    @Test
+    public void modelDeserializationFails() throws JSONException {
+        LogSerializer serializer = mock(LogSerializer.class);
+        when(serializer.deserializeLog("{}", "mock")).thenThrow(new JSONException("mock"));
+        SerializedLog log = new SerializedLog("mock", "{}", serializer);
+        assertNull(log.getDevice());
+        assertSame(log, SerializedLog.getModel(log));
+        assertFalse(log.isDeserialized());
+
+        /* Not tried again. */
+        verify(serializer, times(1)).deserializeLog("{}", "mock");
+    }
+
+    @Test
+    public void getModelOfModel() {
+        Log log = mock(Log.class);
+        assertSame(log, SerializedLog.getModel(log));
+        assertNull(SerializedLog.getModel(null));
+    }
+}
@@ -1,59 +1,135 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
-import android.util.Log;
-
-import com.microsoft.appcenter.AppCenter;
+import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
 import org.json.JSONStringer;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
-import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
-import static org.powermock.api.mockito.PowerMockito.verifyStatic;
-import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 /**
  * Supplements tests in LogSerializerTest.
  */
 @SuppressWarnings("unused")
-@PrepareForTest({DefaultLogSerializer.class, AppCenterLog.class})
+@PrepareForTest(AppCenterLog.class)
 public class DefaultLogSerializerTest {
 
     @Rule
     public PowerMockRule mPowerMockRule = new PowerMockRule();
 
     @Test
-    public void failToUsePrettyJson() throws Exception {
+    public void prettyJsonInVerbose() throws Exception {
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(android.util.Log.VERBOSE);
+        LogContainer container = mock(LogContainer.class);
+        when(container.getLogs()).thenReturn(Collections.<Log>emptyList());
+        assertEquals("{\n  \"logs\": []\n}", new DefaultLogSerializer().serializeContainer(container));
+    }
+
+    @Test
+    public void compactJsonOtherwise() throws Exception {
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(android.util.Log.ERROR);
+        LogContainer container = mock(LogContainer.class);
+        when(container.getLogs()).thenReturn(Collections.<Log>emptyList());
+        assertEquals("{\"logs\":[]}", new DefaultLogSerializer().serializeContainer(container));
+    }
 
-        /* Mock logs to verify interactions. */
+    @Test
+    public void writeSerializedLogsToStream() throws Exception {
         mockStatic(AppCenterLog.class);
-        when(AppCenterLog.getLogLevel()).thenReturn(Log.VERBOSE);
-
-        /* Mock stub JSONStringer. */
-        JSONStringer stringer = mock(JSONStringer.class);
-        whenNew(JSONStringer.class).withAnyArguments().thenReturn(stringer);
-        when(stringer.key(anyString())).thenReturn(stringer);
-        when(stringer.toString()).thenReturn("{}");
-
-        /*
-         * We are in test folder so the stub does not contain the private methods,
-         * this test thus simulates what happens if we can't access the private methods
-         * via reflection to use pretty json. We check it serializes gracefully.
-         */
-        assertEquals("{}", new DefaultLogSerializer().serializeContainer(mock(LogContainer.class)));
-
-        /* And that it logs why the pretty json could not be used. */
-        verifyStatic();
-        AppCenterLog.error(eq(AppCenter.LOG_TAG), anyString(), any(NoSuchMethodError.class));
+        when(AppCenterLog.getLogLevel()).thenReturn(android.util.Log.ERROR);
+        LogContainer container = mock(LogContainer.class);
+        when(container.getLogs()).thenReturn(Arrays.<Log>asList(
+                new SerializedLog("mock", "{\"a\":\"é\"}"),
+                new SerializedLog("mock", "{\"b\":1}")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultLogSerializer().writeContainer(container, out);
+        assertEquals("{\"logs\":[{\"a\":\"é\"},{\"b\":1}]}", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeDeserializedLogFromModel() throws Exception {
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(android.util.Log.ERROR);
+        Log model = mock(Log.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((JSONStringer) invocation.getArguments()[0]).key("c").value(2);
+                return null;
+            }
+        }).when(model).write(any(JSONStringer.class));
+        LogSerializer serializer = mock(LogSerializer.class);
+        when(serializer.deserializeLog("{\"b\":1}", "mock")).thenReturn(model);
+        SerializedLog log = new SerializedLog("mock", "{\"b\":1}", serializer);
+        LogContainer container = mock(LogContainer.class);
+        when(container.getLogs()).thenReturn(Arrays.<Log>asList(
+                new SerializedLog("mock", "{\"a\":\"é\"}"), log));
+
+        /* The payload is used until the model is deserialized, then the model is written. */
+        assertEquals("{\"b\":1}", new DefaultLogSerializer().serializeLog(log));
+        assertSame(model, SerializedLog.getModel(log));
+        assertEquals("{\"c\":2}", new DefaultLogSerializer().serializeLog(log));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultLogSerializer().writeContainer(container, out);
+        assertEquals("{\"logs\":[{\"a\":\"é\"},{\"c\":2}]}", out.toString("UTF-8"));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeToStreamFails() throws Exception {
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(android.util.Log.ERROR);
+        LogContainer container = mock(LogContainer.class);
+        when(container.getLogs()).thenReturn(Collections.<Log>emptyList());
+        OutputStream out = mock(OutputStream.class);
+        doThrow(new IOException("mock")).when(out).write(any(byte[].class), anyInt(), anyInt());
+        new DefaultLogSerializer().writeContainer(container, out);
+    }
+
+    @Test
+    public void serializeLogWithoutMember() throws Exception {
+        Log log = mock(Log.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                JSONStringer writer = (JSONStringer) invocation.getArguments()[0];
+                writer.key("a").value(1);
+                writer.key("device").object().key("b").value(2).endObject();
+                return null;
+            }
+        }).when(log).write(any(JSONStringer.class));
+        StringBuilder device = new StringBuilder();
+        assertEquals("{\"a\":1}", new DefaultLogSerializer().serializeLog(log, "device", device));
+        assertEquals("{\"b\":2}", device.toString());
+
+        /* Member not found. */
+        device = new StringBuilder();
+        assertEquals("{\"a\":1,\"device\":{\"b\":2}}", new DefaultLogSerializer().serializeLog(log, "other", device));
+        assertEquals(0, device.length());
     }
 }
@@ -0,0 +1,181 @@
+package com.microsoft.appcenter.ingestion.models.json;
+
+import org.json.JSONException;
+import org.json.JSONStringer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JSONStreamWriterTest {
+
+    private static void writeSample(JSONStringer writer) throws JSONException {
+        writer.object();
+        writer.key("string").value("a\"b\\c/d\te\nf\u0001");
+        writer.key("int").value(42);
+        writer.key("double").value(1.5);
+        writer.key("integralDouble").value(2.0);
+        writer.key("bool").value(true);
+        writer.key("null").value(null);
+        writer.key("array").array().value(1L).value("x").endArray();
+        writer.key("empty").array().endArray();
+        writer.key("object").object().key("k").value(false).endObject();
+        writer.endObject();
+    }
+
+    @Test
+    public void compact() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        assertNull(writer.toString());
+        writeSample(writer);
+        assertEquals("{\"string\":\"a\\\"b\\\\c\\/d\\te\\nf\\u0001\",\"int\":42,\"double\":1.5,\"integralDouble\":2,"
+                + "\"bool\":true,\"null\":null,\"array\":[1,\"x\"],\"empty\":[],\"object\":{\"k\":false}}", writer.toString());
+    }
+
+    @Test
+    public void indented() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter(2);
+        writer.object();
+        writer.key("a").array().value(1).endArray();
+        writer.key("b").object().endObject();
+        writer.endObject();
+        assertEquals("{\n  \"a\": [\n    1\n  ],\n  \"b\": {}\n}", writer.toString());
+    }
+
+    @Test
+    public void utf8Stream() throws JSONException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONStreamWriter writer = new JSONStreamWriter(out, 0);
+        writer.array();
+        writer.value("é€😀");
+        writer.value("\uD83D");
+        writer.rawValue("{\"raw\":1}");
+        writer.endArray();
+        writer.flush();
+        assertEquals("[\"é€😀\",\"?\",{\"raw\":1}]", out.toString("UTF-8"));
+        assertNull(writer.toString());
+    }
+
+    @Test
+    public void largeStream() throws JSONException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONStreamWriter writer = new JSONStreamWriter(out, 0);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append("é");
+        }
+        writer.array().value(value.toString()).endArray();
+        writer.flush();
+        assertEquals("[\"" + value + "\"]", out.toString("UTF-8"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void valueWithoutScope() throws JSONException {
+        new JSONStreamWriter().value(1);
+    }
+
+    @Test(expected = JSONException.class)
+    public void valueWithoutKey() throws JSONException {
+        new JSONStreamWriter().object().value(1);
+    }
+
+    @Test(expected = JSONException.class)
+    public void nullKey() throws JSONException {
+        new JSONStreamWriter().object().key(null);
+    }
+
+    @Test(expected = JSONException.class)
+    public void keyInArray() throws JSONException {
+        new JSONStreamWriter().array().key("a");
+    }
+
+    @Test(expected = JSONException.class)
+    public void mismatchedClose() throws JSONException {
+        new JSONStreamWriter().array().endObject();
+    }
+
+    @Test(expected = JSONException.class)
+    public void multipleRoots() throws JSONException {
+        new JSONStreamWriter().array().endArray().array();
+    }
+
+    @Test(expected = JSONException.class)
+    public void notANumber() throws JSONException {
+        new JSONStreamWriter().array().value(Double.NaN);
+    }
+
+    @Test
+    public void deepNesting() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            writer.array();
+            expected.append('[');
+        }
+        for (int i = 0; i < 20; i++) {
+            writer.endArray();
+            expected.append(']');
+        }
+        assertEquals(expected.toString(), writer.toString());
+    }
+
+    @Test
+    public void divertMember() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.divertMember("device");
+        writer.object();
+        writer.key("device").object().key("device").value(1).key("a").array().value(2).endArray().endObject();
+        writer.key("type").value("x");
+        writer.key("nested").object().key("device").value(3).endObject();
+        writer.endObject();
+        assertEquals("{\"type\":\"x\",\"nested\":{\"device\":3}}", writer.toString());
+        assertEquals("{\"device\":1,\"a\":[2]}", writer.getDivertedValue());
+
+        /* A diverted primitive value in the middle of the object. */
+        writer = new JSONStreamWriter();
+        writer.divertMember("b");
+        writer.object().key("a").value(1).key("b").value("2").key("c").value(3).endObject();
+        assertEquals("{\"a\":1,\"c\":3}", writer.toString());
+        assertEquals("\"2\"", writer.getDivertedValue());
+
+        /* Missing member. */
+        writer = new JSONStreamWriter();
+        writer.divertMember("b");
+        writer.object().key("a").value(1).endObject();
+        assertEquals("{\"a\":1}", writer.toString());
+        assertNull(writer.getDivertedValue());
+    }
+
+    @Test
+    public void rawMembers() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.object();
+        writer.rawMembers(" { } ");
+        writer.key("a").value(1);
+        writer.rawMembers("{\"b\":{\"c\":2}}");
+        writer.endObject();
+        assertEquals("{\"a\":1,\"b\":{\"c\":2}}", writer.toString());
+        writer = new JSONStreamWriter();
+        writer.object();
+        writer.rawMembers("{\"b\":2}");
+        writer.key("a").value(1).endObject();
+        assertEquals("{\"b\":2,\"a\":1}", writer.toString());
+    }
+
+    @Test(expected = JSONException.class)
+    public void rawMembersOfArray() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.object();
+        writer.rawMembers("[1]");
+    }
+
+    @Test(expected = JSONException.class)
+    public void rawMembersInArray() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.array();
+        writer.rawMembers("{}");
+    }
+}
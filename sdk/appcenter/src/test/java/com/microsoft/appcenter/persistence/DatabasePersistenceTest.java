@@ -5,6 +5,7 @@ import android.content.Context;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.SerializedLog;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -19,12 +20,17 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import static com.microsoft.appcenter.persistence.DatabasePersistence.COLUMN_GROUP;
+import static com.microsoft.appcenter.persistence.DatabasePersistence.COLUMN_PAYLOAD_SEGMENT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
@@ -32,6 +38,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -45,13 +52,22 @@ public class DatabasePersistenceTest {
     @Rule
     public PowerMockRule mPowerMockRule = new PowerMockRule();
 
+    /**
+     * Mock a database record, optional columns such as the target token or device identifiers are null like in a real record.
+     */
+    private static ContentValues mockContentValues() {
+        ContentValues values = mock(ContentValues.class);
+        when(values.getAsLong(anyString())).thenReturn(null);
+        return values;
+    }
+
     @Test
     public void databaseOperationException() throws Persistence.PersistenceException, JSONException {
 
         /* Mock instances. */
         mockStatic(AppCenterLog.class);
         LogSerializer mockSerializer = mock(DefaultLogSerializer.class);
-        when(mockSerializer.serializeLog(any(Log.class))).thenReturn("{}");
+        when(mockSerializer.serializeLog(any(Log.class), anyString(), any(StringBuilder.class))).thenReturn("{}");
         DatabasePersistence mockPersistence = spy(new DatabasePersistence(mock(Context.class), 1, DatabasePersistence.SCHEMA, Persistence.DEFAULT_CAPACITY));
         doReturn(mockSerializer).when(mockPersistence).getLogSerializer();
         try {
@@ -82,7 +98,7 @@ public class DatabasePersistenceTest {
         for (int i = 0; i < groupCount; i++) {
             List<ContentValues> iterator = new ArrayList<>();
             for (long l = 1; l <= logCount; l++) {
-                ContentValues values = mock(ContentValues.class);
+                ContentValues values = mockContentValues();
                 when(values.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(l + i * logCount);
                 when(values.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{}");
                 iterator.add(values);
@@ -99,7 +115,7 @@ public class DatabasePersistenceTest {
         for (int i = 0; i < groupCount; i++) {
             StorageHelper.DatabaseStorage.DatabaseScanner mockDatabaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
             when(mockDatabaseScanner.iterator()).thenReturn(list.get(i).iterator());
-            when(mockDatabaseStorage.getScanner(COLUMN_GROUP, String.valueOf(i))).thenReturn(mockDatabaseScanner);
+            when(mockDatabaseStorage.getScanner(eq(COLUMN_GROUP), eq(String.valueOf(i)), any(Long.class), anyInt(), eq(false))).thenReturn(mockDatabaseScanner);
         }
 
         LogSerializer mockLogSerializer = mock(LogSerializer.class);
@@ -138,20 +154,20 @@ public class DatabasePersistenceTest {
         Collection<ContentValues> fieldValues = new ArrayList<>(logCount);
         {
             /* Valid record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(0L);
             when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("first");
             fieldValues.add(contentValues);
         }
         {
             /* Empty record, "corrupted", cause identifier is null (and no other field either). */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(null);
             fieldValues.add(contentValues);
         }
         {
             /* Valid record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(2L);
             when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("last");
             fieldValues.add(contentValues);
@@ -159,19 +175,18 @@ public class DatabasePersistenceTest {
 
         /* Mock log sequence retrieved from scanner. */
         StorageHelper.DatabaseStorage.DatabaseScanner databaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
-        when(databaseStorage.getScanner(anyString(), anyString())).thenReturn(databaseScanner);
-        when(databaseStorage.getScanner(anyString(), anyString(), eq(false))).thenReturn(databaseScanner);
+        when(databaseStorage.getScanner(anyString(), anyString(), any(Long.class), anyInt(), eq(false))).thenReturn(databaseScanner);
         when(databaseScanner.iterator()).thenReturn(fieldValues.iterator());
 
         /* Mock second scanner with identifiers only. */
         Collection<ContentValues> idValues = new ArrayList<>(logCount);
         for (long i = 0; i < logCount; i++) {
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(i);
             idValues.add(contentValues);
         }
         StorageHelper.DatabaseStorage.DatabaseScanner idDatabaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
-        when(databaseStorage.getScanner(anyString(), anyString(), eq(true))).thenReturn(idDatabaseScanner);
+        when(databaseStorage.getScanner(anyString(), anyString(), any(Long.class), anyInt(), eq(true))).thenReturn(idDatabaseScanner);
         when(idDatabaseScanner.iterator()).thenReturn(idValues.iterator());
 
         /* Mock serializer and eventually the database. */
@@ -215,27 +230,27 @@ public class DatabasePersistenceTest {
         fieldValues = new ArrayList<>(logCount);
         {
             /* Valid record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(0L);
             when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("first");
             fieldValues.add(contentValues);
         }
         {
             /* Valid record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(2L);
             when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("last");
             fieldValues.add(contentValues);
         }
         {
             /* New corrupted record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(null);
             fieldValues.add(contentValues);
         }
         {
             /* Valid new record. */
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(4L);
             when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("true last");
             fieldValues.add(contentValues);
@@ -245,7 +260,7 @@ public class DatabasePersistenceTest {
 
         /* Here the id scanner will also skip the new corrupted log which id would be 3. */
         for (long i = 0; i < logCount; i += 2) {
-            ContentValues contentValues = mock(ContentValues.class);
+            ContentValues contentValues = mockContentValues();
             when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(i);
             idValues.add(contentValues);
         }
@@ -260,4 +275,134 @@ public class DatabasePersistenceTest {
         /* Verify that the only log we deleted in the entire test was the one from previous test (id=1). */
         verify(databaseStorage).delete(anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getLogsWithRawPayload() throws JSONException {
+
+        /* Mock instances. */
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage databaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class),
+                anyInt(), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
+
+        /* Make 2 logs, the second one is not a JSON object. */
+        List<ContentValues> fieldValues = new ArrayList<>();
+        {
+            ContentValues contentValues = mockContentValues();
+            when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(0L);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{\"type\":\"mock\"}");
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_DATA_TYPE)).thenReturn("mock");
+            fieldValues.add(contentValues);
+        }
+        {
+            ContentValues contentValues = mockContentValues();
+            when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(1L);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{\"type\":");
+            fieldValues.add(contentValues);
+        }
+        StorageHelper.DatabaseStorage.DatabaseScanner databaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(databaseStorage.getScanner(eq(COLUMN_GROUP), eq("mock"), any(Long.class), anyInt(), eq(false))).thenReturn(databaseScanner);
+        when(databaseScanner.iterator()).thenReturn(fieldValues.iterator());
+        LogSerializer logSerializer = mock(LogSerializer.class);
+        DatabasePersistence persistence = new DatabasePersistence(mock(Context.class));
+        persistence.setLogSerializer(logSerializer);
+        persistence.setRawPayload("mock", true);
+
+        /* Get logs and verify they were not deserialized. */
+        List<Log> outLogs = new ArrayList<>();
+        persistence.getLogs("mock", 50, outLogs);
+        assertEquals(1, outLogs.size());
+        assertEquals(new SerializedLog("mock", "{\"type\":\"mock\"}"), outLogs.get(0));
+        verify(logSerializer, never()).deserializeLog(anyString(), anyString());
+
+        /* Verify the invalid payload was deleted. */
+        verify(databaseStorage).delete(1);
+    }
+
+    @Test
+    public void deleteLogsOfBatchWithOneStatement() throws JSONException {
+
+        /* Mock instances. */
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage databaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class),
+                anyInt(), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
+        List<ContentValues> fieldValues = new ArrayList<>();
+        for (long i = 0; i < 3; i++) {
+            ContentValues contentValues = mockContentValues();
+            when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(i);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{}");
+            fieldValues.add(contentValues);
+        }
+        StorageHelper.DatabaseStorage.DatabaseScanner databaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(databaseStorage.getScanner(eq(COLUMN_GROUP), eq("mock"), any(Long.class), anyInt(), eq(false))).thenReturn(databaseScanner);
+        when(databaseScanner.iterator()).thenReturn(fieldValues.iterator());
+        LogSerializer logSerializer = mock(LogSerializer.class);
+        when(logSerializer.deserializeLog(anyString(), anyString())).thenReturn(mock(Log.class));
+        DatabasePersistence persistence = spy(new DatabasePersistence(mock(Context.class)));
+        persistence.setLogSerializer(logSerializer);
+
+        /* Get logs then delete the batch. */
+        String batchId = persistence.getLogs("mock", 50, new ArrayList<Log>());
+        assertNotNull(batchId);
+        persistence.deleteLogs("mock", batchId);
+
+        /* Verify rows are deleted at once and no payload file was probed. */
+        verify(databaseStorage).delete(Arrays.asList(0L, 1L, 2L));
+        verify(databaseStorage, never()).delete(anyLong());
+        verify(persistence, never()).getLargePayloadFile(any(File.class), anyLong());
+        assertEquals(0, persistence.mPendingDbIdentifiers.size());
+    }
+
+    @Test
+    public void getLogsAfterPendingWatermark() throws JSONException {
+
+        /* Mock instances. */
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage databaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class),
+                anyInt(), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
+        List<ContentValues> firstValues = new ArrayList<>();
+        List<ContentValues> secondValues = new ArrayList<>();
+        for (long i = 0; i < 4; i++) {
+            ContentValues contentValues = mockContentValues();
+            when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(i);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{}");
+            if (i < 2) {
+                firstValues.add(contentValues);
+            } else {
+                secondValues.add(contentValues);
+            }
+        }
+        StorageHelper.DatabaseStorage.DatabaseScanner firstScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(firstScanner.iterator()).thenReturn(firstValues.iterator());
+        when(databaseStorage.getScanner(COLUMN_GROUP, "mock", null, 2, false)).thenReturn(firstScanner);
+        StorageHelper.DatabaseStorage.DatabaseScanner secondScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(secondScanner.iterator()).thenReturn(secondValues.iterator());
+        when(databaseStorage.getScanner(COLUMN_GROUP, "mock", 1L, 2, false)).thenReturn(secondScanner);
+        LogSerializer logSerializer = mock(LogSerializer.class);
+        when(logSerializer.deserializeLog(anyString(), anyString())).thenReturn(mock(Log.class));
+        DatabasePersistence persistence = new DatabasePersistence(mock(Context.class));
+        persistence.setLogSerializer(logSerializer);
+
+        /* Verify indexes are created. */
+        verify(databaseStorage).createIndex(anyString(), eq(COLUMN_GROUP), eq(DatabaseManager.PRIMARY_KEY));
+        verify(databaseStorage).createIndex(anyString(), eq(COLUMN_PAYLOAD_SEGMENT), eq(DatabaseManager.PRIMARY_KEY));
+
+        /* Get 2 batches, second query starts after the first batch. */
+        List<Log> outLogs = new ArrayList<>();
+        String firstBatchId = persistence.getLogs("mock", 2, outLogs);
+        assertNotNull(firstBatchId);
+        assertEquals(Long.valueOf(1), persistence.mPendingWatermarks.get("mock"));
+        String secondBatchId = persistence.getLogs("mock", 2, outLogs);
+        assertNotNull(secondBatchId);
+        assertEquals(4, outLogs.size());
+        assertEquals(Long.valueOf(3), persistence.mPendingWatermarks.get("mock"));
+
+        /* Watermark is kept until no batch is pending. */
+        persistence.deleteLogs("mock", firstBatchId);
+        assertEquals(Long.valueOf(3), persistence.mPendingWatermarks.get("mock"));
+        persistence.deleteLogs("mock", secondBatchId);
+        assertNull(persistence.mPendingWatermarks.get("mock"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.microsoft.appcenter.persistence;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DefaultEvictionPolicyTest {
+
+    private final EvictionPolicy mPolicy = new DefaultEvictionPolicy();
+
+    @Test
+    public void priority() {
+        assertEquals(GroupQuota.PRIORITY_NORMAL, mPolicy.getPriority("test", null));
+        assertEquals(GroupQuota.PRIORITY_LOW, mPolicy.getPriority("test", new GroupQuota(GroupQuota.PRIORITY_LOW, 0, 0)));
+        assertEquals(GroupQuota.PRIORITY_HIGH, mPolicy.getPriority("test", new GroupQuota(GroupQuota.PRIORITY_HIGH, 0, 0)));
+    }
+
+    @Test
+    public void noLimit() {
+        GroupQuota quota = new GroupQuota(GroupQuota.PRIORITY_NORMAL, 0, 0);
+        assertEquals(0, mPolicy.getEvictionCount(quota, 1000000, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void logLimit() {
+        GroupQuota quota = new GroupQuota(GroupQuota.PRIORITY_NORMAL, 100, 0);
+        assertEquals(0, mPolicy.getEvictionCount(quota, 100, 1000));
+        assertEquals(11, mPolicy.getEvictionCount(quota, 101, 1000));
+        assertEquals(60, mPolicy.getEvictionCount(quota, 150, 1000));
+    }
+
+    @Test
+    public void byteLimit() {
+        GroupQuota quota = new GroupQuota(GroupQuota.PRIORITY_NORMAL, 0, 1000);
+        assertEquals(0, mPolicy.getEvictionCount(quota, 10, 1000));
+
+        /* 100 bytes per log on average, excess of 100 bytes plus a tenth of the limit to evict. */
+        assertEquals(2, mPolicy.getEvictionCount(quota, 11, 1100));
+
+        /* Cannot evict more logs than the group has. */
+        assertEquals(1, mPolicy.getEvictionCount(quota, 1, 5000));
+        assertEquals(0, mPolicy.getEvictionCount(quota, 0, 5000));
+    }
+
+    @Test
+    public void bothLimits() {
+        GroupQuota quota = new GroupQuota(GroupQuota.PRIORITY_NORMAL, 100, 1000);
+        assertEquals(11, mPolicy.getEvictionCount(quota, 101, 1000));
+        assertEquals(22, mPolicy.getEvictionCount(quota, 50, 1600));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMaxLogs() {
+        new GroupQuota(GroupQuota.PRIORITY_NORMAL, -1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMaxBytes() {
+        new GroupQuota(GroupQuota.PRIORITY_NORMAL, 0, -1);
+    }
+}
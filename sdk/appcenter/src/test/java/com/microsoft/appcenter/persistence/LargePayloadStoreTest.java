@@ -0,0 +1,98 @@
+package com.microsoft.appcenter.persistence;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LargePayloadStoreTest {
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private static byte[] payload(char c, int length) {
+        byte[] payload = new byte[length];
+        Arrays.fill(payload, (byte) c);
+        return payload;
+    }
+
+    @Test
+    public void appendAndRead() throws IOException {
+        File directory = new File(mTemporaryFolder.getRoot(), "segments");
+        LargePayloadStore store = new LargePayloadStore(directory, 10);
+        assertEquals(Collections.<Long>emptyList(), store.getSegments());
+
+        /* Payloads are appended to the same segment until it's full. */
+        LargePayloadStore.Location first = store.append("{\"é\":1}".getBytes("UTF-8"));
+        LargePayloadStore.Location second = store.append(payload('b', 2));
+        assertEquals(0, first.mSegment);
+        assertEquals(0, first.mOffset);
+        assertEquals(0, second.mSegment);
+        assertEquals(8, second.mOffset);
+        assertEquals("{\"é\":1}", store.read(0, 0, 8));
+        assertArrayEquals(payload('b', 2), store.readBytes(0, 8, 2));
+
+        /* A payload larger than a segment gets a segment of its own. */
+        LargePayloadStore.Location third = store.append(payload('c', 20));
+        assertEquals(1, third.mSegment);
+        assertEquals(0, third.mOffset);
+        LargePayloadStore.Location fourth = store.append(payload('d', 1));
+        assertEquals(2, fourth.mSegment);
+        assertEquals(Arrays.asList(0L, 1L, 2L), store.getSegments());
+        assertEquals(10, store.getSize(0));
+        assertEquals(20, store.getSize(1));
+        assertTrue(store.isCurrent(2));
+        assertFalse(store.isCurrent(1));
+
+        /* Segments are found again by another instance, which keeps appending to the last one. */
+        store = new LargePayloadStore(directory, 10);
+        assertEquals(Arrays.asList(0L, 1L, 2L), store.getSegments());
+        assertArrayEquals(payload('c', 20), store.readBytes(1, 0, 20));
+        LargePayloadStore.Location fifth = store.append(payload('e', 1));
+        assertEquals(2, fifth.mSegment);
+        assertEquals(1, fifth.mOffset);
+    }
+
+    @Test
+    public void delete() throws IOException {
+        LargePayloadStore store = new LargePayloadStore(mTemporaryFolder.getRoot(), 10);
+        store.append(payload('a', 10));
+        store.append(payload('b', 10));
+        assertTrue(store.getSegmentFile(0).exists());
+        store.delete(0);
+        assertFalse(store.getSegmentFile(0).exists());
+        assertEquals(Collections.singletonList(1L), store.getSegments());
+
+        /* Deleting the current segment starts a new one, identifiers are not reused. */
+        store.delete(1);
+        assertEquals(Collections.<Long>emptyList(), store.getSegments());
+        assertEquals(2, store.append(payload('c', 1)).mSegment);
+    }
+
+    @Test(expected = IOException.class)
+    public void readOutsideOfSegment() throws IOException {
+        LargePayloadStore store = new LargePayloadStore(mTemporaryFolder.getRoot(), 10);
+        store.append(payload('a', 4));
+        store.read(0, 2, 4);
+    }
+
+    @Test(expected = IOException.class)
+    public void readMissingSegment() throws IOException {
+        new LargePayloadStore(mTemporaryFolder.getRoot(), 10).read(0, 0, 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void appendFails() throws IOException {
+        File directory = mTemporaryFolder.newFile("file");
+        new LargePayloadStore(directory, 10).append(payload('a', 1));
+    }
+}
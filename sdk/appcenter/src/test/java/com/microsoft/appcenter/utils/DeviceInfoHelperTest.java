@@ -1,9 +1,13 @@
 package com.microsoft.appcenter.utils;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Point;
+import android.net.ConnectivityManager;
 import android.os.Build;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
@@ -30,6 +34,7 @@ import java.util.Locale;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.any;
@@ -52,6 +57,7 @@ public class DeviceInfoHelperTest {
     @After
     public void cleanWrapperSdk() {
         DeviceInfoHelper.setWrapperSdk(null);
+        DeviceInfoHelper.clearCache();
     }
 
     @Test
@@ -142,21 +148,56 @@ public class DeviceInfoHelperTest {
         assertEquals(screenSizeLandscape, device.getScreenSize());
         assertEquals(timeZoneOffset, device.getTimeZoneOffset());
 
+        /* Device information is cached until the system notifies a change. */
+        verify(contextMock).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+        Device cachedDevice = DeviceInfoHelper.getDeviceInfo(contextMock);
+        assertNotSame(device, cachedDevice);
+        assertEquals(device, cachedDevice);
+        verify(displayMock).getRotation();
+        verify(telephonyManagerMock).getNetworkOperatorName();
+        verify(packageManagerMock).getPackageInfo(anyString(), eq(0));
+
         /* Verify screen size based on different orientations (Surface.ROTATION_90). */
+        DeviceInfoHelper.onSystemChange(Intent.ACTION_CONFIGURATION_CHANGED);
         device = DeviceInfoHelper.getDeviceInfo(contextMock);
         assertEquals(screenSizePortrait, device.getScreenSize());
 
         /* Verify screen size based on different orientations (Surface.ROTATION_180). */
+        DeviceInfoHelper.onSystemChange(Intent.ACTION_CONFIGURATION_CHANGED);
         device = DeviceInfoHelper.getDeviceInfo(contextMock);
         assertEquals(screenSizeLandscape, device.getScreenSize());
 
         /* Verify screen size based on different orientations (Surface.ROTATION_270). */
+        DeviceInfoHelper.onSystemChange(Intent.ACTION_CONFIGURATION_CHANGED);
         device = DeviceInfoHelper.getDeviceInfo(contextMock);
         assertEquals(screenSizePortrait, device.getScreenSize());
 
         /* Make sure screen size is verified for all orientations. */
         verify(displayMock, times(4)).getRotation();
 
+        /* Carrier is read again after a network change, and nothing else. */
+        when(telephonyManagerMock.getNetworkOperatorName()).thenReturn("other-service");
+        //noinspection deprecation
+        DeviceInfoHelper.onSystemChange(ConnectivityManager.CONNECTIVITY_ACTION);
+        assertEquals("other-service", DeviceInfoHelper.getDeviceInfo(contextMock).getCarrierName());
+        verify(telephonyManagerMock, times(2)).getNetworkOperatorName();
+        verify(displayMock, times(4)).getRotation();
+        verify(packageManagerMock).getPackageInfo(anyString(), eq(0));
+        when(telephonyManagerMock.getNetworkOperatorName()).thenReturn(carrierName);
+        //noinspection deprecation
+        DeviceInfoHelper.onSystemChange(ConnectivityManager.CONNECTIVITY_ACTION);
+        assertEquals(device, DeviceInfoHelper.getDeviceInfo(contextMock));
+
+        /* Locale is read on every call. */
+        Locale.setDefault(Locale.FRANCE);
+        assertEquals(Locale.FRANCE.toString(), DeviceInfoHelper.getDeviceInfo(contextMock).getLocale());
+        Locale.setDefault(locale);
+
+        /* Modifying a returned device does not alter the cache. */
+        device.setModel("modified");
+        assertEquals(model, DeviceInfoHelper.getDeviceInfo(contextMock).getModel());
+        device.setModel(model);
+
         /* Set wrapper sdk information. */
         WrapperSdk wrapperSdk = new WrapperSdk();
         wrapperSdk.setWrapperSdkVersion("1.2.3.4");